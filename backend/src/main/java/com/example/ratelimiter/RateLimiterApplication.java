@@ -1,9 +1,12 @@
 package com.example.ratelimiter;
 
+import com.example.ratelimiter.config.RateLimiterRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ImportRuntimeHints(RateLimiterRuntimeHints.class)
 public class RateLimiterApplication {
     public static void main(String[] args) {
         SpringApplication.run(RateLimiterApplication.class, args);
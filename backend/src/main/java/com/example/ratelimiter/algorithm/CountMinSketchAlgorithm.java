@@ -0,0 +1,61 @@
+package com.example.ratelimiter.algorithm;
+
+import com.example.ratelimiter.config.RateLimiterConfig;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Approximate limiting for keys of unbounded cardinality, such as client addresses during a scan. All subjects
+ * of a rule share one count-min sketch of {@code ceil(e / epsilon)} columns by {@code ceil(ln(1 / (1 -
+ * confidence)))} rows per window, so its Redis memory is fixed however many distinct keys arrive. Estimates only
+ * ever over-count, by at most {@code epsilon} times the window's traffic with the configured confidence; keys
+ * nearing their limit move to exact counters in a fixed table beside the sketch.
+ */
+@Component
+public class CountMinSketchAlgorithm implements RateLimitAlgorithm {
+    public static final String NAME = "count-min";
+
+    private final RateLimiterConfig.Sketch sketch;
+
+    public CountMinSketchAlgorithm(RateLimiterConfig config) {
+        this.sketch = config.getSketch();
+        if (!(sketch.getEpsilon() > 0 && sketch.getEpsilon() < 1)) {
+            throw new IllegalStateException("rate-limiter.sketch.epsilon must be between 0 and 1: "
+                    + sketch.getEpsilon());
+        }
+        if (!(sketch.getConfidence() > 0 && sketch.getConfidence() < 1)) {
+            throw new IllegalStateException("rate-limiter.sketch.confidence must be between 0 and 1: "
+                    + sketch.getConfidence());
+        }
+        if (sketch.getHeavyHitters() < 1) {
+            throw new IllegalStateException("rate-limiter.sketch.heavy-hitters must be positive: "
+                    + sketch.getHeavyHitters());
+        }
+    }
+
+    public static int width(RateLimiterConfig.Sketch sketch) {
+        return (int) Math.ceil(Math.E / sketch.getEpsilon());
+    }
+
+    public static int depth(RateLimiterConfig.Sketch sketch) {
+        return (int) Math.max(1, Math.ceil(Math.log(1 / (1 - sketch.getConfidence()))));
+    }
+
+    // Part of the sketch's key, so nodes with other dimensions never read each other's cells as their own
+    public static String layout(RateLimiterConfig.Sketch sketch) {
+        return width(sketch) + "x" + depth(sketch) + "+" + sketch.getHeavyHitters();
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public String luaModule() {
+        return String.format(Locale.ROOT, "local COUNT_MIN = {width = %d, depth = %d, slots = %d, promote = %s}%n",
+                width(sketch), depth(sketch), sketch.getHeavyHitters(), sketch.getHeavyHitterShare())
+                + LuaScripts.load("scripts/algorithms/count-min.lua");
+    }
+}
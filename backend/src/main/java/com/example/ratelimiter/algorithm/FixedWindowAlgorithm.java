@@ -0,0 +1,18 @@
+package com.example.ratelimiter.algorithm;
+
+import org.springframework.stereotype.Component;
+
+@Component
+public class FixedWindowAlgorithm implements RateLimitAlgorithm {
+    public static final String NAME = "fixed-window";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public String luaModule() {
+        return LuaScripts.load("scripts/algorithms/fixed-window.lua");
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.ratelimiter.algorithm;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public final class LuaScripts {
+    private LuaScripts() {
+    }
+
+    public static String load(String path) {
+        try {
+            return new ClassPathResource(path).getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load Lua script " + path, e);
+        }
+    }
+
+    // Executed via EVALSHA; the script executor falls back to EVAL when Redis answers NOSCRIPT. It emits a
+    // multi-bulk reply either as one list or element by element, so both are collected into one list
+    @SuppressWarnings("unchecked")
+    public static Mono<List<Long>> execute(ReactiveRedisTemplate<byte[], byte[]> template, RedisScript<?> script,
+            List<byte[]> keys, List<byte[]> args) {
+        return template.execute(script, keys, args)
+                .collectList()
+                .map(reply -> (List<Long>) (reply.size() == 1 && reply.get(0) instanceof List<?> list ? list : reply));
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.ratelimiter.algorithm;
+
+/**
+ * A limiting algorithm evaluated inside Redis. Implementations contribute a Lua module that
+ * registers {@code check}, {@code commit} and {@code refund} functions under {@code ALGORITHMS[name()]},
+ * each written as a {@code name = function(...)} field of that table; all registered modules are
+ * assembled into one script by {@link RateLimitAlgorithmRegistry}, which rejects a module missing any of them.
+ * <ul>
+ *   <li>{@code check(key, field, limit, window, now, cost)} returns allowed, remaining, milliseconds until
+ *   reset and the state to commit, without writing</li>
+ *   <li>{@code commit(key, field, state, limit, window, now)} writes that state once every limit of the
+ *   request allowed and returns how long that state matters, in milliseconds</li>
+ *   <li>{@code refund(key, field, limit, window, now, cost)} hands back permits a committed decision took
+ *   and returns whether it could</li>
+ * </ul>
+ */
+public interface RateLimitAlgorithm {
+    String name();
+
+    String luaModule();
+}
@@ -0,0 +1,67 @@
+package com.example.ratelimiter.algorithm;
+
+import lombok.Getter;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+@Component
+public class RateLimitAlgorithmRegistry {
+    private static final List<String> FUNCTIONS = List.of("check", "commit", "refund");
+
+    private final Map<String, RateLimitAlgorithm> algorithms;
+
+    @Getter
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> script;
+
+    // Independent decisions for many subjects in one call
+    @Getter
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> batchScript;
+
+    // Hands back permits of a multi-subject decision that was denied after part of it had committed
+    @Getter
+    private final RedisScript<Long> refundScript;
+
+    public RateLimitAlgorithmRegistry(List<RateLimitAlgorithm> algorithms) {
+        this.algorithms = algorithms.stream()
+                .collect(Collectors.toUnmodifiableMap(RateLimitAlgorithm::name, Function.identity()));
+
+        StringBuilder modules = new StringBuilder("local ALGORITHMS = {}\n");
+        for (RateLimitAlgorithm algorithm : algorithms) {
+            String module = algorithm.luaModule();
+            requireFunctions(algorithm.name(), module);
+            modules.append(module).append('\n');
+        }
+        this.script = new DefaultRedisScript<>(modules + LuaScripts.load("scripts/rate_limit.lua"), List.class);
+        this.batchScript = new DefaultRedisScript<>(modules + LuaScripts.load("scripts/batch.lua"), List.class);
+        this.refundScript = new DefaultRedisScript<>(modules + LuaScripts.load("scripts/refund.lua"), Long.class);
+    }
+
+    // A missing function would only fail inside Redis, on the first request that needs it
+    private static void requireFunctions(String name, String module) {
+        for (String function : FUNCTIONS) {
+            if (!Pattern.compile("(?m)^\\s*" + function + "\\s*=\\s*function\\b").matcher(module).find()) {
+                throw new IllegalStateException("Rate limit algorithm " + name + " does not define " + function);
+            }
+        }
+    }
+
+    public boolean contains(String name) {
+        return algorithms.containsKey(name);
+    }
+
+    public String resolve(String name) {
+        if (!algorithms.containsKey(name)) {
+            throw new IllegalArgumentException("Invalid rate limit algorithm: " + name);
+        }
+        return name;
+    }
+}
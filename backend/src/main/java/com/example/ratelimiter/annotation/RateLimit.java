@@ -1,16 +1,25 @@
 package com.example.ratelimiter.annotation;
 
 import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
+@Repeatable(RateLimits.class)
 public @interface RateLimit {
     String key() default ""; // The header name to use as the rate limit key
 
-    String type() default "second"; // The rate limit type (second/day/week)
+    String type() default "second"; // The rate limit type (second/day/week/concurrency/concurrent)
 
     int limit() default 0; // The rate limit value
-}
\ No newline at end of file
+
+    // fixed-window/sliding-window-counter/token-bucket/gcra/count-min, empty for the default
+    String algorithm() default "";
+
+    String failureMode() default ""; // local/open/closed while Redis is unavailable, empty for the default
+
+    String cost() default ""; // Permits per request: a number or an expression like header('X-Batch-Size'), empty for 1
+}
@@ -0,0 +1,13 @@
+package com.example.ratelimiter.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Container for repeated @RateLimit annotations; all limits are evaluated together, all-or-nothing
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimits {
+    RateLimit[] value();
+}
@@ -1,40 +1,277 @@
 package com.example.ratelimiter.aspect;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import com.example.ratelimiter.annotation.RateLimit;
+import com.example.ratelimiter.annotation.RateLimits;
+import com.example.ratelimiter.concurrency.ConcurrencyLimiterRegistry;
 import com.example.ratelimiter.exception.RateLimitExceededException;
+import com.example.ratelimiter.headers.RateLimitHeaders;
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.rule.RateLimitCost;
+import com.example.ratelimiter.rule.RateLimitRule;
+import com.example.ratelimiter.service.RateLimitDecision;
 import com.example.ratelimiter.service.RateLimiterService;
+import com.example.ratelimiter.service.ReactiveRateLimiterService;
 
-import lombok.RequiredArgsConstructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 @Aspect
 @Component
-@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "rate-limiter", name = "enforcement", havingValue = "aspect")
 public class RateLimitAspect {
+    private static final CompiledRule[] NONE = new CompiledRule[0];
+    private static final String[] NO_KEYS = new String[0];
+
     private final RateLimiterService rateLimiterService;
+    private final ReactiveRateLimiterService reactiveRateLimiterService;
+    private final ConcurrencyLimiterRegistry concurrencyLimiters;
+    private final RateLimitHeaders headers;
+    private final Executor asyncExecutor;
+    private final Map<Method, AnnotatedLimits> compiled = new ConcurrentHashMap<>();
+
+    public RateLimitAspect(RateLimiterService rateLimiterService, ReactiveRateLimiterService reactiveRateLimiterService,
+            ConcurrencyLimiterRegistry concurrencyLimiters, RateLimitHeaders headers,
+            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor asyncExecutor) {
+        this.rateLimiterService = rateLimiterService;
+        this.reactiveRateLimiterService = reactiveRateLimiterService;
+        this.concurrencyLimiters = concurrencyLimiters;
+        this.headers = headers;
+        this.asyncExecutor = asyncExecutor;
+    }
 
     @Around("@annotation(rateLimit)")
     public Object checkRateLimit(ProceedingJoinPoint joinPoint, RateLimit rateLimit) throws Throwable {
-        HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.getRequestAttributes())
-                .getRequest();
-        String key = request.getHeader(rateLimit.key());
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        AnnotatedLimits limits = compiled.get(method);
+        if (limits == null) {
+            limits = compiled.computeIfAbsent(method, m -> compile(joinPoint, new RateLimit[]{rateLimit}));
+        }
+        return check(joinPoint, limits);
+    }
+
+    @Around("@annotation(rateLimits)")
+    public Object checkRateLimits(ProceedingJoinPoint joinPoint, RateLimits rateLimits) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        AnnotatedLimits limits = compiled.get(method);
+        if (limits == null) {
+            limits = compiled.computeIfAbsent(method, m -> compile(joinPoint, rateLimits.value()));
+        }
+        return check(joinPoint, limits);
+    }
+
+    private Object check(ProceedingJoinPoint joinPoint, AnnotatedLimits limits) throws Throwable {
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+        HttpServletRequest request = attributes.getRequest();
+        CompiledRule[] rules = limits.rules();
+        CompiledRule[] inFlight = limits.inFlight();
+
+        // Every header is read before anything is taken, so a bad request holds no permits
+        String[] keys = rules.length == 0 ? NO_KEYS : new String[rules.length];
+        int[] permits = new int[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            RateLimitRule rule = rules[i].rule();
+            keys[i] = request.getHeader(rule.header());
+            if (keys[i] == null || keys[i].isEmpty()) {
+                throw new IllegalArgumentException("Required header " + rule.header() + " is missing");
+            }
+            permits[i] = permits(rule, request);
+        }
+        String[] inFlightKeys = inFlight.length == 0 ? NO_KEYS : new String[inFlight.length];
+        for (int i = 0; i < inFlight.length; i++) {
+            inFlightKeys[i] = inFlightKey(request, inFlight[i].rule());
+        }
+
+        if (limits.async() && rules.length > 0) {
+            return proceedAsync(joinPoint, attributes.getResponse(), rules, keys, permits, inFlight, inFlightKeys);
+        }
+        // In-flight limits go first: their slots can be handed back on a rate limit denial, window permits cannot
+        ConcurrencyLimiterRegistry.InFlight admitted = admit(inFlight, inFlightKeys);
+        if (rules.length > 0) {
+            try {
+                RateLimitDecision[] decisions = rules.length == 1
+                        ? new RateLimitDecision[]{rateLimiterService.tryAcquire(rules[0], keys[0], permits[0])}
+                        : rateLimiterService.tryAcquireAll(rules, keys, permits);
+                rejectIfDenied(attributes.getResponse(), rules, decisions);
+            } catch (RuntimeException e) {
+                release(admitted);
+                throw e;
+            }
+        }
+        return proceed(joinPoint, admitted);
+    }
 
+    // Rules are named after the handler method, so metrics and events tell endpoints apart as in filter mode
+    private AnnotatedLimits compile(ProceedingJoinPoint joinPoint, RateLimit[] annotations) {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        String id = signature.toShortString();
+        List<CompiledRule> rules = new ArrayList<>();
+        List<CompiledRule> inFlight = new ArrayList<>();
+        for (RateLimit limit : annotations) {
+            CompiledRule rule = rateLimiterService.compileRule(id, limit.key(), limit.type(), limit.limit(),
+                    limit.algorithm(), limit.failureMode(), limit.cost());
+            (RateLimitRule.isInFlight(limit.type()) ? inFlight : rules).add(rule);
+        }
+        return new AnnotatedLimits(rules.toArray(NONE), inFlight.toArray(NONE),
+                CompletionStage.class.isAssignableFrom(signature.getReturnType()));
+    }
+
+    private static String inFlightKey(HttpServletRequest request, RateLimitRule rule) {
+        if (rule.header() == null) {
+            return null;
+        }
+        String key = request.getHeader(rule.header());
         if (key == null || key.isEmpty()) {
-            throw new IllegalArgumentException("Required header " + rateLimit.key() + " is missing");
+            throw new IllegalArgumentException("Required header " + rule.header() + " is missing");
+        }
+        return key;
+    }
+
+    // Null when the handler has no in-flight limits
+    private ConcurrencyLimiterRegistry.InFlight admit(CompiledRule[] limits, String[] keys) {
+        if (limits.length == 0) {
+            return null;
+        }
+        ConcurrencyLimiterRegistry.InFlight inFlight = concurrencyLimiters.tryAcquire(limits, keys);
+        if (!inFlight.admitted()) {
+            throw new RateLimitExceededException("Rate limit exceeded for " + inFlight.rejectedBy().type());
+        }
+        return inFlight;
+    }
+
+    // Hands back the slots of a request that never reached the handler
+    private static void release(ConcurrencyLimiterRegistry.InFlight inFlight) {
+        if (inFlight != null) {
+            inFlight.fail();
+        }
+    }
+
+    // Holds each in-flight limit while the handler runs, or until the future it returns completes, so the
+    // adaptive limiters learn from the handler's own latency and semaphore permits cover the whole execution
+    private Object proceed(ProceedingJoinPoint joinPoint, ConcurrencyLimiterRegistry.InFlight inFlight)
+            throws Throwable {
+        if (inFlight == null) {
+            return joinPoint.proceed();
+        }
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            inFlight.fail();
+            throw e;
+        }
+        if (result instanceof CompletionStage<?> stage) {
+            stage.whenComplete((value, failure) -> {
+                if (failure == null) {
+                    inFlight.complete();
+                } else {
+                    inFlight.fail();
+                }
+            });
+        } else {
+            inFlight.complete();
+        }
+        return result;
+    }
+
+    // Throws IllegalArgumentException, answered with 400, when the request does not say what it costs
+    private static int permits(RateLimitRule rule, HttpServletRequest request) {
+        RateLimitCost cost = rule.cost();
+        return cost.isFixed() ? cost.permits()
+                : cost.resolve(new RateLimitCost.Request(request::getHeader, request::getParameter));
+    }
+
+    // The request thread is released while Redis answers; the handler then runs on the task executor rather
+    // than on the Redis client's I/O thread. In-flight limits are admitted first, on the task executor too since
+    // semaphores may wait for a release
+    private CompletableFuture<Object> proceedAsync(ProceedingJoinPoint joinPoint, HttpServletResponse response,
+            CompiledRule[] rules, String[] keys, int[] permits, CompiledRule[] inFlight, String[] inFlightKeys) {
+        Executor executor = withRequestContext(asyncExecutor);
+        CompletableFuture<ConcurrencyLimiterRegistry.InFlight> admitted = inFlight.length == 0
+                ? CompletableFuture.completedFuture(null)
+                : CompletableFuture.supplyAsync(() -> admit(inFlight, inFlightKeys), executor);
+        return admitted.thenCompose(held -> reactiveRateLimiterService.tryAcquireAll(rules, keys, permits).toFuture()
+                .thenComposeAsync(decisions -> {
+                    rejectIfDenied(response, rules, decisions);
+                    try {
+                        @SuppressWarnings("unchecked")
+                        CompletionStage<Object> result = (CompletionStage<Object>) proceed(joinPoint, held);
+                        return result;
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Throwable e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor)
+                .whenComplete((result, failure) -> {
+                    // The handler's future releases the slots once it ran; this covers the requests it never saw
+                    if (failure != null) {
+                        release(held);
+                    }
+                }));
+    }
+
+    // The handler runs as it would on the request thread: with its request attributes and logging context
+    private static Executor withRequestContext(Executor executor) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        return task -> executor.execute(() -> {
+            RequestAttributes previousAttributes = RequestContextHolder.getRequestAttributes();
+            Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+            RequestContextHolder.setRequestAttributes(attributes);
+            setMdc(mdc);
+            try {
+                task.run();
+            } finally {
+                RequestContextHolder.setRequestAttributes(previousAttributes);
+                setMdc(previousMdc);
+            }
+        });
+    }
+
+    private static void setMdc(Map<String, String> context) {
+        if (context == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(context);
         }
+    }
 
-        if (!rateLimiterService.isAllowed(key, rateLimit.type(), rateLimit.limit())) {
-            throw new RateLimitExceededException("Rate limit exceeded for " + rateLimit.type());
+    // The headers go on the response before the handler writes it, and stay on a 429 written by the exception handler
+    private void rejectIfDenied(HttpServletResponse response, CompiledRule[] rules, RateLimitDecision[] decisions) {
+        if (response != null) {
+            headers.write(rules, decisions, response::setHeader);
         }
+        for (int i = 0; i < decisions.length; i++) {
+            if (!decisions[i].allowed()) {
+                throw new RateLimitExceededException("Rate limit exceeded for " + rules[i].rule().type());
+            }
+        }
+    }
 
-        return joinPoint.proceed();
+    // The rules of one annotated method, compiled on its first call
+    private record AnnotatedLimits(CompiledRule[] rules, CompiledRule[] inFlight, boolean async) {
     }
-}
\ No newline at end of file
+}
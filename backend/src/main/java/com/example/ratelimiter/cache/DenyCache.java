@@ -0,0 +1,89 @@
+package com.example.ratelimiter.cache;
+
+import com.example.ratelimiter.codec.StateKey;
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.service.RateLimitDecision;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers keys Redis has denied until their window resets, so further requests from an over-limit
+ * client are rejected without a round trip. Nothing but an explicit reset, which must also call
+ * {@link #invalidateAll()}, can make such a key allowed earlier. An entry only answers for limits up to
+ * the one it was denied at, so raising a limit bypasses it immediately, and for requests costing at least
+ * the permits that were denied, since a cheaper request may still fit.
+ */
+@Component
+public class DenyCache {
+    private final Cache<StateKey, Denial> denials;
+
+    public DenyCache(RateLimiterConfig config) {
+        RateLimiterConfig.DenyCache settings = config.getDenyCache();
+        this.denials = settings.isEnabled()
+                ? Caffeine.newBuilder()
+                        .maximumSize(settings.getMaxKeys())
+                        .expireAfter(new UntilReset())
+                        .recordStats()
+                        .build()
+                : null;
+    }
+
+    public RateLimitDecision get(StateKey state, long limit, int permits) {
+        if (denials == null) {
+            return null;
+        }
+        Denial denial = denials.getIfPresent(state);
+        if (denial == null || limit > denial.limit() || permits < denial.permits()) {
+            return null;
+        }
+        long resetNanos = denial.resetAt() - System.nanoTime();
+        if (resetNanos <= 0) {
+            return null;
+        }
+        return new RateLimitDecision(false, limit, 0, TimeUnit.NANOSECONDS.toMillis(resetNanos) + 1);
+    }
+
+    public void put(StateKey state, RateLimitDecision decision, int permits) {
+        if (denials == null || decision.allowed() || decision.resetMillis() <= 0) {
+            return;
+        }
+        denials.put(state, new Denial(decision.limit(), permits,
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(decision.resetMillis())));
+    }
+
+    // For whoever resets limiter state behind the backend's back, e.g. by flushing Redis
+    public void invalidateAll() {
+        if (denials != null) {
+            denials.invalidateAll();
+        }
+    }
+
+    // Exposed for metrics binding; null when the cache is disabled
+    public Cache<StateKey, ?> cache() {
+        return denials;
+    }
+
+    private record Denial(long limit, int permits, long resetAt) {
+    }
+
+    private static final class UntilReset implements Expiry<StateKey, Denial> {
+        @Override
+        public long expireAfterCreate(StateKey key, Denial denial, long currentTime) {
+            return Math.max(0, denial.resetAt() - System.nanoTime());
+        }
+
+        @Override
+        public long expireAfterUpdate(StateKey key, Denial denial, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, denial, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(StateKey key, Denial denial, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.ratelimiter.codec;
+
+/**
+ * The script arguments of a rule, encoded once. {@code field} names the rule's state within a subject's
+ * hash; rules that only differ in their limit share it. {@code sketch} is the hash of the key that all
+ * subjects of a count-min rule share, and 0 for rules keeping state per subject.
+ */
+public record EncodedRule(String algorithm, String field, byte[] fieldBytes, byte[] algorithmBytes,
+        byte[] limitBytes, byte[] windowBytes, long sketch) {
+}
@@ -0,0 +1,138 @@
+package com.example.ratelimiter.codec;
+
+import com.example.ratelimiter.algorithm.CountMinSketchAlgorithm;
+import com.example.ratelimiter.algorithm.RateLimitAlgorithmRegistry;
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.rule.RateLimitRule;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Binary layout of rate limit state in Redis. Every subject (the value of a rule's key header) gets one hash
+ * under {@code <key-prefix>{<8-byte subject hash>}}; each rule that limits the subject keeps its window in
+ * the field {@code <type>:<algorithm>}. Keys and arguments are written as raw bytes, and everything that only
+ * depends on the rule is encoded once, when the rule is compiled. Count-min rules are the exception: their
+ * subjects share the rule's sketch, and the field passed to the script carries the subject hash instead.
+ */
+@Component
+public class RedisKeyCodec {
+    private static final byte[][] SMALL_NUMBERS = new byte[64][];
+
+    static {
+        for (int i = 0; i < SMALL_NUMBERS.length; i++) {
+            SMALL_NUMBERS[i] = ascii(i);
+        }
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final byte[] prefix;
+    private final String sketchLayout;
+    private final RateLimitAlgorithmRegistry algorithms;
+
+    public RedisKeyCodec(RateLimiterConfig config, RateLimitAlgorithmRegistry algorithms) {
+        String keyPrefix = config.getKeyPrefix();
+        if (keyPrefix.indexOf('{') >= 0 || keyPrefix.indexOf('}') >= 0) {
+            throw new IllegalStateException("rate-limiter.key-prefix must not contain braces: " + keyPrefix);
+        }
+        this.prefix = keyPrefix.getBytes(StandardCharsets.UTF_8);
+        this.sketchLayout = CountMinSketchAlgorithm.layout(config.getSketch());
+        this.algorithms = algorithms;
+    }
+
+    public EncodedRule encode(RateLimitRule rule) {
+        String algorithm = algorithms.resolve(rule.algorithm());
+        String field = rule.type() + ":" + algorithm;
+        long sketch = CountMinSketchAlgorithm.NAME.equals(algorithm)
+                ? hash(field + ":" + sketchLayout + ":" + rule.id())
+                : 0;
+        return new EncodedRule(algorithm, field, field.getBytes(StandardCharsets.UTF_8),
+                algorithm.getBytes(StandardCharsets.UTF_8), ascii(rule.limit()), ascii(rule.window().toMillis()),
+                sketch);
+    }
+
+    public StateKey stateKey(String subject, EncodedRule rule) {
+        if (rule.sketch() != 0) {
+            // Still one state per subject for node-local caches, though they all live under the sketch's key
+            char[] field = Arrays.copyOf(rule.field().toCharArray(), rule.field().length() + 17);
+            field[rule.field().length()] = ':';
+            long h = hash(subject);
+            for (int i = field.length - 1; i > rule.field().length(); i--, h >>>= 4) {
+                field[i] = HEX[(int) (h & 0xf)];
+            }
+            return new StateKey(rule.sketch(), new String(field));
+        }
+        return new StateKey(hash(subject), rule.field());
+    }
+
+    // The hash field a script call reads, ending in the subject hash for count-min rules
+    public byte[] fieldBytes(StateKey state, EncodedRule rule) {
+        return rule.sketch() == 0 ? rule.fieldBytes() : state.field().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // The hash tag holds only the subject hash, so the cluster slot does not depend on the prefix
+    public byte[] redisKey(StateKey state) {
+        byte[] key = new byte[prefix.length + 10];
+        System.arraycopy(prefix, 0, key, 0, prefix.length);
+        key[prefix.length] = '{';
+        long subject = state.subject();
+        for (int i = 0; i < 8; i++) {
+            key[prefix.length + 1 + i] = (byte) (subject >>> (56 - 8 * i));
+        }
+        key[key.length - 1] = '}';
+        return key;
+    }
+
+    // A semaphore of a concurrent rule, per subject or, for rules without a key header, per rule
+    public StateKey semaphoreState(String subject, RateLimitRule rule) {
+        return new StateKey(hash(subject == null ? rule.id() : subject), rule.type() + ":" + rule.id());
+    }
+
+    // Semaphores are sorted sets beside the subject's hash, under <key-prefix>{<subject hash>}:<field>
+    public byte[] semaphoreKey(StateKey state) {
+        byte[] base = redisKey(state);
+        byte[] field = state.field().getBytes(StandardCharsets.UTF_8);
+        byte[] key = Arrays.copyOf(base, base.length + 1 + field.length);
+        key[base.length] = ':';
+        System.arraycopy(field, 0, key, base.length + 1, field.length);
+        return key;
+    }
+
+    // Request costs, shared since script arguments are never written to
+    public static byte[] permits(int permits) {
+        return permits < SMALL_NUMBERS.length ? SMALL_NUMBERS[permits] : ascii(permits);
+    }
+
+    // Decimal digits, as Lua's tonumber expects them, without going through a String
+    public static byte[] ascii(long value) {
+        if (value < 0) {
+            return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+        }
+        int length = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            length++;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = length - 1; i >= 0; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return bytes;
+    }
+
+    // FNV-1a with a murmur3 finalizer, as in the local engine; the hash is part of the stored layout
+    public static long hash(CharSequence subject) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < subject.length(); i++) {
+            h = (h ^ subject.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.ratelimiter.codec;
+
+/**
+ * Identifies the Redis state of one rule for one subject: field {@code field} of the hash stored under the
+ * subject's key. Used to key node-local caches of that state.
+ */
+public record StateKey(long subject, String field) {
+}
@@ -0,0 +1,118 @@
+package com.example.ratelimiter.concurrency;
+
+import com.example.ratelimiter.config.RateLimiterConfig;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caps the requests one endpoint has in flight and moves the cap with the latency it observes, after the
+ * gradient algorithm of Netflix's concurrency-limits: each sample pulls the cap towards
+ * {@code limit * longRtt / rtt + sqrt(limit)}, so it shrinks as soon as requests slow down against their
+ * long-term average and grows back while latency holds. Requests over the cap are rejected at once rather
+ * than queued. Admission is a CAS on the in-flight count; updates run under a lock that samples skip
+ * when another thread holds it.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final int configuredMinLimit;
+    private int minLimit;
+    private volatile int maxLimit;
+    private final double smoothing;
+    private final double tolerance;
+    private final int longWindow;
+    private final double backoff;
+    private volatile double limit;
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimiter(RateLimiterConfig.Concurrency settings, long maxLimit) {
+        this.configuredMinLimit = settings.getMinLimit();
+        this.maxLimit = (int) Math.min(Integer.MAX_VALUE, maxLimit);
+        this.minLimit = Math.max(1, Math.min(configuredMinLimit, this.maxLimit));
+        this.smoothing = settings.getSmoothing();
+        this.tolerance = settings.getTolerance();
+        this.longWindow = Math.max(1, settings.getLongWindow());
+        this.backoff = settings.getBackoff();
+        this.limit = Math.max(minLimit, Math.min(this.maxLimit, settings.getInitialLimit()));
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // The request completed normally and took rttNanos
+    public void onSuccess(long rttNanos) {
+        int busy = inFlight.getAndDecrement();
+        if (rttNanos > 0 && lock.tryLock()) {
+            try {
+                update(rttNanos, busy);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // The request failed; its latency says nothing about the endpoint's capacity
+    public void onIgnore() {
+        inFlight.decrementAndGet();
+    }
+
+    // The request timed out, a sign of overload that the latency average would only show late
+    public void onDropped() {
+        inFlight.decrementAndGet();
+        lock.lock();
+        try {
+            limit = Math.max(minLimit, limit * backoff);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A reloaded rule changed the most the cap may reach; requests in flight and learned latency are kept
+    public void maxLimit(long maxLimit) {
+        int max = (int) Math.min(Integer.MAX_VALUE, maxLimit);
+        if (max == this.maxLimit) {
+            return;
+        }
+        lock.lock();
+        try {
+            minLimit = Math.max(1, Math.min(configuredMinLimit, max));
+            limit = Math.max(minLimit, Math.min(max, limit));
+            this.maxLimit = max;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    private void update(long rtt, int busy) {
+        longRtt = longRtt == 0 ? rtt : longRtt + (rtt - longRtt) / longWindow;
+        if (longRtt > 2 * rtt) {
+            // Latency has dropped well below the average (e.g. after an incident); let the average catch up
+            longRtt *= 0.95;
+        }
+        if (busy < limit / 2) {
+            // An endpoint using half its cap says nothing about how much more it could take
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / rtt));
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - smoothing) + target * smoothing));
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.ratelimiter.concurrency;
+
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.events.DecisionEventLog;
+import com.example.ratelimiter.metrics.RateLimitMetrics;
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.rule.RateLimitRule;
+import com.example.ratelimiter.semaphore.RateLimitSemaphore;
+import com.example.ratelimiter.semaphore.SemaphorePermit;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Holds the in-flight limits of requests: one adaptive limiter per concurrency rule id, created on first use and
+ * never touching Redis, and a semaphore permit per concurrent rule.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConcurrencyLimiterRegistry {
+    private final RateLimiterConfig config;
+    private final RateLimitMetrics metrics;
+    private final RateLimitSemaphore semaphore;
+    private final DecisionEventLog events;
+    // Keyed by rule id, so a reloaded rule keeps its limiter and the meters bound to it
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    public AdaptiveConcurrencyLimiter limiter(RateLimitRule rule) {
+        AdaptiveConcurrencyLimiter limiter = limiters.get(rule.id());
+        if (limiter == null) {
+            limiter = limiters.computeIfAbsent(rule.id(), id -> create(rule));
+        }
+        limiter.maxLimit(rule.limit());
+        return limiter;
+    }
+
+    public InFlight tryAcquire(CompiledRule[] rules) {
+        return tryAcquire(rules, new String[rules.length]);
+    }
+
+    // Admits a request under all the rules or none of them; keys[i] is the subject of a concurrent rule with a
+    // key header and null otherwise
+    public InFlight tryAcquire(CompiledRule[] rules, String[] keys) {
+        AdaptiveConcurrencyLimiter[] acquired = new AdaptiveConcurrencyLimiter[rules.length];
+        SemaphorePermit[] permits = new SemaphorePermit[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            RateLimitRule rule = rules[i].rule();
+            boolean admitted;
+            if (rule.isConcurrent()) {
+                permits[i] = semaphore.tryAcquire(rule, keys[i]);
+                admitted = permits[i] != null;
+            } else {
+                AdaptiveConcurrencyLimiter limiter = limiter(rule);
+                admitted = limiter.tryAcquire();
+                acquired[i] = admitted ? limiter : null;
+            }
+            metrics.recordConcurrency(rules[i], admitted);
+            events.recordConcurrency(rule, keys[i], admitted);
+            if (!admitted) {
+                new InFlight(acquired, permits, 0, null).fail();
+                return new InFlight(new AdaptiveConcurrencyLimiter[0], new SemaphorePermit[0], 0, rule);
+            }
+        }
+        return new InFlight(acquired, permits, System.nanoTime(), null);
+    }
+
+    private AdaptiveConcurrencyLimiter create(RateLimitRule rule) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config.getConcurrency(), rule.limit());
+        metrics.bindConcurrencyLimiter(rule, limiter);
+        return limiter;
+    }
+
+    // An admitted request, released by the first of its methods called once the handler is done
+    public static final class InFlight {
+        private final AdaptiveConcurrencyLimiter[] limiters;
+        private final SemaphorePermit[] permits;
+        private final long startNanos;
+        private final RateLimitRule rejectedBy;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private InFlight(AdaptiveConcurrencyLimiter[] limiters, SemaphorePermit[] permits, long startNanos,
+                RateLimitRule rejectedBy) {
+            this.limiters = limiters;
+            this.permits = permits;
+            this.startNanos = startNanos;
+            this.rejectedBy = rejectedBy;
+        }
+
+        public boolean admitted() {
+            return rejectedBy == null;
+        }
+
+        // The rule that shed the request, when it was not admitted
+        public RateLimitRule rejectedBy() {
+            return rejectedBy;
+        }
+
+        public void complete() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            long rtt = System.nanoTime() - startNanos;
+            for (AdaptiveConcurrencyLimiter limiter : limiters) {
+                if (limiter != null) {
+                    limiter.onSuccess(rtt);
+                }
+            }
+            releasePermits();
+        }
+
+        public void fail() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            for (AdaptiveConcurrencyLimiter limiter : limiters) {
+                if (limiter != null) {
+                    limiter.onIgnore();
+                }
+            }
+            releasePermits();
+        }
+
+        // An async request ran out of time; servlet containers may still report it completed afterwards
+        public void timeout() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            for (AdaptiveConcurrencyLimiter limiter : limiters) {
+                if (limiter != null) {
+                    limiter.onDropped();
+                }
+            }
+            releasePermits();
+        }
+
+        private void releasePermits() {
+            for (SemaphorePermit permit : permits) {
+                if (permit != null) {
+                    permit.release();
+                }
+            }
+        }
+    }
+}
@@ -15,8 +15,14 @@ public class EndpointRateLimitConfig {
 
     @Data
     public static class RateLimitConfig {
+        private String path; // Literal path or path pattern, e.g. /api/posts or /api/users/{id}
+        private String method; // HTTP method, empty for all methods
         private String key;
         private String type;
         private int limit;
+        private String algorithm;
+        private String failureMode;
+        private String cost; // Permits per request, as in @RateLimit(cost = ...)
+        private boolean enabled = true; // false drops the rule, e.g. a configured one from a reloaded source
     }
 }
\ No newline at end of file
@@ -0,0 +1,139 @@
+package com.example.ratelimiter.config;
+
+import com.example.ratelimiter.metrics.RateLimitMetrics;
+import com.example.ratelimiter.resilience.RedisCircuitBreaker;
+import com.example.ratelimiter.shard.RedisShard;
+import com.example.ratelimiter.shard.RedisShardRouter;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisConnectionDetails;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.RedisConfiguration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisSentinelConfiguration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Keys and script arguments are pre-encoded by RedisKeyCodec and passed through without serialization
+@Configuration
+public class RateLimitRedisConfig {
+
+    // On the connection Spring Boot configures, for Redis use outside decisions (the decision stream)
+    @Bean
+    public RedisTemplate<byte[], byte[]> rateLimitRedisTemplate(RedisConnectionFactory connectionFactory) {
+        return binaryTemplate(connectionFactory);
+    }
+
+    // Decisions run on connections of their own, made with the limiter's client settings
+    @Bean
+    @ConditionalOnProperty(prefix = "rate-limiter", name = "backend", havingValue = "redis", matchIfMissing = true)
+    public RedisShardRouter redisShardRouter(RateLimiterConfig config, RedisProperties redisProperties,
+            RedisConnectionDetails connectionDetails, LettuceClientConfiguration rateLimitClientConfiguration,
+            RedisCircuitBreaker circuitBreaker, RateLimitMetrics metrics) {
+        List<String> nodes = config.getSharding().getNodes();
+        boolean clustered = connectionDetails.getCluster() != null;
+        if (nodes.isEmpty()) {
+            LettuceConnectionFactory factory = start(new LettuceConnectionFactory(
+                    connection(connectionDetails, redisProperties), rateLimitClientConfiguration));
+            return RedisShardRouter.single(shard("redis", factory, circuitBreaker), clustered, List.of(factory));
+        }
+        if (clustered) {
+            throw new IllegalStateException("rate-limiter.sharding.nodes cannot be combined with a Redis Cluster");
+        }
+
+        List<RedisShard> shards = new ArrayList<>(nodes.size());
+        List<DisposableBean> factories = new ArrayList<>(nodes.size());
+        for (String node : nodes) {
+            LettuceConnectionFactory factory = start(new LettuceConnectionFactory(
+                    node(node, connectionDetails), rateLimitClientConfiguration));
+            factories.add(factory);
+            shards.add(shard(node, factory,
+                    shards.isEmpty() ? circuitBreaker : new RedisCircuitBreaker(config, metrics, node)));
+        }
+        return RedisShardRouter.ring(shards, config.getSharding().getVirtualNodes(), factories);
+    }
+
+    private static RedisShard shard(String name, LettuceConnectionFactory factory,
+            RedisCircuitBreaker circuitBreaker) {
+        return new RedisShard(name, binaryTemplate(factory),
+                new ReactiveRedisTemplate<>(factory, RedisSerializationContext.byteArray()), circuitBreaker);
+    }
+
+    // The deployment spring.data.redis points at: a standalone node, a sentinel-managed master or a cluster
+    private static RedisConfiguration connection(RedisConnectionDetails details, RedisProperties redisProperties) {
+        if (details.getCluster() != null) {
+            RedisClusterConfiguration cluster = new RedisClusterConfiguration();
+            details.getCluster().getNodes().forEach(node -> cluster.clusterNode(node.host(), node.port()));
+            if (redisProperties.getCluster() != null && redisProperties.getCluster().getMaxRedirects() != null) {
+                cluster.setMaxRedirects(redisProperties.getCluster().getMaxRedirects());
+            }
+            cluster.setUsername(details.getUsername());
+            cluster.setPassword(RedisPassword.of(details.getPassword()));
+            return cluster;
+        }
+        if (details.getSentinel() != null) {
+            RedisConnectionDetails.Sentinel settings = details.getSentinel();
+            RedisSentinelConfiguration sentinel = new RedisSentinelConfiguration();
+            sentinel.master(settings.getMaster());
+            settings.getNodes().forEach(node -> sentinel.sentinel(node.host(), node.port()));
+            sentinel.setDatabase(settings.getDatabase());
+            sentinel.setUsername(details.getUsername());
+            sentinel.setPassword(RedisPassword.of(details.getPassword()));
+            sentinel.setSentinelUsername(settings.getUsername());
+            sentinel.setSentinelPassword(RedisPassword.of(settings.getPassword()));
+            return sentinel;
+        }
+        RedisConnectionDetails.Standalone settings = details.getStandalone();
+        RedisStandaloneConfiguration standalone = new RedisStandaloneConfiguration(settings.getHost(),
+                settings.getPort());
+        standalone.setDatabase(settings.getDatabase());
+        standalone.setUsername(details.getUsername());
+        standalone.setPassword(RedisPassword.of(details.getPassword()));
+        return standalone;
+    }
+
+    // A client-side shard, with the database and credentials of spring.data.redis
+    private static RedisStandaloneConfiguration node(String node, RedisConnectionDetails details) {
+        int colon = node.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalStateException("rate-limiter.sharding.nodes entries must be host:port, got " + node);
+        }
+        RedisStandaloneConfiguration standalone = new RedisStandaloneConfiguration(node.substring(0, colon),
+                Integer.parseInt(node.substring(colon + 1)));
+        if (details.getStandalone() != null) {
+            standalone.setDatabase(details.getStandalone().getDatabase());
+        }
+        standalone.setUsername(details.getUsername());
+        standalone.setPassword(RedisPassword.of(details.getPassword()));
+        return standalone;
+    }
+
+    private static LettuceConnectionFactory start(LettuceConnectionFactory factory) {
+        factory.afterPropertiesSet();
+        return factory;
+    }
+
+    private static RedisTemplate<byte[], byte[]> binaryTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<byte[], byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setEnableDefaultSerializer(false);
+        template.setKeySerializer(RedisSerializer.byteArray());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.setHashKeySerializer(RedisSerializer.byteArray());
+        template.setHashValueSerializer(RedisSerializer.byteArray());
+        template.afterPropertiesSet();
+        return template;
+    }
+}
@@ -3,6 +3,11 @@ package com.example.ratelimiter.config;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 @Data
 @Configuration
@@ -11,4 +16,130 @@ public class RateLimiterConfig {
     private int maxRequestsPerSecond = 2;
     private int maxRequestsPerDay = 10;
     private int maxRequestsPerWeek = 5;
-} 
\ No newline at end of file
+    private String defaultAlgorithm = "fixed-window";
+    private String keyPrefix = "rl:"; // Namespace of every Redis key the limiter writes
+    private String backend = "redis"; // redis or local (in-process, no Redis)
+    private String enforcement = "filter"; // filter (servlet filter) or aspect (AOP around @RateLimit methods)
+    private int maxBatchSize = 1000; // Decisions per isAllowedBatch call
+    private Lease lease = new Lease();
+    private Local local = new Local();
+    private Metrics metrics = new Metrics();
+    private DenyCache denyCache = new DenyCache();
+    private Resilience resilience = new Resilience();
+    private Sharding sharding = new Sharding();
+    private Concurrency concurrency = new Concurrency();
+    private Semaphore semaphore = new Semaphore();
+    private Reload reload = new Reload();
+    private Events events = new Events();
+    private Sketch sketch = new Sketch();
+    private Headers headers = new Headers();
+
+    @Data
+    public static class Lease {
+        private boolean enabled = false;
+        private double share = 0.1; // Share of the remaining window quota leased per renewal
+        private int maxPermits = 1000; // Upper bound on permits a node holds for one key
+        private int minLimit = 100; // Rules with a lower limit are always decided by Redis
+        private Duration maxDuration = Duration.ofSeconds(1); // Leases are handed back and renewed after this
+        private int maxKeys = 10_000; // Expired leases are pruned once more keys than this are tracked
+    }
+
+    @Data
+    public static class Local {
+        private int maxKeys = 1_000_000; // Keys beyond this are let through untracked
+        private int shards = 64;
+        private Duration tick = Duration.ofMillis(100); // Expiry granularity of the timing wheel
+    }
+
+    @Data
+    public static class Metrics {
+        private boolean enabled = true;
+        private boolean percentileHistograms = true; // Disable to cut recording cost and exported series
+        private int deniedKeysCapacity = 100; // Keys tracked for the ratelimits endpoint, 0 to disable
+    }
+
+    @Data
+    public static class DenyCache {
+        private boolean enabled = true;
+        private int maxKeys = 100_000; // Size bound, enforced with W-TinyLFU eviction
+    }
+
+    @Data
+    public static class Resilience {
+        private boolean enabled = true;
+        private Duration timeout = Duration.ofMillis(100); // Deadline shared by the Redis calls of a decision
+        private int failureThreshold = 5; // Consecutive Redis failures that open the circuit
+        private Duration openDuration = Duration.ofSeconds(5); // Time before a probe is let through again
+        private String failureMode = "local"; // Default for rules: local, open or closed
+        private int nodeCount = 1; // Nodes sharing each limit; the local fallback enforces limit / node-count
+        private int fallbackMaxKeys = 100_000;
+        // Commands awaiting a Redis reply before new ones fail fast; replaces the bound that a fixed request
+        // thread pool used to put on concurrent decisions
+        private int maxPendingCommands = 10_000;
+    }
+
+    @Data
+    public static class Sharding {
+        // host:port of standalone Redis nodes to spread subjects over; empty uses spring.data.redis alone
+        private List<String> nodes = new ArrayList<>();
+        private int virtualNodes = 160; // Points per node on the consistent hash ring
+        private Duration clusterTopologyRefresh = Duration.ofSeconds(30); // Periodic refresh in cluster mode
+    }
+
+    @Data
+    public static class Concurrency {
+        private int initialLimit = 20; // In-flight cap of an endpoint before any latency is observed
+        private int minLimit = 1;
+        private int maxLimit = 1000; // Upper bound for concurrency rules that set no limit
+        private double smoothing = 0.2; // Weight of each latency sample when moving the cap
+        private double tolerance = 1.5; // Latency over the long-term average tolerated before the cap shrinks
+        private int longWindow = 600; // Samples averaged into the long-term latency
+        private double backoff = 0.9; // Factor applied to the cap when a request times out
+    }
+
+    @Data
+    public static class Semaphore {
+        private Duration lease = Duration.ofSeconds(30); // Held permits of a crashed node free up after this
+        private Duration maxWait = Duration.ZERO; // Time a request may wait for a permit; zero rejects at once
+        private Duration pollInterval = Duration.ofMillis(20); // How often permits are requested for waiters
+    }
+
+    @Data
+    public static class Reload {
+        private String file; // YAML or properties file of rate-limiter.endpoints rules, reloaded when it changes
+        private Duration filePollInterval = Duration.ofMillis(500);
+        private String redisKey; // Redis hash of endpoint rule properties, reloaded when its channel is notified
+        private String redisChannel = "rate-limiter:rules";
+        private Duration redisResyncInterval = Duration.ofSeconds(30); // Re-reads the hash if a message was missed
+    }
+
+    @Data
+    public static class Events {
+        private boolean enabled = false;
+        private String sink = "redis"; // redis (a stream) or file (memory-mapped segment files)
+        private double allowSampleRate = 0.01; // Share of allowed decisions recorded; denials are always recorded
+        private int bufferSize = 8192; // Events waiting for the writer; more are dropped and counted
+        private int batchSize = 512;
+        private Duration flushInterval = Duration.ofMillis(100); // Writer pause while the buffer is empty
+        private String streamKey = "decisions"; // Appended to key-prefix
+        private long streamMaxLength = 1_000_000; // Approximate, trimmed as events are added
+        private String directory = "decision-events";
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+        private int maxSegments = 16; // The oldest segment is deleted beyond this
+    }
+
+    @Data
+    public static class Sketch {
+        private double epsilon = 0.001; // Over-count bound of count-min rules, as a share of a window's traffic
+        private double confidence = 0.99; // Probability that an estimate stays within that bound
+        private int heavyHitters = 1024; // Exact counter slots per rule for keys nearing their limit
+        private double heavyHitterShare = 0.5; // Share of the limit at which a key takes an exact counter
+    }
+
+    @Data
+    public static class Headers {
+        private boolean enabled = true; // RateLimit-Limit, -Remaining, -Reset and -Policy on limited responses
+        private boolean retryAfter = true; // Retry-After on rejections
+        private double retryAfterJitter = 0.0; // Up to this share of the wait is added at random to Retry-After
+    }
+}
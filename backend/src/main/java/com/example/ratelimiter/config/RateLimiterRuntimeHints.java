@@ -0,0 +1,30 @@
+package com.example.ratelimiter.config;
+
+import com.example.ratelimiter.annotation.RateLimit;
+import com.example.ratelimiter.annotation.RateLimits;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.boot.context.properties.bind.BindableRuntimeHintsRegistrar;
+
+/**
+ * What a native image cannot discover on its own: the Lua scripts read from the class path, the {@link RateLimit}
+ * annotations that the rule registry and the aspect read back as synthesized proxies, and the property classes
+ * that {@code RuleBinder} binds again on every rule reload, outside the beans AOT processing sees.
+ * The Redis templates pass bytes through the built-in byte array serializer, which needs no reflection.
+ */
+public class RateLimiterRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        hints.resources().registerPattern("scripts/*.lua").registerPattern("scripts/algorithms/*.lua");
+
+        for (Class<?> annotation : new Class<?>[]{RateLimit.class, RateLimits.class}) {
+            hints.reflection().registerType(annotation, MemberCategory.INVOKE_PUBLIC_METHODS);
+            hints.proxies().registerJdkProxy(annotation);
+        }
+
+        BindableRuntimeHintsRegistrar.forTypes(RateLimiterConfig.class, EndpointRateLimitConfig.class)
+                .registerHints(hints, classLoader);
+    }
+}
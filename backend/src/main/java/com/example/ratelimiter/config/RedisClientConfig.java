@@ -0,0 +1,72 @@
+package com.example.ratelimiter.config;
+
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.SocketOptions;
+import io.lettuce.core.TimeoutOptions;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
+import io.lettuce.core.resource.ClientResources;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.data.redis.RedisConnectionDetails;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+
+/**
+ * Client settings of the connections the limiter decides on. They are not applied to the connection
+ * Spring Boot configures, so streams, rule reloads and the application's own Redis use keep
+ * {@code spring.data.redis.timeout} and an unbounded command queue.
+ */
+@Configuration
+public class RedisClientConfig {
+
+    @Bean
+    public LettuceClientConfiguration rateLimitClientConfiguration(RateLimiterConfig config,
+            RedisProperties redisProperties, RedisConnectionDetails connectionDetails,
+            ObjectProvider<ClientResources> clientResources) {
+        RateLimiterConfig.Resilience resilience = config.getResilience();
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder builder = LettuceClientConfiguration.builder();
+        clientResources.ifAvailable(builder::clientResources);
+        if (redisProperties.getSsl().isEnabled()) {
+            builder.useSsl();
+        }
+        if (redisProperties.getClientName() != null) {
+            builder.clientName(redisProperties.getClientName());
+        }
+        if (redisProperties.getLettuce().getShutdownTimeout() != null) {
+            builder.shutdownTimeout(redisProperties.getLettuce().getShutdownTimeout());
+        }
+
+        ClientOptions.Builder options = connectionDetails.getCluster() != null
+                ? clusterOptions(config.getSharding())
+                : ClientOptions.builder();
+        SocketOptions.Builder socketOptions = SocketOptions.builder();
+        if (redisProperties.getConnectTimeout() != null) {
+            socketOptions.connectTimeout(redisProperties.getConnectTimeout());
+        }
+        options.socketOptions(socketOptions.build());
+        // Bounds connecting, including the handshake, which a cold start can keep past a decision's deadline
+        if (redisProperties.getTimeout() != null) {
+            builder.commandTimeout(redisProperties.getTimeout());
+        }
+        if (resilience.isEnabled()) {
+            // A decision shares this as one deadline over all its calls; no single command may outlast it
+            options.timeoutOptions(TimeoutOptions.enabled(resilience.getTimeout()))
+                    .requestQueueSize(resilience.getMaxPendingCommands())
+                    // Fail fast while disconnected instead of queueing commands until the deadline
+                    .disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS);
+        }
+        return builder.clientOptions(options.build()).build();
+    }
+
+    // Lettuce follows MOVED/ASK redirects by itself; refreshing the topology on redirects, reconnects and
+    // periodically keeps it from redirecting every command after a failover or slot migration
+    private static ClusterClientOptions.Builder clusterOptions(RateLimiterConfig.Sharding sharding) {
+        return ClusterClientOptions.builder()
+                .topologyRefreshOptions(ClusterTopologyRefreshOptions.builder()
+                        .enableAllAdaptiveRefreshTriggers()
+                        .enablePeriodicRefresh(sharding.getClusterTopologyRefresh())
+                        .build());
+    }
+}
@@ -1,14 +1,26 @@
 package com.example.ratelimiter.controller;
 
 import com.example.ratelimiter.annotation.RateLimit;
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.rule.RateLimitRule;
+import com.example.ratelimiter.rule.RateLimitRuleRegistry;
+import com.example.ratelimiter.service.DecisionRequest;
+import com.example.ratelimiter.service.RateLimitDecision;
+import com.example.ratelimiter.service.RateLimiterService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api")
 @RequiredArgsConstructor
 public class RateLimiterController {
+    private final RateLimiterService rateLimiterService;
+    private final RateLimitRuleRegistry ruleRegistry;
 
     @PostMapping("/posts")
     @RateLimit(key = "X-User-Id", type = "second", limit = 5)
@@ -27,4 +39,50 @@ public class RateLimiterController {
     public ResponseEntity<String> claimReward(@RequestHeader("X-Device-Id") String deviceId) {
         return ResponseEntity.ok("Reward claimed successfully");
     }
-}
\ No newline at end of file
+
+    // Decisions for many requests at once on behalf of a gateway or sidecar, in JSON or CBOR
+    @PostMapping(path = "/decisions",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public List<RateLimitDecision> decide(@RequestBody List<DecisionItem> items) {
+        List<DecisionRequest> requests = new ArrayList<>(items.size());
+        for (DecisionItem item : items) {
+            CompiledRule rule = resolve(item);
+            requests.add(new DecisionRequest(rule, item.key(),
+                    item.cost() == null ? defaultCost(rule.rule()) : item.cost()));
+        }
+        return rateLimiterService.isAllowedBatch(requests);
+    }
+
+    private CompiledRule resolve(DecisionItem item) {
+        CompiledRule match = null;
+        for (CompiledRule rule : ruleRegistry.table().rules(item.rule())) {
+            if (item.type() == null || item.type().equals(rule.rule().type())) {
+                if (match != null) {
+                    throw new IllegalArgumentException("Rate limit rule " + item.rule()
+                            + " has several limits; pick one with type");
+                }
+                match = rule;
+            }
+        }
+        if (match == null) {
+            throw new IllegalArgumentException("Unknown rate limit rule " + item.rule()
+                    + (item.type() == null ? "" : " of type " + item.type()));
+        }
+        return match;
+    }
+
+    // Without the request at hand only a fixed cost can be applied
+    private static int defaultCost(RateLimitRule rule) {
+        if (!rule.cost().isFixed()) {
+            throw new IllegalArgumentException("Rate limit rule " + rule.id() + " costs " + rule.cost()
+                    + " per request; pass the cost of each decision");
+        }
+        return rule.cost().permits();
+    }
+
+    // rule is the id of a compiled rule: "METHOD /path" of an annotated handler or a configured limit's name;
+    // cost defaults to the rule's fixed cost
+    public record DecisionItem(String rule, String type, String key, Integer cost) {
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.ratelimiter.events;
+
+// One recorded decision; key is null for limits without a key header
+public record DecisionEvent(long timestampMillis, String rule, String type, String key, boolean allowed, long limit,
+        long remaining, long resetMillis) {
+}
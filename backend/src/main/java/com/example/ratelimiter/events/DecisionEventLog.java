@@ -0,0 +1,172 @@
+package com.example.ratelimiter.events;
+
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.metrics.RateLimitMetrics;
+import com.example.ratelimiter.rule.RateLimitRule;
+import com.example.ratelimiter.service.RateLimitDecision;
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Opt-in record of rate limit decisions for abuse analytics: every denial and a sample of allowed requests.
+ * Request threads only copy the decision into a {@link DecisionRingBuffer}; a writer thread hands batches to
+ * a Redis Stream or to segment files. Events that find the buffer full are dropped and counted, so a slow
+ * sink never holds up a request.
+ */
+@Slf4j
+@Component
+public class DecisionEventLog {
+    public static final DecisionEventLog DISABLED = new DecisionEventLog();
+
+    private static final long FAILURE_LOG_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final DecisionRingBuffer buffer;
+    private final DecisionEventSink sink;
+    private final double allowSampleRate;
+    private final int batchSize;
+    private final long flushNanos;
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+    private final Thread writer;
+    private volatile boolean running;
+    private long lastFailureLogged = System.nanoTime() - FAILURE_LOG_INTERVAL_NANOS;
+
+    private DecisionEventLog() {
+        this.buffer = null;
+        this.sink = null;
+        this.allowSampleRate = 0;
+        this.batchSize = 0;
+        this.flushNanos = 0;
+        this.written = null;
+        this.dropped = null;
+        this.failed = null;
+        this.writer = null;
+    }
+
+    @Autowired
+    public DecisionEventLog(RateLimiterConfig config, RateLimitMetrics metrics,
+            RedisTemplate<byte[], byte[]> rateLimitRedisTemplate) throws IOException {
+        this(config.getEvents(), metrics, config.getEvents().isEnabled() ? sink(config, rateLimitRedisTemplate) : null);
+    }
+
+    DecisionEventLog(RateLimiterConfig.Events settings, RateLimitMetrics metrics, DecisionEventSink sink) {
+        boolean enabled = settings.isEnabled();
+        this.buffer = enabled ? new DecisionRingBuffer(settings.getBufferSize()) : null;
+        this.sink = sink;
+        this.allowSampleRate = settings.getAllowSampleRate();
+        this.batchSize = Math.max(1, settings.getBatchSize());
+        this.flushNanos = Math.max(1, settings.getFlushInterval().toNanos());
+        this.written = enabled ? metrics.decisionEvents("written") : null;
+        this.dropped = enabled ? metrics.decisionEvents("dropped") : null;
+        this.failed = enabled ? metrics.decisionEvents("failed") : null;
+        this.writer = enabled ? new Thread(this::run, "rate-limiter-events") : null;
+        if (writer != null) {
+            writer.setDaemon(true);
+        }
+    }
+
+    private static DecisionEventSink sink(RateLimiterConfig config, RedisTemplate<byte[], byte[]> redisTemplate)
+            throws IOException {
+        RateLimiterConfig.Events settings = config.getEvents();
+        return switch (settings.getSink()) {
+            case "redis" -> new RedisStreamEventSink(redisTemplate, config.getKeyPrefix() + settings.getStreamKey(),
+                    settings.getStreamMaxLength());
+            case "file" -> new SegmentFileEventSink(Path.of(settings.getDirectory()),
+                    settings.getSegmentSize().toBytes(), settings.getMaxSegments());
+            default -> throw new IllegalStateException("rate-limiter.events.sink must be redis or file, got "
+                    + settings.getSink());
+        };
+    }
+
+    public void record(RateLimitRule rule, String key, RateLimitDecision decision) {
+        if (buffer != null && sampled(decision.allowed())) {
+            offer(rule, key, decision.allowed(), decision.limit(), decision.remaining(), decision.resetMillis());
+        }
+    }
+
+    // In-flight limits have no window, so their events carry the cap and nothing remaining or to reset
+    public void recordConcurrency(RateLimitRule rule, String key, boolean admitted) {
+        if (buffer != null && sampled(admitted)) {
+            offer(rule, key, admitted, rule.limit(), 0, 0);
+        }
+    }
+
+    private boolean sampled(boolean allowed) {
+        return !allowed || allowSampleRate >= 1
+                || allowSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < allowSampleRate;
+    }
+
+    private void offer(RateLimitRule rule, String key, boolean allowed, long limit, long remaining,
+            long resetMillis) {
+        if (!buffer.offer(System.currentTimeMillis(), rule.id(), rule.type(), key, allowed, limit, remaining,
+                resetMillis)) {
+            dropped.increment();
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        if (writer != null) {
+            running = true;
+            writer.start();
+        }
+    }
+
+    // Writes what is still buffered before the sink is closed
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writer != null) {
+            running = false;
+            LockSupport.unpark(writer);
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    private void run() {
+        List<DecisionEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            if (buffer.drain(batch, batchSize) == 0) {
+                LockSupport.parkNanos(flushNanos);
+            } else {
+                flush(batch);
+            }
+        }
+        while (buffer.drain(batch, batchSize) > 0) {
+            flush(batch);
+        }
+        try {
+            sink.close();
+        } catch (IOException e) {
+            log.warn("Could not close the decision event sink: {}", e.getMessage());
+        }
+    }
+
+    private void flush(List<DecisionEvent> batch) {
+        try {
+            sink.write(batch);
+            written.increment(batch.size());
+        } catch (IOException | RuntimeException e) {
+            failed.increment(batch.size());
+            long now = System.nanoTime();
+            if (now - lastFailureLogged >= FAILURE_LOG_INTERVAL_NANOS) {
+                lastFailureLogged = now;
+                log.warn("Dropped {} decision events the sink could not take: {}", batch.size(), e.getMessage());
+            }
+        }
+        batch.clear();
+    }
+}
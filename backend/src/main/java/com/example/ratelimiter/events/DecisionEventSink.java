@@ -0,0 +1,13 @@
+package com.example.ratelimiter.events;
+
+import java.io.IOException;
+import java.util.List;
+
+// Where the event writer thread delivers batches; only ever called from that thread
+public interface DecisionEventSink {
+
+    void write(List<DecisionEvent> events) throws IOException;
+
+    default void close() throws IOException {
+    }
+}
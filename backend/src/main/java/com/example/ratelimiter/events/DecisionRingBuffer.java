@@ -0,0 +1,92 @@
+package com.example.ratelimiter.events;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded multi-producer, single-consumer queue of preallocated slots. Request threads claim a slot with one
+ * CAS and fill it in place, so offering allocates nothing; when the consumer falls a full lap behind, offers
+ * fail instead of waiting. Each slot's sequence tells producers whether it is free and the consumer whether
+ * it is published.
+ */
+final class DecisionRingBuffer {
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // Only touched by the consumer
+
+    DecisionRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Slot[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot(i);
+        }
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    boolean offer(long timestampMillis, String rule, String type, String key, boolean allowed, long limit,
+            long remaining, long resetMillis) {
+        Slot slot;
+        long sequence;
+        while (true) {
+            sequence = tail.get();
+            slot = slots[(int) sequence & mask];
+            long lag = slot.sequence - sequence;
+            if (lag < 0) {
+                // The consumer has not freed this slot since the previous lap
+                return false;
+            }
+            if (lag == 0 && tail.compareAndSet(sequence, sequence + 1)) {
+                break;
+            }
+        }
+        slot.timestampMillis = timestampMillis;
+        slot.rule = rule;
+        slot.type = type;
+        slot.key = key;
+        slot.allowed = allowed;
+        slot.limit = limit;
+        slot.remaining = remaining;
+        slot.resetMillis = resetMillis;
+        slot.sequence = sequence + 1;
+        return true;
+    }
+
+    // Moves up to max published events into the batch and frees their slots
+    int drain(List<DecisionEvent> batch, int max) {
+        int drained = 0;
+        while (drained < max) {
+            Slot slot = slots[(int) head & mask];
+            if (slot.sequence != head + 1) {
+                break;
+            }
+            batch.add(new DecisionEvent(slot.timestampMillis, slot.rule, slot.type, slot.key, slot.allowed,
+                    slot.limit, slot.remaining, slot.resetMillis));
+            slot.key = null;
+            slot.sequence = head + slots.length;
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+
+    private static final class Slot {
+        private volatile long sequence;
+        private long timestampMillis;
+        private String rule;
+        private String type;
+        private String key;
+        private boolean allowed;
+        private long limit;
+        private long remaining;
+        private long resetMillis;
+
+        private Slot(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.ratelimiter.events;
+
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appends each batch to a Redis Stream with one pipelined round trip, trimming the stream to about
+ * {@code maxLength} entries as it goes. Entries carry the decision's own timestamp beside the stream id.
+ */
+final class RedisStreamEventSink implements DecisionEventSink {
+    private static final byte[] TS = bytes("ts");
+    private static final byte[] RULE = bytes("rule");
+    private static final byte[] TYPE = bytes("type");
+    private static final byte[] KEY = bytes("key");
+    private static final byte[] OUTCOME = bytes("outcome");
+    private static final byte[] ALLOWED = bytes("allowed");
+    private static final byte[] DENIED = bytes("denied");
+    private static final byte[] LIMIT = bytes("limit");
+    private static final byte[] REMAINING = bytes("remaining");
+    private static final byte[] RESET = bytes("reset");
+
+    private final RedisTemplate<byte[], byte[]> redisTemplate;
+    private final byte[] streamKey;
+    private final RedisStreamCommands.XAddOptions options;
+
+    RedisStreamEventSink(RedisTemplate<byte[], byte[]> redisTemplate, String streamKey, long maxLength) {
+        this.redisTemplate = redisTemplate;
+        this.streamKey = bytes(streamKey);
+        this.options = RedisStreamCommands.XAddOptions.maxlen(maxLength).approximateTrimming(true);
+    }
+
+    @Override
+    public void write(List<DecisionEvent> events) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (DecisionEvent event : events) {
+                connection.streamCommands().xAdd(record(event), options);
+            }
+            return null;
+        });
+    }
+
+    private ByteRecord record(DecisionEvent event) {
+        Map<byte[], byte[]> fields = new HashMap<>(16);
+        fields.put(TS, bytes(Long.toString(event.timestampMillis())));
+        fields.put(RULE, bytes(event.rule()));
+        fields.put(TYPE, bytes(event.type()));
+        if (event.key() != null) {
+            fields.put(KEY, bytes(event.key()));
+        }
+        fields.put(OUTCOME, event.allowed() ? ALLOWED : DENIED);
+        fields.put(LIMIT, bytes(Long.toString(event.limit())));
+        fields.put(REMAINING, bytes(Long.toString(event.remaining())));
+        fields.put(RESET, bytes(Long.toString(event.resetMillis())));
+        return StreamRecords.rawBytes(fields).withStreamKey(streamKey);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.ratelimiter.events;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Appends events as JSON lines to memory-mapped segment files {@code decisions-<n>.log}, rolling to a new
+ * segment once one is full and deleting the oldest beyond {@code maxSegments}. Writes only copy into the
+ * page cache, so events survive a crash of the process but not of the host. The active segment is
+ * preallocated and zero-filled past its last event; it is truncated to its contents when rolled or closed.
+ */
+final class SegmentFileEventSink implements DecisionEventSink {
+    private static final String PREFIX = "decisions-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+    private final JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+    private long segment;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    SegmentFileEventSink(Path directory, long segmentSize, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.segmentSize = (int) Math.min(Integer.MAX_VALUE, Math.max(4096, segmentSize));
+        this.maxSegments = Math.max(1, maxSegments);
+        Files.createDirectories(directory);
+        // Segments of earlier runs are kept as they are; this run starts after the newest of them
+        this.segment = segments().stream().mapToLong(SegmentFileEventSink::index).max().orElse(0);
+    }
+
+    @Override
+    public void write(List<DecisionEvent> events) throws IOException {
+        for (DecisionEvent event : events) {
+            byte[] encoded = encode(event);
+            if (encoded.length > segmentSize) {
+                continue;
+            }
+            if (buffer == null || buffer.remaining() < encoded.length) {
+                roll();
+            }
+            buffer.put(encoded);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeSegment();
+    }
+
+    private void roll() throws IOException {
+        closeSegment();
+        segment++;
+        Path file = directory.resolve(String.format("%s%016d%s", PREFIX, segment, SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+
+        List<Path> segments = segments();
+        segments.sort((a, b) -> Long.compare(index(a), index(b)));
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    private void closeSegment() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        buffer.force();
+        channel.truncate(buffer.position());
+        channel.close();
+        channel = null;
+        buffer = null;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return new ArrayList<>(files.filter(SegmentFileEventSink::isSegment).toList());
+        }
+    }
+
+    private static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX) && index(file) >= 0;
+    }
+
+    private static long index(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private byte[] encode(DecisionEvent event) {
+        line.reset();
+        ascii("{\"ts\":").ascii(Long.toString(event.timestampMillis()))
+                .ascii(",\"rule\":").string(event.rule())
+                .ascii(",\"type\":").string(event.type());
+        if (event.key() != null) {
+            ascii(",\"key\":").string(event.key());
+        }
+        ascii(",\"outcome\":").ascii(event.allowed() ? "\"allowed\"" : "\"denied\"")
+                .ascii(",\"limit\":").ascii(Long.toString(event.limit()))
+                .ascii(",\"remaining\":").ascii(Long.toString(event.remaining()))
+                .ascii(",\"reset\":").ascii(Long.toString(event.resetMillis()))
+                .ascii("}\n");
+        return line.toByteArray();
+    }
+
+    private SegmentFileEventSink ascii(String value) {
+        line.writeBytes(value.getBytes(StandardCharsets.US_ASCII));
+        return this;
+    }
+
+    private SegmentFileEventSink string(String value) {
+        line.write('"');
+        line.writeBytes(encoder.quoteAsUTF8(value));
+        line.write('"');
+        return this;
+    }
+}
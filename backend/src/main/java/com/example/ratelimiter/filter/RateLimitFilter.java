@@ -0,0 +1,203 @@
+package com.example.ratelimiter.filter;
+
+import com.example.ratelimiter.concurrency.ConcurrencyLimiterRegistry;
+import com.example.ratelimiter.headers.RateLimitHeaders;
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.rule.RateLimitCost;
+import com.example.ratelimiter.rule.RateLimitRule;
+import com.example.ratelimiter.rule.RateLimitRuleRegistry;
+import com.example.ratelimiter.rule.RateLimitRuleSnapshot;
+import com.example.ratelimiter.service.RateLimitDecision;
+import com.example.ratelimiter.service.RateLimiterService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Enforces the compiled rate limit rules before requests reach the DispatcherServlet, then holds a slot of
+ * the endpoint's concurrency and concurrent limits while the rest of the chain runs. Rejections are written directly to
+ * the response; nothing is thrown on the hot path.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "rate-limiter", name = "enforcement", havingValue = "filter", matchIfMissing = true)
+public class RateLimitFilter extends OncePerRequestFilter {
+    private final RateLimitRuleRegistry ruleRegistry;
+    private final RateLimiterService rateLimiterService;
+    private final ConcurrencyLimiterRegistry concurrencyLimiters;
+    private final ObjectMapper objectMapper;
+    private final RateLimitHeaders headers;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        RateLimitRuleSnapshot snapshot = ruleRegistry.snapshot();
+        CompiledRule[] rules = snapshot.table().match(request.getMethod(), path);
+        CompiledRule[] limits = snapshot.concurrencyTable().match(request.getMethod(), path);
+        if (rules.length == 0 && limits.length == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // Every header is read before anything is taken, so a bad request holds no permits
+        String[] keys = new String[rules.length];
+        int[] permits = new int[rules.length];
+        String[] limitKeys = new String[limits.length];
+        if (!resolve(request, response, rules, keys, permits, path)
+                || !resolveLimitKeys(request, response, limits, limitKeys, path)) {
+            return;
+        }
+        if (limits.length == 0) {
+            if (tryAcquire(response, rules, keys, permits)) {
+                filterChain.doFilter(request, response);
+            }
+            return;
+        }
+
+        // Requests over the cap are shed here instead of queueing for a worker thread. In-flight limits go
+        // first: their slots can be handed back on a rate limit denial, window permits cannot
+        ConcurrencyLimiterRegistry.InFlight inFlight = concurrencyLimiters.tryAcquire(limits, limitKeys);
+        if (!inFlight.admitted()) {
+            writeRejected(response, inFlight.rejectedBy());
+            return;
+        }
+        boolean completed = false;
+        try {
+            if (rules.length > 0 && !tryAcquire(response, rules, keys, permits)) {
+                return;
+            }
+            filterChain.doFilter(request, response);
+            completed = true;
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new InFlightListener(inFlight));
+            } else if (completed) {
+                inFlight.complete();
+            } else {
+                inFlight.fail();
+            }
+        }
+    }
+
+    // Fills in the key and cost of each rule; false when the request was rejected and the response written
+    private boolean resolve(HttpServletRequest request, HttpServletResponse response, CompiledRule[] rules,
+            String[] keys, int[] permits, String path) throws IOException {
+        for (int i = 0; i < rules.length; i++) {
+            RateLimitRule rule = rules[i].rule();
+            keys[i] = request.getHeader(rule.header());
+            if (keys[i] == null || keys[i].isEmpty()) {
+                writeBadRequest(response, "Required header " + rule.header() + " is missing", path);
+                return false;
+            }
+            RateLimitCost cost = rule.cost();
+            if (cost.isFixed()) {
+                permits[i] = cost.permits();
+                continue;
+            }
+            try {
+                permits[i] = cost.resolve(new RateLimitCost.Request(request::getHeader, request::getParameter));
+            } catch (IllegalArgumentException e) {
+                writeBadRequest(response, e.getMessage(), path);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // In-flight limits without a key header cap the endpoint as a whole and keep a null key
+    private boolean resolveLimitKeys(HttpServletRequest request, HttpServletResponse response, CompiledRule[] limits,
+            String[] limitKeys, String path) throws IOException {
+        for (int i = 0; i < limits.length; i++) {
+            if (limits[i].rule().header() != null) {
+                limitKeys[i] = request.getHeader(limits[i].rule().header());
+                if (limitKeys[i] == null || limitKeys[i].isEmpty()) {
+                    writeBadRequest(response, "Required header " + limits[i].rule().header() + " is missing", path);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // False when the request was rejected and the response written
+    private boolean tryAcquire(HttpServletResponse response, CompiledRule[] rules, String[] keys, int[] permits)
+            throws IOException {
+        // All limits of the endpoint are evaluated together in one backend call
+        RateLimitDecision[] decisions = rateLimiterService.tryAcquireAll(rules, keys, permits);
+        headers.write(rules, decisions, response::setHeader);
+        for (int i = 0; i < decisions.length; i++) {
+            if (!decisions[i].allowed()) {
+                writeRejected(response, rules[i].rule());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeRejected(HttpServletResponse response, RateLimitRule rule) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter writer = response.getWriter();
+        writer.print("Rate limit exceeded for ");
+        writer.print(rule.type());
+        writer.flush();
+    }
+
+    private void writeBadRequest(HttpServletResponse response, String message, String path) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", OffsetDateTime.now().toString());
+        body.put("status", HttpStatus.BAD_REQUEST.value());
+        body.put("error", HttpStatus.BAD_REQUEST.getReasonPhrase());
+        body.put("message", message);
+        body.put("path", path);
+
+        response.setStatus(HttpStatus.BAD_REQUEST.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+    // Releases the slot of an async request once the container finishes it
+    private record InFlightListener(ConcurrencyLimiterRegistry.InFlight inFlight) implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            inFlight.complete();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            inFlight.timeout();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            inFlight.fail();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.ratelimiter.filter;
+
+import com.example.ratelimiter.concurrency.ConcurrencyLimiterRegistry;
+import com.example.ratelimiter.headers.RateLimitHeaders;
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.rule.RateLimitCost;
+import com.example.ratelimiter.rule.RateLimitRule;
+import com.example.ratelimiter.rule.RateLimitRuleRegistry;
+import com.example.ratelimiter.rule.RateLimitRuleSnapshot;
+import com.example.ratelimiter.service.RateLimitDecision;
+import com.example.ratelimiter.service.ReactiveRateLimiterService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * WebFlux counterpart of {@link RateLimitFilter}: the same rules and responses, with the backend call
+ * composed into the exchange instead of blocking an event loop thread.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnProperty(prefix = "rate-limiter", name = "enforcement", havingValue = "filter", matchIfMissing = true)
+public class ReactiveRateLimitFilter implements WebFilter {
+    private final RateLimitRuleRegistry ruleRegistry;
+    private final ReactiveRateLimiterService rateLimiterService;
+    private final ConcurrencyLimiterRegistry concurrencyLimiters;
+    private final ObjectMapper objectMapper;
+    private final RateLimitHeaders headers;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        PathContainer pathWithinApplication = request.getPath().pathWithinApplication();
+        String path = pathWithinApplication.value();
+        RateLimitRuleSnapshot snapshot = ruleRegistry.snapshot();
+        CompiledRule[] rules = snapshot.table().match(request.getMethod().name(), pathWithinApplication);
+        CompiledRule[] limits = snapshot.concurrencyTable().match(request.getMethod().name(), pathWithinApplication);
+
+        if (rules.length == 0 && limits.length == 0) {
+            return chain.filter(exchange);
+        }
+
+        // Every header is read before anything is taken, so a bad request holds no permits
+        String[] keys = new String[rules.length];
+        int[] permits = new int[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            RateLimitRule rule = rules[i].rule();
+            keys[i] = request.getHeaders().getFirst(rule.header());
+            if (keys[i] == null || keys[i].isEmpty()) {
+                return writeBadRequest(exchange.getResponse(), "Required header " + rule.header() + " is missing",
+                        path);
+            }
+            RateLimitCost cost = rule.cost();
+            if (cost.isFixed()) {
+                permits[i] = cost.permits();
+                continue;
+            }
+            try {
+                permits[i] = cost.resolve(new RateLimitCost.Request(request.getHeaders()::getFirst,
+                        request.getQueryParams()::getFirst));
+            } catch (IllegalArgumentException e) {
+                return writeBadRequest(exchange.getResponse(), e.getMessage(), path);
+            }
+        }
+        String[] limitKeys = new String[limits.length];
+        boolean blocking = false;
+        for (int i = 0; i < limits.length; i++) {
+            if (limits[i].rule().header() != null) {
+                limitKeys[i] = request.getHeaders().getFirst(limits[i].rule().header());
+                if (limitKeys[i] == null || limitKeys[i].isEmpty()) {
+                    return writeBadRequest(exchange.getResponse(), "Required header " + limits[i].rule().header()
+                            + " is missing", path);
+                }
+            }
+            blocking |= limits[i].rule().isConcurrent();
+        }
+        if (limits.length == 0) {
+            return proceed(exchange, chain, rules, keys, permits, null);
+        }
+
+        // Semaphore permits come from a blocking Redis call and may wait for a release, so they are taken off
+        // the event loop
+        Mono<ConcurrencyLimiterRegistry.InFlight> acquire = Mono.fromCallable(
+                () -> concurrencyLimiters.tryAcquire(limits, limitKeys));
+        if (blocking) {
+            acquire = acquire.subscribeOn(Schedulers.boundedElastic());
+        }
+        // In-flight limits go first: their slots can be handed back on a rate limit denial, window permits cannot.
+        // A slot is held until the rest of the chain terminates or is cancelled
+        return acquire.flatMap(inFlight -> {
+            if (!inFlight.admitted()) {
+                return writeRejected(exchange.getResponse(), inFlight.rejectedBy());
+            }
+            return proceed(exchange, chain, rules, keys, permits, inFlight).doFinally(signal -> {
+                if (signal == SignalType.ON_COMPLETE) {
+                    inFlight.complete();
+                } else {
+                    inFlight.fail();
+                }
+            });
+        });
+    }
+
+    // Takes the window permits of the rate limit rules, then runs the rest of the chain; a denial releases the
+    // in-flight slots, if any, without counting the request towards the adaptive limits
+    private Mono<Void> proceed(ServerWebExchange exchange, WebFilterChain chain, CompiledRule[] rules, String[] keys,
+            int[] permits, ConcurrencyLimiterRegistry.InFlight inFlight) {
+        if (rules.length == 0) {
+            return chain.filter(exchange);
+        }
+        return rateLimiterService.tryAcquireAll(rules, keys, permits).flatMap(decisions -> {
+            headers.write(rules, decisions, exchange.getResponse().getHeaders()::set);
+            for (int i = 0; i < decisions.length; i++) {
+                if (!decisions[i].allowed()) {
+                    if (inFlight != null) {
+                        inFlight.fail();
+                    }
+                    return writeRejected(exchange.getResponse(), rules[i].rule());
+                }
+            }
+            return chain.filter(exchange);
+        });
+    }
+
+    private Mono<Void> writeRejected(ServerHttpResponse response, RateLimitRule rule) {
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().setContentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8));
+        return write(response, ("Rate limit exceeded for " + rule.type()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mono<Void> writeBadRequest(ServerHttpResponse response, String message, String path) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", OffsetDateTime.now().toString());
+        body.put("status", HttpStatus.BAD_REQUEST.value());
+        body.put("error", HttpStatus.BAD_REQUEST.getReasonPhrase());
+        body.put("message", message);
+        body.put("path", path);
+
+        response.setStatusCode(HttpStatus.BAD_REQUEST);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        try {
+            return write(response, objectMapper.writeValueAsBytes(body));
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, byte[] bytes) {
+        DataBuffer buffer = response.bufferFactory().wrap(bytes);
+        return response.writeWith(Mono.just(buffer));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.ratelimiter.headers;
+
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.rule.RateLimitRule;
+import com.example.ratelimiter.service.RateLimitDecision;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+
+/**
+ * Writes the IETF RateLimit header fields (draft-ietf-httpapi-ratelimit-headers) from the decisions that admitted
+ * or rejected a request, so clients can pace themselves instead of retrying at once. The fields describe the quota
+ * closest to running out: the rule that rejected the request, or else the one with the fewest permits left.
+ * Rejections also get a {@code Retry-After}, optionally stretched at random so clients that were turned away
+ * together do not all come back in the same second.
+ */
+@Component
+public class RateLimitHeaders {
+    public static final String LIMIT = "RateLimit-Limit";
+    public static final String REMAINING = "RateLimit-Remaining";
+    public static final String RESET = "RateLimit-Reset";
+    public static final String POLICY = "RateLimit-Policy";
+    public static final String RETRY_AFTER = "Retry-After";
+
+    private final RateLimiterConfig.Headers settings;
+
+    public RateLimitHeaders(RateLimiterConfig config) {
+        this.settings = config.getHeaders();
+    }
+
+    // header receives each field name and value, e.g. HttpServletResponse::setHeader
+    public void write(CompiledRule[] rules, RateLimitDecision[] decisions, BiConsumer<String, String> header) {
+        if (!settings.isEnabled() || decisions.length == 0) {
+            return;
+        }
+        RateLimitDecision quota = decisions[closest(decisions)];
+        header.accept(LIMIT, Long.toString(quota.limit()));
+        header.accept(REMAINING, Long.toString(Math.max(0, quota.remaining())));
+        header.accept(RESET, Long.toString(seconds(quota.resetMillis())));
+        header.accept(POLICY, policy(rules));
+        if (!quota.allowed() && settings.isRetryAfter()) {
+            header.accept(RETRY_AFTER, Long.toString(retryAfterSeconds(quota.resetMillis())));
+        }
+    }
+
+    long retryAfterSeconds(long resetMillis) {
+        double jitter = settings.getRetryAfterJitter();
+        long wait = jitter > 0
+                ? resetMillis + (long) (resetMillis * jitter * ThreadLocalRandom.current().nextDouble())
+                : resetMillis;
+        return Math.max(1, seconds(wait));
+    }
+
+    // The first denial, or the decision with the fewest permits left
+    private static int closest(RateLimitDecision[] decisions) {
+        int closest = 0;
+        for (int i = 0; i < decisions.length; i++) {
+            if (!decisions[i].allowed()) {
+                return i;
+            }
+            if (decisions[i].remaining() < decisions[closest].remaining()) {
+                closest = i;
+            }
+        }
+        return closest;
+    }
+
+    private static String policy(CompiledRule[] rules) {
+        if (rules.length == 1) {
+            return rules[0].policy();
+        }
+        StringBuilder policy = new StringBuilder();
+        for (CompiledRule rule : rules) {
+            if (!policy.isEmpty()) {
+                policy.append(", ");
+            }
+            policy.append(rule.policy());
+        }
+        return policy.toString();
+    }
+
+    // The rule's entry of RateLimit-Policy, kept on the compiled rule
+    public static String policy(RateLimitRule rule) {
+        return rule.limit() + ";w=" + rule.window().toSeconds();
+    }
+
+    private static long seconds(long millis) {
+        return (millis + 999) / 1000;
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.ratelimiter.lease;
+
+import com.example.ratelimiter.algorithm.FixedWindowAlgorithm;
+import com.example.ratelimiter.algorithm.LuaScripts;
+import com.example.ratelimiter.codec.EncodedRule;
+import com.example.ratelimiter.codec.RedisKeyCodec;
+import com.example.ratelimiter.codec.StateKey;
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.service.RateLimitDecision;
+import com.example.ratelimiter.service.RedisCalls;
+import com.example.ratelimiter.shard.RedisShardRouter;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serves fixed-window decisions from blocks of permits leased from the shared Redis counter.
+ * Leased permits are already counted in Redis, so the cluster never admits more than the limit;
+ * the accuracy cost is under-admission of at most one lease per node while permits sit unused.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class QuotaLeaseManager {
+    @SuppressWarnings("rawtypes")
+    static final RedisScript<List> LEASE_SCRIPT = new DefaultRedisScript<>(
+            LuaScripts.load("scripts/lease.lua"), List.class);
+    static final RedisScript<Long> RETURN_SCRIPT = new DefaultRedisScript<>(
+            LuaScripts.load("scripts/lease_return.lua"), Long.class);
+
+    private final RedisShardRouter shards;
+    private final RedisKeyCodec codec;
+    private final RateLimiterConfig config;
+    private final Map<StateKey, LeaseSlot> slots = new ConcurrentHashMap<>();
+
+    public boolean isLeasable(String algorithm, long limit) {
+        RateLimiterConfig.Lease lease = config.getLease();
+        return lease.isEnabled() && FixedWindowAlgorithm.NAME.equals(algorithm) && limit >= lease.getMinLimit();
+    }
+
+    public RateLimitDecision tryAcquire(StateKey state, EncodedRule rule, long limit, RedisCalls calls) {
+        LeaseSlot slot = slots.get(state);
+        if (slot == null) {
+            if (slots.size() >= config.getLease().getMaxKeys()) {
+                prune(System.nanoTime());
+            }
+            slot = slots.computeIfAbsent(state, k -> new LeaseSlot(shards.shardFor(k.subject()).reactiveTemplate(),
+                    codec.redisKey(k), rule.fieldBytes()));
+        }
+
+        // Fast path: lock-free decrement of the current lease
+        Lease lease = slot.lease;
+        long now = System.nanoTime();
+        if (lease != null && lease.tryTake(now)) {
+            return lease.allowed(limit, now);
+        }
+
+        slot.lock.lock();
+        try {
+            lease = slot.lease;
+            now = System.nanoTime();
+            if (lease != null && lease.tryTake(now)) {
+                return lease.allowed(limit, now);
+            }
+            if (lease != null && lease.granted == 0 && now < lease.validUntil) {
+                // Redis had nothing left for this window; keep denying locally until the lease expires
+                return lease.denied(limit, now);
+            }
+
+            lease = renew(state, slot, rule, limit, lease, now, calls);
+            slot.lease = lease;
+            return lease.tryTake(now) ? lease.allowed(limit, now) : lease.denied(limit, now);
+        } finally {
+            slot.lock.unlock();
+        }
+    }
+
+    public int activeLeases() {
+        long now = System.nanoTime();
+        int active = 0;
+        for (LeaseSlot slot : slots.values()) {
+            Lease lease = slot.lease;
+            if (lease != null && now < lease.validUntil) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    public long heldPermits() {
+        long now = System.nanoTime();
+        long held = 0;
+        for (LeaseSlot slot : slots.values()) {
+            Lease lease = slot.lease;
+            if (lease != null && now < lease.validUntil) {
+                held += Math.max(0, lease.remaining.get());
+            }
+        }
+        return held;
+    }
+
+    @PreDestroy
+    public void returnAll() {
+        long now = System.nanoTime();
+        slots.forEach((state, slot) -> {
+            Lease lease = slot.lease;
+            if (lease == null || now >= lease.resetAt) {
+                return;
+            }
+            long unused = lease.remaining.getAndSet(0);
+            if (unused > 0) {
+                try {
+                    LuaScripts.execute(slot.template, RETURN_SCRIPT, List.of(slot.key), List.of(slot.field,
+                            RedisKeyCodec.ascii(unused), RedisKeyCodec.ascii(lease.windowEnd))).block();
+                } catch (DataAccessException e) {
+                    log.warn("Could not return {} leased permits for {}: {}", unused, state, e.getMessage());
+                }
+            }
+        });
+        slots.clear();
+    }
+
+    private Lease renew(StateKey state, LeaseSlot slot, EncodedRule rule, long limit, Lease previous, long now,
+            RedisCalls calls) {
+        RateLimiterConfig.Lease settings = config.getLease();
+        long unused = previous == null || now >= previous.resetAt ? 0 : previous.remaining.getAndSet(0);
+        long previousEnd = previous == null ? 0 : previous.windowEnd;
+
+        List<Long> result = calls.await(LuaScripts.execute(slot.template, LEASE_SCRIPT, List.of(slot.key),
+                List.of(slot.field, rule.limitBytes(), rule.windowBytes(),
+                        Double.toString(settings.getShare()).getBytes(StandardCharsets.US_ASCII),
+                        RedisKeyCodec.ascii(settings.getMaxPermits()), RedisKeyCodec.ascii(unused),
+                        RedisKeyCodec.ascii(previousEnd))));
+        if (result == null || result.size() < 4) {
+            throw new IllegalStateException("Unexpected lease script result for " + state);
+        }
+
+        long resetAt = now + TimeUnit.MILLISECONDS.toNanos(result.get(1));
+        long validUntil = Math.min(resetAt, now + settings.getMaxDuration().toNanos());
+        return new Lease(result.get(0), result.get(3), result.get(2), resetAt, validUntil);
+    }
+
+    private void prune(long now) {
+        slots.values().removeIf(slot -> {
+            Lease lease = slot.lease;
+            return lease == null || now >= lease.validUntil;
+        });
+    }
+
+    private static final class LeaseSlot {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ReactiveRedisTemplate<byte[], byte[]> template; // Of the shard holding the key
+        private final byte[] key;
+        private final byte[] field;
+        private volatile Lease lease;
+
+        private LeaseSlot(ReactiveRedisTemplate<byte[], byte[]> template, byte[] key, byte[] field) {
+            this.template = template;
+            this.key = key;
+            this.field = field;
+        }
+    }
+
+    private static final class Lease {
+        private final long granted;
+        private final AtomicLong remaining;
+        private final long unleased; // Left in Redis when the lease was granted; other nodes may take it since
+        private final long windowEnd; // Redis clock, used to hand permits back into the same window
+        private final long resetAt; // System.nanoTime() based
+        private final long validUntil; // System.nanoTime() based
+
+        private Lease(long granted, long unleased, long windowEnd, long resetAt, long validUntil) {
+            this.granted = granted;
+            this.remaining = new AtomicLong(granted);
+            this.unleased = unleased;
+            this.windowEnd = windowEnd;
+            this.resetAt = resetAt;
+            this.validUntil = validUntil;
+        }
+
+        private boolean tryTake(long now) {
+            if (now >= validUntil) {
+                return false;
+            }
+            long current;
+            do {
+                current = remaining.get();
+                if (current <= 0) {
+                    return false;
+                }
+            } while (!remaining.compareAndSet(current, current - 1));
+            return true;
+        }
+
+        // Remaining across the cluster as of the last renewal, less what this node has taken since
+        private RateLimitDecision allowed(long limit, long now) {
+            return new RateLimitDecision(true, limit, unleased + Math.max(0, remaining.get()),
+                    millisUntil(resetAt, now));
+        }
+
+        private RateLimitDecision denied(long limit, long now) {
+            return new RateLimitDecision(false, limit, 0, millisUntil(resetAt, now));
+        }
+
+        private static long millisUntil(long deadline, long now) {
+            return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - now));
+        }
+    }
+}
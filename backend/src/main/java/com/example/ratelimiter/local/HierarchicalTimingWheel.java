@@ -0,0 +1,112 @@
+package com.example.ratelimiter.local;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical timing wheel of {@code long} payloads keyed by deadline tick. Each level has 64 buckets,
+ * so four levels cover 2^24 ticks (about 19 days at 100 ms per tick); later deadlines are parked in the
+ * top level and cascaded again. Not thread-safe: every wheel is owned by one shard and used under its lock.
+ */
+class HierarchicalTimingWheel {
+    private static final int LEVELS = 4;
+    private static final int BITS = 6;
+    private static final int BUCKETS = 1 << BITS;
+    private static final int MASK = BUCKETS - 1;
+
+    interface ExpiryHandler {
+        void expired(long payload);
+    }
+
+    private final Bucket[][] levels = new Bucket[LEVELS][BUCKETS];
+    private Bucket spare = new Bucket();
+    private long currentTick;
+
+    HierarchicalTimingWheel(long startTick) {
+        this.currentTick = startTick;
+        for (Bucket[] level : levels) {
+            for (int i = 0; i < BUCKETS; i++) {
+                level[i] = new Bucket();
+            }
+        }
+    }
+
+    long currentTick() {
+        return currentTick;
+    }
+
+    void schedule(long deadlineTick, long payload) {
+        place(Math.max(deadlineTick, currentTick + 1), payload);
+    }
+
+    void advance(long toTick, ExpiryHandler handler) {
+        while (currentTick < toTick) {
+            currentTick++;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (BITS * level)) - 1)) == 0) {
+                    cascade(level, (int) (currentTick >>> (BITS * level)) & MASK);
+                }
+            }
+
+            int index = (int) currentTick & MASK;
+            Bucket due = detach(0, index);
+            for (int i = 0; i < due.size; i++) {
+                if (due.deadlines[i] <= currentTick) {
+                    handler.expired(due.payloads[i]);
+                } else {
+                    place(due.deadlines[i], due.payloads[i]);
+                }
+            }
+            release(due);
+        }
+    }
+
+    private void cascade(int level, int index) {
+        Bucket bucket = detach(level, index);
+        for (int i = 0; i < bucket.size; i++) {
+            place(Math.max(bucket.deadlines[i], currentTick), bucket.payloads[i]);
+        }
+        release(bucket);
+    }
+
+    private void place(long deadlineTick, long payload) {
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = BITS * level;
+            if ((deadlineTick >>> shift) - (currentTick >>> shift) < BUCKETS) {
+                levels[level][(int) (deadlineTick >>> shift) & MASK].add(deadlineTick, payload);
+                return;
+            }
+        }
+        // Beyond the wheel's range: park in the furthest top-level bucket and re-place on cascade
+        int top = LEVELS - 1;
+        int index = (int) ((currentTick >>> (BITS * top)) - 1) & MASK;
+        levels[top][index].add(deadlineTick, payload);
+    }
+
+    private Bucket detach(int level, int index) {
+        Bucket bucket = levels[level][index];
+        levels[level][index] = spare;
+        spare = null;
+        return bucket;
+    }
+
+    private void release(Bucket bucket) {
+        bucket.size = 0;
+        spare = bucket;
+    }
+
+    private static final class Bucket {
+        private long[] deadlines = new long[4];
+        private long[] payloads = new long[4];
+        private int size;
+
+        private void add(long deadline, long payload) {
+            if (size == deadlines.length) {
+                deadlines = Arrays.copyOf(deadlines, size * 2);
+                payloads = Arrays.copyOf(payloads, size * 2);
+            }
+            deadlines[size] = deadline;
+            payloads[size] = payload;
+            size++;
+        }
+    }
+}
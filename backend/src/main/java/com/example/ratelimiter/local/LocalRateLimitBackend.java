@@ -0,0 +1,83 @@
+package com.example.ratelimiter.local;
+
+import com.example.ratelimiter.algorithm.FixedWindowAlgorithm;
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.rule.RateLimitRule;
+import com.example.ratelimiter.service.RateLimitBackend;
+import com.example.ratelimiter.service.RateLimitDecision;
+import com.example.ratelimiter.service.RedisCalls;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(prefix = "rate-limiter", name = "backend", havingValue = "local")
+public class LocalRateLimitBackend implements RateLimitBackend {
+    private final LocalRateLimitEngine engine;
+
+    public LocalRateLimitBackend(RateLimiterConfig config) {
+        RateLimiterConfig.Local local = config.getLocal();
+        this.engine = new LocalRateLimitEngine(local.getMaxKeys(), local.getShards(),
+                local.getTick().toMillis(), System::currentTimeMillis);
+        this.engine.start();
+    }
+
+    @Override
+    public RateLimitDecision tryAcquire(CompiledRule rule, String key, int permits, RedisCalls calls) {
+        return tryAcquire(rule.rule(), key, permits);
+    }
+
+    private RateLimitDecision tryAcquire(RateLimitRule rule, String key, int permits) {
+        if (!supports(rule.algorithm())) {
+            throw new IllegalArgumentException("Rate limit algorithm not supported by the local backend: "
+                    + rule.algorithm());
+        }
+
+        long limit = rule.limit();
+        long windowMillis = rule.window().toMillis();
+        long remaining = engine.tryAcquire(LocalRateLimitEngine.hash(key, rule.type()), limit, windowMillis, permits);
+        if (remaining == LocalRateLimitEngine.UNTRACKED) {
+            return new RateLimitDecision(true, limit, limit, windowMillis);
+        }
+        return new RateLimitDecision(remaining != LocalRateLimitEngine.DENIED, limit, Math.max(remaining, 0),
+                engine.resetMillis(windowMillis));
+    }
+
+    // Permits taken for the other rules are handed back when one rule denies
+    @Override
+    public RateLimitDecision[] tryAcquireAll(CompiledRule[] rules, String[] keys, int[] permits,
+            RedisCalls calls) {
+        RateLimitDecision[] decisions = new RateLimitDecision[rules.length];
+        boolean allAllowed = true;
+        for (int i = 0; i < rules.length; i++) {
+            decisions[i] = tryAcquire(rules[i].rule(), keys[i], permits[i]);
+            allAllowed &= decisions[i].allowed();
+        }
+
+        if (!allAllowed) {
+            for (int i = 0; i < rules.length; i++) {
+                if (decisions[i].allowed()) {
+                    RateLimitRule rule = rules[i].rule();
+                    engine.release(LocalRateLimitEngine.hash(keys[i], rule.type()), rule.window().toMillis(),
+                            permits[i]);
+                }
+            }
+        }
+        return decisions;
+    }
+
+    @Override
+    public boolean supports(String algorithm) {
+        return FixedWindowAlgorithm.NAME.equals(algorithm);
+    }
+
+    public int trackedKeys() {
+        return engine.size();
+    }
+
+    @PreDestroy
+    public void close() {
+        engine.close();
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.ratelimiter.local;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process fixed-window limiter. Keys are reduced to a 64-bit hash and stored in striped open-addressing
+ * tables of primitive arrays; each slot's state is one packed {@code long} (window index in the high half,
+ * count in the low half) updated with CAS. Windows are aligned to the epoch. Keys are reclaimed by a
+ * per-shard hierarchical timing wheel once their window has ended, so expiry never scans the table, and removed
+ * by backward-shift deletion, so churn leaves no tombstones behind and misses still stop at the first empty slot.
+ */
+public class LocalRateLimitEngine implements AutoCloseable {
+    public static final long UNTRACKED = Long.MAX_VALUE;
+    public static final long DENIED = -1;
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final long EMPTY = 0;
+    private static final long MOVING = 1; // A slot whose key is being replaced by one shifted back into it
+    private static final long EVICTED = -1;
+
+    private final Shard[] shards;
+    private final int shardMask;
+    private final long tickMillis;
+    private final LongSupplier clock;
+    private ScheduledExecutorService ticker;
+
+    public LocalRateLimitEngine(int maxKeys, int shardCount, long tickMillis, LongSupplier clock) {
+        int shards = Integer.highestOneBit(Math.max(1, shardCount));
+        int keysPerShard = Math.max(1, maxKeys / shards);
+        // Keep the load factor at or below 0.75 so probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(2, keysPerShard * 4 / 3) - 1) << 1;
+        long startTick = clock.getAsLong() / tickMillis;
+
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard(capacity, keysPerShard, startTick);
+        }
+        this.shardMask = shards - 1;
+        this.tickMillis = tickMillis;
+        this.clock = clock;
+    }
+
+    public synchronized void start() {
+        if (ticker == null) {
+            ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "rate-limiter-expiry");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ticker.scheduleAtFixedRate(() -> expire(clock.getAsLong()), tickMillis, tickMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    public static long hash(CharSequence key, CharSequence type) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        h = (h ^ ':') * 0x100000001b3L;
+        for (int i = 0; i < type.length(); i++) {
+            h = (h ^ type.charAt(i)) * 0x100000001b3L;
+        }
+        // murmur3 finalizer: spreads the FNV state over all 64 bits for shard and slot selection
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == EMPTY || h == MOVING ? h + 2 : h;
+    }
+
+    public long tryAcquire(long hash, long limit, long windowMillis) {
+        return tryAcquire(hash, limit, windowMillis, 1);
+    }
+
+    /**
+     * Takes {@code permits} permits for the key in its current window, all or none.
+     *
+     * @return the permits left in the window, {@link #DENIED} when they do not fit under the limit, or
+     * {@link #UNTRACKED} when the key table is full and the request is let through untracked
+     */
+    public long tryAcquire(long hash, long limit, long windowMillis, long permits) {
+        if (windowMillis > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Window too long for the local engine: " + windowMillis + "ms");
+        }
+        // Slots are chosen by the low bits of the hash, shards by the high half
+        Shard shard = shards[(int) (hash >>> 32) & shardMask];
+        long now = clock.getAsLong();
+        long window = now / windowMillis + 1;
+
+        int slot = shard.find(hash);
+        while (true) {
+            if (slot < 0) {
+                slot = shard.insert(hash, (int) windowMillis, now / tickMillis + windowMillis / tickMillis + 1);
+                if (slot < 0) {
+                    return UNTRACKED;
+                }
+            }
+
+            long current = (long) LONGS.getAcquire(shard.values, slot);
+            if (current == EVICTED || (long) LONGS.getAcquire(shard.keys, slot) != hash) {
+                // The slot was reclaimed after we found it; look the key up again
+                slot = shard.find(hash);
+                continue;
+            }
+
+            long currentWindow = current >>> 32;
+            long count = currentWindow < window ? 0 : current & 0xffffffffL;
+            if (count + permits > limit) {
+                return DENIED;
+            }
+            long next = (Math.max(currentWindow, window) << 32) | (count + permits);
+            if (LONGS.compareAndSet(shard.values, slot, current, next)) {
+                return limit - count - permits;
+            }
+        }
+    }
+
+    public void release(long hash, long windowMillis) {
+        release(hash, windowMillis, 1);
+    }
+
+    // Hands back permits taken in the current window, e.g. when another limit of the same request denied
+    public void release(long hash, long windowMillis, long permits) {
+        Shard shard = shards[(int) (hash >>> 32) & shardMask];
+        long window = clock.getAsLong() / windowMillis + 1;
+        int slot = shard.find(hash);
+        if (slot < 0) {
+            return;
+        }
+
+        while (true) {
+            long current = (long) LONGS.getAcquire(shard.values, slot);
+            if (current == EVICTED || (long) LONGS.getAcquire(shard.keys, slot) != hash) {
+                // Removed, or shifted back by the removal of another key
+                slot = shard.find(hash);
+                if (slot < 0) {
+                    return;
+                }
+                continue;
+            }
+            if (current >>> 32 != window || (current & 0xffffffffL) == 0) {
+                return;
+            }
+            if (LONGS.compareAndSet(shard.values, slot, current, current - Math.min(permits, current & 0xffffffffL))) {
+                return;
+            }
+        }
+    }
+
+    public long resetMillis(long windowMillis) {
+        long now = clock.getAsLong();
+        return windowMillis - now % windowMillis;
+    }
+
+    void expire(long now) {
+        long tick = now / tickMillis;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                shard.wheel.advance(tick, hash -> shard.expire(hash, now, tickMillis));
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                size += shard.size;
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    // The longest run of occupied slots in any shard, which bounds the probes of a lookup that misses
+    int longestRun() {
+        int longest = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                int run = 0;
+                for (int i = 0; i < 2 * shard.keys.length; i++) {
+                    run = shard.keys[i & shard.mask] == EMPTY ? 0 : run + 1;
+                    longest = Math.max(longest, Math.min(run, shard.keys.length));
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return longest;
+    }
+
+    private static final class Shard {
+        private final long[] keys;
+        private final long[] values;
+        private final int[] windows;
+        private final int mask;
+        private final int maxKeys;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final HierarchicalTimingWheel wheel;
+        private int size;
+
+        private Shard(int capacity, int maxKeys, long startTick) {
+            this.keys = new long[capacity];
+            this.values = new long[capacity];
+            this.windows = new int[capacity];
+            this.mask = capacity - 1;
+            this.maxKeys = maxKeys;
+            this.wheel = new HierarchicalTimingWheel(startTick);
+        }
+
+        private int find(long hash) {
+            int slot = (int) hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                long key = (long) LONGS.getAcquire(keys, slot);
+                if (key == hash) {
+                    return slot;
+                }
+                if (key == EMPTY) {
+                    return -1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private int insert(long hash, int windowMillis, long expiryTick) {
+            lock.lock();
+            try {
+                // No key moves while the lock is held, so the probe ends at the key or the first empty slot
+                int slot = (int) hash & mask;
+                for (int probes = 0; probes <= mask; probes++) {
+                    long key = keys[slot];
+                    if (key == hash) {
+                        return slot;
+                    }
+                    if (key == EMPTY) {
+                        break;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                if (keys[slot] != EMPTY || size >= maxKeys) {
+                    return -1;
+                }
+
+                windows[slot] = windowMillis;
+                values[slot] = 0;
+                LONGS.setRelease(keys, slot, hash);
+                size++;
+                // The wheel holds the key rather than its slot, which deletions may shift
+                wheel.schedule(expiryTick, hash);
+                return slot;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Called by the timing wheel under the shard lock
+        private void expire(long hash, long now, long tickMillis) {
+            int slot = find(hash);
+            if (slot < 0) {
+                return;
+            }
+            long window = windows[slot];
+            while (true) {
+                long current = (long) LONGS.getAcquire(values, slot);
+                long windowEnd = (current >>> 32) * window;
+                if (current != 0 && windowEnd > now) {
+                    // Still in use: check again once the current window has ended
+                    wheel.schedule(windowEnd / tickMillis + 1, hash);
+                    return;
+                }
+                // Lock-free updates of the slot now fail their CAS and look the key up again
+                if (LONGS.compareAndSet(values, slot, current, EVICTED)) {
+                    remove(slot);
+                    return;
+                }
+            }
+        }
+
+        /*
+         * Backward-shift deletion: later keys of the probe run move back into the hole when their home slot
+         * allows, so the run closes up. Readers that race with a move either see the key in its old slot with
+         * an evicted value and look again, or miss it and fall through to insert(), which waits for the lock.
+         */
+        private void remove(int slot) {
+            int hole = slot;
+            for (int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+                long key = keys[next];
+                int home = (int) key & mask;
+                if (((next - home) & mask) < ((next - hole) & mask)) {
+                    continue;
+                }
+                long current = (long) LONGS.getAcquire(values, next);
+                while (!LONGS.compareAndSet(values, next, current, EVICTED)) {
+                    current = (long) LONGS.getAcquire(values, next);
+                }
+                // Readers check the key after the value, so the old key never pairs with the moved value
+                LONGS.setRelease(keys, hole, MOVING);
+                windows[hole] = windows[next];
+                LONGS.setRelease(values, hole, current);
+                LONGS.setRelease(keys, hole, key);
+                hole = next;
+            }
+            LONGS.setRelease(keys, hole, EMPTY);
+            size--;
+        }
+    }
+}
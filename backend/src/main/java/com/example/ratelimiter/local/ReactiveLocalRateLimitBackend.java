@@ -0,0 +1,28 @@
+package com.example.ratelimiter.local;
+
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.service.RateLimitDecision;
+import com.example.ratelimiter.service.ReactiveRateLimitBackend;
+import com.example.ratelimiter.service.RedisCalls;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+// The in-process engine never blocks, so decisions are made on the subscribing thread
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "rate-limiter", name = "backend", havingValue = "local")
+public class ReactiveLocalRateLimitBackend implements ReactiveRateLimitBackend {
+    private final LocalRateLimitBackend delegate;
+
+    @Override
+    public Mono<RateLimitDecision> tryAcquire(CompiledRule rule, String key, int permits) {
+        return Mono.fromSupplier(() -> delegate.tryAcquire(rule, key, permits, new RedisCalls()));
+    }
+
+    @Override
+    public Mono<RateLimitDecision[]> tryAcquireAll(CompiledRule[] rules, String[] keys, int[] permits) {
+        return Mono.fromSupplier(() -> delegate.tryAcquireAll(rules, keys, permits, new RedisCalls()));
+    }
+}
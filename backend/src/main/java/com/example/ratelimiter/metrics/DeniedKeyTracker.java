@@ -0,0 +1,150 @@
+package com.example.ratelimiter.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Space-Saving summary of the most denied rule/key pairs in bounded memory. When full, a new pair
+ * replaces the least denied one and inherits its count, which is reported as the overestimation error.
+ * Pairs are spread by hash over independently locked stripes, each a summary of its share of the capacity,
+ * so a flood of denials for different keys does not serialize on one lock and eviction scans one stripe.
+ */
+public class DeniedKeyTracker {
+    public record DeniedKey(String rule, String key, long count, long error) {
+    }
+
+    private static final int MAX_STRIPES = 16; // Stripes are picked by the top four bits of the pair hash
+    private static final int MIN_ENTRIES_PER_STRIPE = 8;
+
+    private final int capacity;
+    private final Stripe[] stripes;
+
+    public DeniedKeyTracker(int capacity) {
+        this.capacity = capacity;
+        int stripeCount = Integer.highestOneBit(
+                Math.max(1, Math.min(MAX_STRIPES, capacity / MIN_ENTRIES_PER_STRIPE)));
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe((capacity + stripeCount - 1) / stripeCount);
+        }
+    }
+
+    public boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    public void record(String rule, String key) {
+        if (capacity <= 0) {
+            return;
+        }
+        int hash = Pair.hash(rule, key);
+        // The top bits choose the stripe; the stripe's map indexes by the low ones
+        stripes[((hash * 0x9E3779B9) >>> 28) & (stripes.length - 1)].record(rule, key, hash);
+    }
+
+    public List<DeniedKey> top(int n) {
+        List<DeniedKey> result = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.collect(result);
+        }
+        // Ties go to the entry with the smaller overestimation, i.e. the more certain count
+        result.sort(Comparator.comparingLong(DeniedKey::count).reversed().thenComparingLong(DeniedKey::error));
+        return result.subList(0, Math.min(n, result.size()));
+    }
+
+    private static final class Stripe {
+        private final int capacity;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<Pair, Entry> entries = new HashMap<>();
+        // Reused for lookups under the lock, so recording a denial allocates nothing unless the pair is new
+        private final Pair probe = new Pair();
+
+        private Stripe(int capacity) {
+            this.capacity = capacity;
+        }
+
+        private void record(String rule, String key, int hash) {
+            lock.lock();
+            try {
+                Entry entry = entries.get(probe.set(rule, key, hash));
+                if (entry != null) {
+                    entry.count++;
+                    return;
+                }
+                if (entries.size() < capacity) {
+                    entries.put(new Pair().set(rule, key, hash), new Entry(1, 0));
+                    return;
+                }
+
+                Pair minPair = null;
+                Entry min = null;
+                for (Map.Entry<Pair, Entry> candidate : entries.entrySet()) {
+                    if (min == null || candidate.getValue().count < min.count) {
+                        minPair = candidate.getKey();
+                        min = candidate.getValue();
+                    }
+                }
+                entries.remove(minPair);
+                min.error = min.count;
+                min.count++;
+                entries.put(minPair.set(rule, key, hash), min);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void collect(List<DeniedKey> result) {
+            lock.lock();
+            try {
+                entries.forEach((pair, entry) -> result.add(
+                        new DeniedKey(pair.rule, pair.key, entry.count, entry.error)));
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Mutable so the stripe's probe can be pointed at each denial; stored pairs are never changed while in the map
+    private static final class Pair {
+        private String rule;
+        private String key;
+        private int hash;
+
+        private static int hash(String rule, String key) {
+            return 31 * rule.hashCode() + Objects.hashCode(key);
+        }
+
+        private Pair set(String rule, String key, int hash) {
+            this.rule = rule;
+            this.key = key;
+            this.hash = hash;
+            return this;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Pair pair && hash == pair.hash && rule.equals(pair.rule)
+                    && Objects.equals(key, pair.key);
+        }
+    }
+
+    private static final class Entry {
+        private long count;
+        private long error;
+
+        private Entry(long count, long error) {
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
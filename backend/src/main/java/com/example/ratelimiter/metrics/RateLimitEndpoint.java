@@ -0,0 +1,27 @@
+package com.example.ratelimiter.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+@Component
+@RequiredArgsConstructor
+@Endpoint(id = "ratelimits")
+public class RateLimitEndpoint {
+    private static final int DEFAULT_TOP = 10;
+
+    private final RateLimitMetrics metrics;
+
+    // A negative top lists no keys rather than failing the request
+    @ReadOperation
+    public Map<String, Object> deniedKeys(@Nullable Integer top) {
+        DeniedKeyTracker tracker = metrics.getDeniedKeys();
+        List<DeniedKeyTracker.DeniedKey> keys = tracker.top(top == null ? DEFAULT_TOP : Math.max(0, top));
+        return Map.of("trackingEnabled", tracker.isEnabled(), "topDeniedKeys", keys);
+    }
+}
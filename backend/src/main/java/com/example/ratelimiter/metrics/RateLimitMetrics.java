@@ -0,0 +1,162 @@
+package com.example.ratelimiter.metrics;
+
+import com.example.ratelimiter.concurrency.AdaptiveConcurrencyLimiter;
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.rule.RateLimitRule;
+import com.example.ratelimiter.service.RateLimitDecision;
+import com.example.ratelimiter.service.RedisCalls;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decision latency, split into time spent waiting on Redis and local overhead, plus per-rule outcome
+ * counters tagged by endpoint and type (never by the limited key). Timings are plain nanoTime
+ * differences; the Redis time of a decision is summed on the {@link RedisCalls} its backend was handed.
+ */
+@Component
+public class RateLimitMetrics {
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final Timer decisionTimer;
+    private final Timer redisTimer;
+    private final Timer localTimer;
+    private final Map<String, Counter> fallbacks = new ConcurrentHashMap<>();
+    private final Counter circuitOpened;
+    private final Timer outageTimer;
+
+    @Getter
+    private final DeniedKeyTracker deniedKeys;
+
+    public RateLimitMetrics(MeterRegistry registry, RateLimiterConfig config) {
+        RateLimiterConfig.Metrics settings = config.getMetrics();
+        this.registry = registry;
+        this.enabled = settings.isEnabled();
+        this.decisionTimer = timer("rate.limiter.decision", "Total time to reach a rate limit decision", settings);
+        this.redisTimer = timer("rate.limiter.decision.redis", "Time spent waiting on Redis per decision", settings);
+        this.localTimer = timer("rate.limiter.decision.local", "Local overhead per decision", settings);
+        this.deniedKeys = new DeniedKeyTracker(enabled ? settings.getDeniedKeysCapacity() : 0);
+        this.circuitOpened = Counter.builder("rate.limiter.circuit.opened")
+                .description("Times the Redis circuit breaker opened")
+                .register(registry);
+        this.outageTimer = Timer.builder("rate.limiter.circuit.outage")
+                .description("Time from the Redis circuit opening until it closed again")
+                .register(registry);
+    }
+
+    public long startDecision() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public void recordDecision(long startNanos, RedisCalls calls) {
+        if (!enabled) {
+            return;
+        }
+        long total = System.nanoTime() - startNanos;
+        long redis = calls.nanos();
+        decisionTimer.record(total, TimeUnit.NANOSECONDS);
+        if (redis > 0) {
+            redisTimer.record(redis, TimeUnit.NANOSECONDS);
+        }
+        localTimer.record(Math.max(0, total - redis), TimeUnit.NANOSECONDS);
+    }
+
+    // Redis time outside a blocking decision: reactive decisions hop threads, and semaphores admit requests
+    // rather than decide them, so their round trips are recorded directly
+    public void recordRedis(long nanos) {
+        if (enabled) {
+            redisTimer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void recordAsyncDecision(long nanos) {
+        if (enabled) {
+            decisionTimer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void recordOutcome(CompiledRule rule, String key, RateLimitDecision decision) {
+        if (!enabled) {
+            return;
+        }
+        if (decision.allowed()) {
+            rule.allowed().increment();
+        } else {
+            rule.denied().increment();
+            deniedKeys.record(rule.rule().id(), key);
+        }
+    }
+
+    // Concurrency limits have no subject, so shed requests are counted without a denied key
+    public void recordConcurrency(CompiledRule rule, boolean admitted) {
+        if (enabled) {
+            (admitted ? rule.allowed() : rule.denied()).increment();
+        }
+    }
+
+    // The adaptive cap is exposed even when decision metrics are disabled, like the circuit meters
+    public void bindConcurrencyLimiter(RateLimitRule rule, AdaptiveConcurrencyLimiter limiter) {
+        Gauge.builder("rate.limiter.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::limit)
+                .description("Current adaptive cap on in-flight requests")
+                .tag("endpoint", rule.id())
+                .register(registry);
+        Gauge.builder("rate.limiter.concurrency.in.flight", limiter, AdaptiveConcurrencyLimiter::inFlight)
+                .description("Requests currently in flight under a concurrency limit")
+                .tag("endpoint", rule.id())
+                .register(registry);
+    }
+
+    // Circuit and fallback meters are recorded even when decision metrics are disabled; they only fire
+    // while Redis is unhealthy
+    public void recordFallback(String failureMode) {
+        fallbacks.computeIfAbsent(failureMode, mode -> Counter.builder("rate.limiter.fallback")
+                .description("Decisions made without Redis while its circuit was open or a call failed")
+                .tag("mode", mode)
+                .register(registry)).increment();
+    }
+
+    public void recordCircuitOpened() {
+        circuitOpened.increment();
+    }
+
+    public void recordCircuitClosed(long outageNanos) {
+        outageTimer.record(outageNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Registered once by the decision event log, which counts on them from request threads and its writer
+    public Counter decisionEvents(String result) {
+        return Counter.builder("rate.limiter.events")
+                .description("Decision events by what became of them")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    // Bound when the rule is compiled; null while decision metrics are disabled. Registering returns the meter of
+    // an earlier version of the rule, so a reload keeps counting on it
+    public Counter outcomeCounter(RateLimitRule rule, String outcome) {
+        if (!enabled) {
+            return null;
+        }
+        return Counter.builder("rate.limiter.requests")
+                .description("Rate limit decisions per rule")
+                .tag("endpoint", rule.id())
+                .tag("type", rule.type())
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private Timer timer(String name, String description, RateLimiterConfig.Metrics settings) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram(settings.isPercentileHistograms())
+                .register(registry);
+    }
+}
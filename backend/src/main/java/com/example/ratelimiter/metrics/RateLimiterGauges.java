@@ -0,0 +1,62 @@
+package com.example.ratelimiter.metrics;
+
+import com.example.ratelimiter.cache.DenyCache;
+import com.example.ratelimiter.lease.QuotaLeaseManager;
+import com.example.ratelimiter.local.LocalRateLimitBackend;
+import com.example.ratelimiter.semaphore.RedisRateLimitSemaphore;
+import com.example.ratelimiter.shard.RedisShard;
+import com.example.ratelimiter.shard.RedisShardRouter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class RateLimiterGauges implements MeterBinder {
+    private final ObjectProvider<QuotaLeaseManager> leases;
+    private final ObjectProvider<LocalRateLimitBackend> localBackend;
+    private final ObjectProvider<DenyCache> denyCache;
+    private final ObjectProvider<RedisShardRouter> shards;
+    private final ObjectProvider<RedisRateLimitSemaphore> semaphores;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        leases.ifAvailable(manager -> {
+            Gauge.builder("rate.limiter.lease.active", manager, QuotaLeaseManager::activeLeases)
+                    .description("Keys with a live lease on this node")
+                    .register(registry);
+            Gauge.builder("rate.limiter.lease.permits", manager, QuotaLeaseManager::heldPermits)
+                    .description("Leased permits held locally and not yet used")
+                    .register(registry);
+        });
+        localBackend.ifAvailable(backend -> Gauge.builder("rate.limiter.local.keys", backend,
+                        LocalRateLimitBackend::trackedKeys)
+                .description("Keys tracked by the in-process backend")
+                .register(registry));
+        shards.ifAvailable(router -> {
+            for (RedisShard shard : router.shards()) {
+                Gauge.builder("rate.limiter.circuit.state", shard.circuitBreaker(), b -> b.state().ordinal())
+                        .description("Redis circuit breaker state: 0 closed, 1 open, 2 half-open")
+                        .tag("shard", shard.name())
+                        .register(registry);
+            }
+        });
+        semaphores.ifAvailable(semaphore -> {
+            Gauge.builder("rate.limiter.semaphore.permits", semaphore, RedisRateLimitSemaphore::heldPermits)
+                    .description("Permits of concurrent rules held by requests on this node")
+                    .register(registry);
+            Gauge.builder("rate.limiter.semaphore.waiting", semaphore, RedisRateLimitSemaphore::waitingRequests)
+                    .description("Requests on this node waiting for a permit of a concurrent rule")
+                    .register(registry);
+        });
+        denyCache.ifAvailable(cache -> {
+            if (cache.cache() != null) {
+                CaffeineCacheMetrics.monitor(registry, cache.cache(), "rate-limiter.deny-cache");
+            }
+        });
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.ratelimiter.reload;
+
+import com.example.ratelimiter.config.EndpointRateLimitConfig;
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.rule.RateLimitRuleRegistry;
+import com.example.ratelimiter.rule.RuleSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.PropertiesPropertySourceLoader;
+import org.springframework.boot.env.PropertySourceLoader;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads endpoint rules from {@code rate-limiter.reload.file}, a YAML or properties file laid out like the
+ * {@code rate-limiter.endpoints} section of the application config. The file is polled rather than watched, so
+ * config maps that swap a symlink and network mounts are picked up as well.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "rate-limiter.reload", name = "file")
+public class FileRuleSource {
+    private static final String MISSING = "missing";
+
+    private final RateLimitRuleRegistry ruleRegistry;
+    private final Path file;
+    private final long pollMillis;
+    private final PropertySourceLoader loader;
+    private final ScheduledExecutorService scheduler;
+    private String lastVersion;
+    private Map<String, EndpointRateLimitConfig.RateLimitConfig> lastLoaded;
+
+    public FileRuleSource(RateLimitRuleRegistry ruleRegistry, RateLimiterConfig config) {
+        RateLimiterConfig.Reload settings = config.getReload();
+        this.ruleRegistry = ruleRegistry;
+        this.file = Path.of(settings.getFile());
+        this.pollMillis = Math.max(1, settings.getFilePollInterval().toMillis());
+        String name = file.getFileName().toString();
+        this.loader = name.endsWith(".yml") || name.endsWith(".yaml")
+                ? new YamlPropertySourceLoader() : new PropertiesPropertySourceLoader();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limiter-rules");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // The first load is compiled with the other rules at startup, where invalid rules fail like configured ones
+    @PostConstruct
+    void start() {
+        poll();
+        scheduler.scheduleWithFixedDelay(this::poll, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    synchronized void poll() {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            String version = attributes.lastModifiedTime().toMillis() + ":" + attributes.size() + ":"
+                    + attributes.fileKey();
+            if (version.equals(lastVersion)) {
+                return;
+            }
+            // A version that fails to apply is reported once; the next write to the file is tried again
+            lastVersion = version;
+            Map<String, EndpointRateLimitConfig.RateLimitConfig> limits = RuleBinder.bind(
+                    ConfigurationPropertySources.from(loader.load(file.toString(), new FileSystemResource(file))));
+            if (!limits.equals(lastLoaded)) {
+                ruleRegistry.reload(RuleSource.FILE, limits);
+                lastLoaded = limits;
+            }
+        } catch (NoSuchFileException e) {
+            if (!MISSING.equals(lastVersion)) {
+                log.warn("Rule file {} does not exist; keeping the rules last loaded from it", file);
+                lastVersion = MISSING;
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Keeping the current rate limit rules, rule file {} could not be applied: {}", file,
+                    e.getMessage());
+        }
+    }
+}
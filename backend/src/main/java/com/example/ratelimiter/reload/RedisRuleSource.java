@@ -0,0 +1,128 @@
+package com.example.ratelimiter.reload;
+
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.rule.RateLimitRuleRegistry;
+import com.example.ratelimiter.rule.RuleSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads endpoint rules from the Redis hash {@code rate-limiter.reload.redis-key}, whose fields are rule
+ * properties relative to {@code rate-limiter.endpoints.limits} ({@code rewards.limit = 5}). Every node re-reads
+ * the hash as soon as anything is published to {@code rate-limiter.reload.redis-channel}, and periodically in
+ * case it missed a message while disconnected.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "rate-limiter.reload", name = "redis-key")
+public class RedisRuleSource implements MessageListener {
+    private final RateLimitRuleRegistry ruleRegistry;
+    private final HashOperations<String, String, String> hashOperations;
+    private final RedisConnectionFactory connectionFactory;
+    private final String key;
+    private final String channel;
+    private final long resyncMillis;
+    private final ScheduledExecutorService scheduler;
+    private RedisMessageListenerContainer container;
+    private Map<String, String> lastFields;
+
+    public RedisRuleSource(RateLimitRuleRegistry ruleRegistry, StringRedisTemplate redisTemplate,
+            RedisConnectionFactory connectionFactory, RateLimiterConfig config) {
+        RateLimiterConfig.Reload settings = config.getReload();
+        this.ruleRegistry = ruleRegistry;
+        this.hashOperations = redisTemplate.opsForHash();
+        this.connectionFactory = connectionFactory;
+        this.key = settings.getRedisKey();
+        this.channel = settings.getRedisChannel();
+        this.resyncMillis = Math.max(1, settings.getRedisResyncInterval().toMillis());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limiter-rules");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    void start() {
+        container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        // Messages are handled on the scheduler thread, so reloads never overlap and never block the subscriber
+        container.setTaskExecutor(scheduler);
+        container.addMessageListener(this, new ChannelTopic(channel));
+        container.afterPropertiesSet();
+        // Read after subscribing, so a change published in between is not missed
+        subscribe();
+        load();
+        scheduler.scheduleWithFixedDelay(this::resync, resyncMillis, resyncMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() throws Exception {
+        container.destroy();
+        scheduler.shutdownNow();
+    }
+
+    private void subscribe() {
+        try {
+            container.start();
+        } catch (RuntimeException e) {
+            // Stopping lets the next resync start the subscription over
+            container.stop();
+            log.warn("Could not subscribe to {}, retrying with every resync: {}", channel, e.getMessage());
+        }
+    }
+
+    private void resync() {
+        if (!container.isListening()) {
+            subscribe();
+        }
+        load();
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        load();
+    }
+
+    synchronized void load() {
+        Map<String, String> fields;
+        try {
+            fields = hashOperations.entries(key);
+        } catch (RuntimeException e) {
+            log.warn("Keeping the current rate limit rules, Redis hash {} could not be read: {}", key, e.getMessage());
+            return;
+        }
+        if (fields.equals(lastFields)) {
+            return;
+        }
+        // Fields that fail to apply are reported once; the next change to the hash is tried again
+        lastFields = fields;
+        try {
+            Map<String, String> properties = new HashMap<>();
+            fields.forEach((field, value) -> properties.put(RuleBinder.PREFIX + "." + field, value));
+            ruleRegistry.reload(RuleSource.REDIS,
+                    RuleBinder.bind(List.of(new MapConfigurationPropertySource(properties))));
+        } catch (RuntimeException e) {
+            log.warn("Keeping the current rate limit rules, Redis hash {} could not be applied: {}", key,
+                    e.getMessage());
+        }
+    }
+}
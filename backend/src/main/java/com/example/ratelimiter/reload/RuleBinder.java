@@ -0,0 +1,23 @@
+package com.example.ratelimiter.reload;
+
+import com.example.ratelimiter.config.EndpointRateLimitConfig;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySource;
+
+import java.util.Map;
+
+// Binds reloaded rules with the same names and relaxed binding as rate-limiter.endpoints.limits in application config
+final class RuleBinder {
+    static final String PREFIX = "rate-limiter.endpoints.limits";
+
+    private static final Bindable<Map<String, EndpointRateLimitConfig.RateLimitConfig>> LIMITS =
+            Bindable.mapOf(String.class, EndpointRateLimitConfig.RateLimitConfig.class);
+
+    private RuleBinder() {
+    }
+
+    static Map<String, EndpointRateLimitConfig.RateLimitConfig> bind(Iterable<ConfigurationPropertySource> sources) {
+        return new Binder(sources).bind(PREFIX, LIMITS).orElse(Map.of());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.ratelimiter.resilience;
+
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.local.LocalRateLimitEngine;
+import com.example.ratelimiter.metrics.RateLimitMetrics;
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.rule.RateLimitRule;
+import com.example.ratelimiter.service.RateLimitDecision;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Decides requests while Redis is unavailable, following each rule's failure mode: {@code local}
+ * approximates the global limit with a per-node fixed window of {@code limit / node-count},
+ * {@code open} admits everything and {@code closed} rejects everything.
+ */
+@Component
+@ConditionalOnProperty(prefix = "rate-limiter", name = "backend", havingValue = "redis", matchIfMissing = true)
+public class FallbackLimiter {
+    public static final String LOCAL = "local";
+    public static final String OPEN = "open";
+    public static final String CLOSED = "closed";
+    public static final Set<String> FAILURE_MODES = Set.of(LOCAL, OPEN, CLOSED);
+
+    private final int nodeCount;
+    private final long retryMillis;
+    private final RateLimitMetrics metrics;
+    private final LocalRateLimitEngine engine;
+
+    public FallbackLimiter(RateLimiterConfig config, RateLimitMetrics metrics) {
+        RateLimiterConfig.Resilience resilience = config.getResilience();
+        this.nodeCount = Math.max(1, resilience.getNodeCount());
+        this.retryMillis = resilience.getOpenDuration().toMillis();
+        this.metrics = metrics;
+        this.engine = new LocalRateLimitEngine(resilience.getFallbackMaxKeys(), 16, 100, System::currentTimeMillis);
+        this.engine.start();
+    }
+
+    public RateLimitDecision tryAcquire(RateLimitRule rule, String key, int permits) {
+        metrics.recordFallback(rule.failureMode());
+        return switch (rule.failureMode()) {
+            case OPEN -> new RateLimitDecision(true, rule.limit(), rule.limit(), 0);
+            case CLOSED -> new RateLimitDecision(false, rule.limit(), 0,
+                    Math.min(retryMillis, rule.window().toMillis()));
+            default -> tryAcquireLocal(rule, key, permits);
+        };
+    }
+
+    // All-or-nothing like the Redis script: local permits taken for the other rules are handed back
+    public RateLimitDecision[] tryAcquireAll(CompiledRule[] rules, String[] keys, int[] permits) {
+        RateLimitDecision[] decisions = new RateLimitDecision[rules.length];
+        boolean allAllowed = true;
+        for (int i = 0; i < rules.length; i++) {
+            decisions[i] = tryAcquire(rules[i].rule(), keys[i], permits[i]);
+            allAllowed &= decisions[i].allowed();
+        }
+
+        if (!allAllowed) {
+            for (int i = 0; i < rules.length; i++) {
+                if (decisions[i].allowed()) {
+                    release(rules[i].rule(), keys[i], permits[i]);
+                }
+            }
+        }
+        return decisions;
+    }
+
+    // Hands back the permits an allowed decision took, for a request another limit rejected after all
+    public void release(RateLimitRule rule, String key, int permits) {
+        if (LOCAL.equals(rule.failureMode())) {
+            engine.release(LocalRateLimitEngine.hash(key, rule.type()), rule.window().toMillis(), permits);
+        }
+    }
+
+    private RateLimitDecision tryAcquireLocal(RateLimitRule rule, String key, int permits) {
+        long limit = (rule.limit() + nodeCount - 1) / nodeCount;
+        long windowMillis = rule.window().toMillis();
+        long remaining = engine.tryAcquire(LocalRateLimitEngine.hash(key, rule.type()), limit, windowMillis, permits);
+        if (remaining == LocalRateLimitEngine.UNTRACKED) {
+            return new RateLimitDecision(true, rule.limit(), limit, windowMillis);
+        }
+        return new RateLimitDecision(remaining != LocalRateLimitEngine.DENIED, rule.limit(), Math.max(remaining, 0),
+                engine.resetMillis(windowMillis));
+    }
+
+    @PreDestroy
+    public void close() {
+        engine.close();
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.ratelimiter.resilience;
+
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.metrics.RateLimitMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Opens after a run of consecutive Redis failures so decisions stop waiting on an unhealthy Redis.
+ * After the open duration a single probe is let through; its outcome closes or re-opens the circuit.
+ * While closed, a successful call costs two volatile reads.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "rate-limiter", name = "backend", havingValue = "redis", matchIfMissing = true)
+public class RedisCircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final boolean enabled;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final RateLimitMetrics metrics;
+    private final String name;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong probeStartedAt = new AtomicLong(); // 0 when no probe is in flight
+    private volatile long openedAt;
+    private volatile long outageStartedAt;
+
+    @Autowired
+    public RedisCircuitBreaker(RateLimiterConfig config, RateLimitMetrics metrics) {
+        this(config, metrics, "redis");
+    }
+
+    // One circuit per shard when subjects are spread over several Redis nodes
+    public RedisCircuitBreaker(RateLimiterConfig config, RateLimitMetrics metrics, String name) {
+        RateLimiterConfig.Resilience resilience = config.getResilience();
+        this.enabled = resilience.isEnabled();
+        this.failureThreshold = resilience.getFailureThreshold();
+        this.openNanos = resilience.getOpenDuration().toNanos();
+        this.metrics = metrics;
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public State state() {
+        return state.get();
+    }
+
+    // Whether the next call may go to Redis; false means it should be decided by the fallback
+    public boolean allowRequest() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (current == State.OPEN) {
+            if (now - openedAt < openNanos) {
+                return false;
+            }
+            state.compareAndSet(State.OPEN, State.HALF_OPEN);
+        }
+
+        // A probe that never reported back is replaced once it is older than the open duration
+        long probe = probeStartedAt.get();
+        return (probe == 0 || now - probe >= openNanos) && probeStartedAt.compareAndSet(probe, now);
+    }
+
+    public void onSuccess() {
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+        if (state.get() != State.CLOSED && state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+            probeStartedAt.set(0);
+            long outage = System.nanoTime() - outageStartedAt;
+            metrics.recordCircuitClosed(outage);
+            log.info("Redis circuit {} closed, rate limiting recovered after {} ms", name, outage / 1_000_000);
+        }
+    }
+
+    // Returns whether the failed call should be decided by the fallback instead of propagating the error
+    public boolean onFailure(Exception e) {
+        if (!enabled) {
+            return false;
+        }
+        long now = System.nanoTime();
+        if (state.compareAndSet(State.HALF_OPEN, State.OPEN)) {
+            openedAt = now;
+            probeStartedAt.set(0);
+            log.warn("Redis circuit {} re-opened, probe failed: {}", name, e.getMessage());
+        } else if (consecutiveFailures.incrementAndGet() >= failureThreshold
+                && state.compareAndSet(State.CLOSED, State.OPEN)) {
+            openedAt = now;
+            outageStartedAt = now;
+            metrics.recordCircuitOpened();
+            log.warn("Redis circuit {} opened after {} consecutive failures: {}", name, failureThreshold,
+                    e.getMessage());
+        }
+        return true;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.ratelimiter.rule;
+
+import com.example.ratelimiter.codec.EncodedRule;
+import io.micrometer.core.instrument.Counter;
+
+/**
+ * A rule as decisions use it, with what the Redis codec, the response headers and the metrics derive from it.
+ * Built once by {@code RateLimiterService.compile}, so once per snapshot for endpoint rules, and only read on
+ * the hot path. {@code encoded} is null for in-flight limits, which keep no window state; the counters are null
+ * while decision metrics are disabled.
+ */
+public record CompiledRule(RateLimitRule rule, EncodedRule encoded, String policy, Counter allowed,
+        Counter denied) {
+}
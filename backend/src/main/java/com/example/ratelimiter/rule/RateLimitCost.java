@@ -0,0 +1,118 @@
+package com.example.ratelimiter.rule;
+
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.EvaluationException;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.SimpleEvaluationContext;
+
+import java.util.function.Function;
+
+/**
+ * The permits one request takes from a limit: a fixed number, or a SpEL expression over the request such as
+ * {@code header('X-Batch-Size')} or {@code param('count') * 2}. Expressions are parsed once, with their rule, and
+ * compiled to bytecode by SpEL after their first evaluations; they can only call {@link Request}'s methods.
+ */
+public final class RateLimitCost {
+    public static final RateLimitCost ONE = new RateLimitCost("1", 1, null);
+
+    private static final SpelExpressionParser PARSER = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, RateLimitCost.class.getClassLoader()));
+    private static final EvaluationContext CONTEXT = SimpleEvaluationContext.forReadOnlyDataBinding()
+            .withInstanceMethods()
+            .build();
+
+    private final String source;
+    private final int permits;
+    private final Expression expression;
+
+    private RateLimitCost(String source, int permits, Expression expression) {
+        this.source = source;
+        this.permits = permits;
+        this.expression = expression;
+    }
+
+    // An empty source costs one permit
+    public static RateLimitCost parse(String source) {
+        if (source == null || source.isBlank()) {
+            return ONE;
+        }
+        String trimmed = source.trim();
+        if (trimmed.chars().allMatch(Character::isDigit)) {
+            int permits = Integer.parseInt(trimmed);
+            if (permits < 1) {
+                throw new IllegalArgumentException("Rate limit cost must be at least 1, got " + trimmed);
+            }
+            return new RateLimitCost(trimmed, permits, null);
+        }
+        try {
+            return new RateLimitCost(trimmed, 0, PARSER.parseExpression(trimmed));
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid rate limit cost " + trimmed + ": " + e.getMessage(), e);
+        }
+    }
+
+    public boolean isFixed() {
+        return expression == null;
+    }
+
+    // The fixed cost; only meaningful when isFixed()
+    public int permits() {
+        return permits;
+    }
+
+    public int resolve(Request request) {
+        if (expression == null) {
+            return permits;
+        }
+        Integer value;
+        try {
+            value = expression.getValue(CONTEXT, request, Integer.class);
+        } catch (EvaluationException e) {
+            throw new IllegalArgumentException("Could not evaluate rate limit cost " + source + ": "
+                    + e.getMessage(), e);
+        }
+        if (value == null || value < 1) {
+            throw new IllegalArgumentException("Rate limit cost " + source + " must be at least 1, got " + value);
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    // Root object of cost expressions; request values are read lazily so unused headers cost nothing
+    public static final class Request {
+        private final Function<String, String> headers;
+        private final Function<String, String> params;
+
+        public Request(Function<String, String> headers, Function<String, String> params) {
+            this.headers = headers;
+            this.params = params;
+        }
+
+        public int header(String name) {
+            return number("header " + name, headers.apply(name));
+        }
+
+        public int param(String name) {
+            return number("parameter " + name, params.apply(name));
+        }
+
+        private static int number(String name, String value) {
+            if (value == null || value.isEmpty()) {
+                throw new IllegalArgumentException("Required " + name + " is missing");
+            }
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("The " + name + " must be a number, got " + value);
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.ratelimiter.rule;
+
+import java.time.Duration;
+
+// A rate limit with its limit, window and algorithm already resolved, ready for the hot path
+public record RateLimitRule(String id, String header, String type, String algorithm, long limit, Duration window,
+        String failureMode, RateLimitCost cost) {
+    // Caps in-flight requests instead of requests per window; limit is the most the adaptive cap may reach
+    public static final String CONCURRENCY = "concurrency";
+    public static final String GRADIENT = "gradient";
+    // Caps simultaneous executions across the cluster with a Redis semaphore; window is the permit lease
+    public static final String CONCURRENT = "concurrent";
+    public static final String SEMAPHORE = "semaphore";
+
+    public RateLimitRule(String id, String header, String type, String algorithm, long limit, Duration window,
+            String failureMode) {
+        this(id, header, type, algorithm, limit, window, failureMode, RateLimitCost.ONE);
+    }
+
+    public boolean isConcurrency() {
+        return CONCURRENCY.equals(type);
+    }
+
+    public boolean isConcurrent() {
+        return CONCURRENT.equals(type);
+    }
+
+    // Limits that hold a slot while the handler runs rather than deciding once up front
+    public boolean isInFlight() {
+        return isConcurrency() || isConcurrent();
+    }
+
+    public static boolean isInFlight(String type) {
+        return CONCURRENCY.equals(type) || CONCURRENT.equals(type);
+    }
+}
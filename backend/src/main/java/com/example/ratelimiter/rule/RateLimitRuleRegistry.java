@@ -0,0 +1,153 @@
+package com.example.ratelimiter.rule;
+
+import com.example.ratelimiter.annotation.RateLimit;
+import com.example.ratelimiter.config.EndpointRateLimitConfig;
+import com.example.ratelimiter.service.RateLimiterService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.pattern.PathPattern;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Compiles {@code @RateLimit} handler methods and the {@code rate-limiter.endpoints} configuration into a
+ * {@link RateLimitRuleSnapshot} once all singletons exist, before the web server accepts requests. Concurrency
+ * and concurrent limits go to a table of their own, since they are held around the handler rather than decided
+ * up front. Endpoint rules reloaded from a {@link RuleSource} replace configured rules of the same name; each
+ * reload compiles a new snapshot off the hot path, each rule to a {@link CompiledRule} holding what decisions
+ * derive from it, and publishes it with a single volatile write.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RateLimitRuleRegistry implements SmartInitializingSingleton {
+    private final ApplicationContext applicationContext;
+    private final EndpointRateLimitConfig endpointConfig;
+    private final RateLimiterService rateLimiterService;
+
+    private final Map<RuleSource, Map<String, EndpointRateLimitConfig.RateLimitConfig>> reloaded =
+            new EnumMap<>(RuleSource.class);
+    private List<AnnotatedRule> annotatedRules;
+    private volatile RateLimitRuleSnapshot snapshot = RateLimitRuleSnapshot.EMPTY;
+
+    // Callers read the snapshot once per request so both tables come from the same version
+    public RateLimitRuleSnapshot snapshot() {
+        return snapshot;
+    }
+
+    public RateLimitRuleTable table() {
+        return snapshot.table();
+    }
+
+    public RateLimitRuleTable concurrencyTable() {
+        return snapshot.concurrencyTable();
+    }
+
+    @Override
+    public synchronized void afterSingletonsInstantiated() {
+        List<AnnotatedRule> rules = new ArrayList<>();
+        applicationContext.getBeansOfType(RequestMappingHandlerMapping.class).values()
+                .forEach(mapping -> mapping.getHandlerMethods().forEach((info, handlerMethod) ->
+                        addAnnotatedRules(rules, handlerMethod.getMethod(), info.getMethodsCondition().getMethods(),
+                                info.getPatternValues())));
+        applicationContext.getBeansOfType(
+                        org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping.class)
+                .values()
+                .forEach(mapping -> mapping.getHandlerMethods().forEach((info, handlerMethod) ->
+                        addAnnotatedRules(rules, handlerMethod.getMethod(), info.getMethodsCondition().getMethods(),
+                                info.getPatternsCondition().getPatterns().stream()
+                                        .map(PathPattern::getPatternString)
+                                        .collect(Collectors.toSet()))));
+        annotatedRules = List.copyOf(rules);
+        compile();
+    }
+
+    /**
+     * Replaces the endpoint rules loaded from {@code source} and swaps in a snapshot compiled from every source.
+     * When the rules do not compile the current snapshot stays in place and the exception is rethrown.
+     */
+    public synchronized void reload(RuleSource source, Map<String, EndpointRateLimitConfig.RateLimitConfig> limits) {
+        Map<String, EndpointRateLimitConfig.RateLimitConfig> previous = reloaded.put(source, Map.copyOf(limits));
+        if (annotatedRules == null) {
+            // Compiled with the annotated rules once the handler mappings exist
+            return;
+        }
+        try {
+            compile();
+        } catch (RuntimeException e) {
+            if (previous == null) {
+                reloaded.remove(source);
+            } else {
+                reloaded.put(source, previous);
+            }
+            throw e;
+        }
+    }
+
+    private void compile() {
+        RateLimitRuleTable.Builder builder = RateLimitRuleTable.builder();
+        annotatedRules.forEach(annotated -> builder.add(annotated.method(), annotated.path(), annotated.rule()));
+        Map<String, EndpointRateLimitConfig.RateLimitConfig> limits = new LinkedHashMap<>(endpointConfig.getLimits());
+        reloaded.values().forEach(limits::putAll);
+        addConfiguredRules(builder, limits);
+
+        RateLimitRuleSnapshot next = new RateLimitRuleSnapshot(snapshot.version() + 1,
+                builder.build(rule -> !rule.rule().isInFlight()),
+                builder.build(rule -> rule.rule().isInFlight()));
+        snapshot = next;
+        log.info("Compiled rule snapshot {}: {} rate limit rules and {} concurrency limits", next.version(),
+                next.table().size(), next.concurrencyTable().size());
+    }
+
+    // Shared by the servlet and reactive handler mappings, whose RequestMappingInfo types are unrelated
+    private void addAnnotatedRules(List<AnnotatedRule> rules, Method method, Set<RequestMethod> httpMethods,
+            Set<String> paths) {
+        Set<RateLimit> rateLimits = AnnotatedElementUtils.findMergedRepeatableAnnotations(method, RateLimit.class);
+        for (RateLimit rateLimit : rateLimits) {
+            for (String path : paths) {
+                if (httpMethods.isEmpty()) {
+                    rules.add(new AnnotatedRule(null, path, rule(path, rateLimit)));
+                }
+                for (RequestMethod httpMethod : httpMethods) {
+                    rules.add(new AnnotatedRule(httpMethod.name(), path,
+                            rule(httpMethod.name() + " " + path, rateLimit)));
+                }
+            }
+        }
+    }
+
+    private void addConfiguredRules(RateLimitRuleTable.Builder builder,
+            Map<String, EndpointRateLimitConfig.RateLimitConfig> limits) {
+        limits.forEach((name, limit) -> {
+            if (!limit.isEnabled()) {
+                return;
+            }
+            if (limit.getPath() == null || limit.getPath().isEmpty()) {
+                throw new IllegalStateException("rate-limiter.endpoints.limits." + name + ".path is required");
+            }
+            builder.add(limit.getMethod(), limit.getPath(), rateLimiterService.compileRule(name, limit.getKey(),
+                    limit.getType(), limit.getLimit(), limit.getAlgorithm(), limit.getFailureMode(), limit.getCost()));
+        });
+    }
+
+    private CompiledRule rule(String id, RateLimit rateLimit) {
+        return rateLimiterService.compileRule(id, rateLimit.key(), rateLimit.type(), rateLimit.limit(),
+                rateLimit.algorithm(), rateLimit.failureMode(), rateLimit.cost());
+    }
+
+    private record AnnotatedRule(String method, String path, CompiledRule rule) {
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.ratelimiter.rule;
+
+// Everything the hot path matches requests against, replaced as a whole when rules are reloaded
+public record RateLimitRuleSnapshot(long version, RateLimitRuleTable table, RateLimitRuleTable concurrencyTable) {
+    public static final RateLimitRuleSnapshot EMPTY = new RateLimitRuleSnapshot(0, RateLimitRuleTable.EMPTY,
+            RateLimitRuleTable.EMPTY);
+}
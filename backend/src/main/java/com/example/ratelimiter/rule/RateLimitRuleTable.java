@@ -0,0 +1,170 @@
+package com.example.ratelimiter.rule;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Immutable path/method to rules routing table. Literal paths are resolved with two hash lookups;
+ * paths with variables or wildcards are only matched when no literal path applies.
+ */
+public final class RateLimitRuleTable {
+    public static final RateLimitRuleTable EMPTY = new Builder().build();
+
+    private static final CompiledRule[] NONE = new CompiledRule[0];
+    private static final String ANY_METHOD = "*";
+
+    private final Map<String, Route> literalRoutes;
+    private final List<PatternRoute> patternRoutes;
+    private final Map<String, CompiledRule[]> byId;
+    private final int size;
+
+    private RateLimitRuleTable(Map<String, Route> literalRoutes, List<PatternRoute> patternRoutes,
+            Map<String, CompiledRule[]> byId, int size) {
+        this.literalRoutes = literalRoutes;
+        this.patternRoutes = patternRoutes;
+        this.byId = byId;
+        this.size = size;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Rules for a path within the application, raw as in the request line. Handlers are matched on the decoded
+     * path with {@code ;parameters} removed, so literal paths are looked up the same way and
+     * {@code /api/%70osts;x=1} gets the limits of {@code /api/posts}.
+     */
+    public CompiledRule[] match(String method, String path) {
+        return isLookupPath(path) ? match(method, path, null) : match(method, PathContainer.parsePath(path));
+    }
+
+    public CompiledRule[] match(String method, PathContainer path) {
+        String value = path.value();
+        return match(method, isLookupPath(value) ? value : lookupPath(path), path);
+    }
+
+    private CompiledRule[] match(String method, String lookupPath, PathContainer container) {
+        Route route = literalRoutes.get(lookupPath);
+        if (route != null) {
+            return route.rules(method);
+        }
+        if (!patternRoutes.isEmpty()) {
+            if (container == null) {
+                container = PathContainer.parsePath(lookupPath);
+            }
+            for (PatternRoute patternRoute : patternRoutes) {
+                if (patternRoute.pattern.matches(container)) {
+                    return patternRoute.route.rules(method);
+                }
+            }
+        }
+        return NONE;
+    }
+
+    // Nothing to decode or strip, the common case: no parsing on the hot path
+    private static boolean isLookupPath(String path) {
+        return path.indexOf('%') < 0 && path.indexOf(';') < 0;
+    }
+
+    private static String lookupPath(PathContainer path) {
+        StringBuilder lookupPath = new StringBuilder(path.value().length());
+        for (PathContainer.Element element : path.elements()) {
+            lookupPath.append(element instanceof PathContainer.PathSegment segment
+                    ? segment.valueToMatch() : element.value());
+        }
+        return lookupPath.toString();
+    }
+
+    // Stacked limits of one endpoint share its id
+    public CompiledRule[] rules(String id) {
+        return byId.getOrDefault(id, NONE);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private record Route(Map<String, CompiledRule[]> byMethod) {
+        private CompiledRule[] rules(String method) {
+            CompiledRule[] rules = byMethod.get(method);
+            if (rules == null) {
+                rules = byMethod.getOrDefault(ANY_METHOD, NONE);
+            }
+            return rules;
+        }
+    }
+
+    private record PatternRoute(PathPattern pattern, Route route) {
+    }
+
+    public static final class Builder {
+        private final Map<String, Map<String, List<CompiledRule>>> rules = new LinkedHashMap<>();
+        private final Map<String, List<CompiledRule>> byId = new LinkedHashMap<>();
+        private Builder() {
+        }
+
+        // A null or empty method applies the rule to every HTTP method of the path
+        public Builder add(String method, String path, CompiledRule rule) {
+            String methodKey = method == null || method.isEmpty() ? ANY_METHOD : method.toUpperCase();
+            rules.computeIfAbsent(path, p -> new LinkedHashMap<>())
+                    .computeIfAbsent(methodKey, m -> new ArrayList<>())
+                    .add(rule);
+            byId.computeIfAbsent(rule.rule().id(), id -> new ArrayList<>()).add(rule);
+            return this;
+        }
+
+        public RateLimitRuleTable build() {
+            return build(rule -> true);
+        }
+
+        // A table of the rules that pass the filter; its paths still shadow patterns as in the unfiltered table
+        public RateLimitRuleTable build(Predicate<CompiledRule> filter) {
+            Map<String, Route> literalRoutes = new HashMap<>();
+            List<PatternRoute> patternRoutes = new ArrayList<>();
+            PathPatternParser parser = PathPatternParser.defaultInstance;
+
+            rules.forEach((path, byMethod) -> {
+                List<CompiledRule> anyMethod = byMethod.getOrDefault(ANY_METHOD, List.of());
+                Map<String, CompiledRule[]> compiled = new HashMap<>();
+                byMethod.forEach((method, methodRules) -> {
+                    List<CompiledRule> all = new ArrayList<>(methodRules);
+                    if (!method.equals(ANY_METHOD)) {
+                        all.addAll(anyMethod);
+                    }
+                    all.removeIf(filter.negate());
+                    compiled.put(method, all.toArray(NONE));
+                });
+
+                Route route = new Route(Map.copyOf(compiled));
+                PathPattern pattern = parser.parse(path);
+                if (pattern.hasPatternSyntax()) {
+                    patternRoutes.add(new PatternRoute(pattern, route));
+                } else {
+                    literalRoutes.put(path, route);
+                }
+            });
+
+            patternRoutes.sort((a, b) -> PathPattern.SPECIFICITY_COMPARATOR.compare(a.pattern, b.pattern));
+            Map<String, CompiledRule[]> rulesById = new HashMap<>();
+            int size = 0;
+            for (Map.Entry<String, List<CompiledRule>> entry : byId.entrySet()) {
+                CompiledRule[] idRules = entry.getValue().stream().filter(filter).toArray(CompiledRule[]::new);
+                if (idRules.length > 0) {
+                    rulesById.put(entry.getKey(), idRules);
+                    size += idRules.length;
+                }
+            }
+            return new RateLimitRuleTable(Map.copyOf(literalRoutes), List.copyOf(patternRoutes),
+                    Map.copyOf(rulesById), size);
+        }
+    }
+}
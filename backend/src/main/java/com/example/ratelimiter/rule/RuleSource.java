@@ -0,0 +1,7 @@
+package com.example.ratelimiter.rule;
+
+// Sources of endpoint rules reloaded at runtime; rules of a later source replace those of the same name before it
+public enum RuleSource {
+    FILE,
+    REDIS
+}
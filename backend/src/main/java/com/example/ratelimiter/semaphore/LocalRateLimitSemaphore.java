@@ -0,0 +1,110 @@
+package com.example.ratelimiter.semaphore;
+
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.rule.RateLimitRule;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process semaphores for concurrent rules: the semaphore of the local backend, and the fallback of the
+ * Redis one, which then caps each node at {@code limit / node-count} like the rate limit fallback.
+ */
+@Component
+@ConditionalOnProperty(prefix = "rate-limiter", name = "backend", havingValue = "local")
+public class LocalRateLimitSemaphore implements RateLimitSemaphore {
+    private final int nodeCount;
+    private final int maxKeys;
+    private final long maxWaitNanos;
+    private final Map<Subject, Slot> semaphores = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LocalRateLimitSemaphore(RateLimiterConfig config) {
+        this(config, 1);
+    }
+
+    LocalRateLimitSemaphore(RateLimiterConfig config, int nodeCount) {
+        this.nodeCount = Math.max(1, nodeCount);
+        this.maxKeys = config.getLocal().getMaxKeys();
+        this.maxWaitNanos = config.getSemaphore().getMaxWait().toNanos();
+    }
+
+    @Override
+    public SemaphorePermit tryAcquire(RateLimitRule rule, String key) {
+        // Taken from the rule on every call, so a reloaded limit applies to the semaphore already in use
+        int permits = (int) Math.max(1, (rule.limit() + nodeCount - 1) / nodeCount);
+        Subject subject = new Subject(rule.id(), key);
+        if (semaphores.size() >= maxKeys && !semaphores.containsKey(subject)) {
+            evictIdle();
+        }
+        // Pinned until the permit, if any, is held, so eviction cannot drop the slot in between
+        Slot slot = semaphores.compute(subject, (s, current) -> {
+            Slot pinned = current != null ? current : new Slot();
+            pinned.acquiring++;
+            return pinned;
+        });
+        try {
+            return slot.acquire(permits, maxWaitNanos) ? slot::release : null;
+        } finally {
+            semaphores.computeIfPresent(subject, (s, current) -> {
+                current.acquiring--;
+                return current;
+            });
+        }
+    }
+
+    // A slot in use stays: its held permits must keep counting against the subject
+    private void evictIdle() {
+        for (Subject subject : semaphores.keySet()) {
+            semaphores.computeIfPresent(subject, (s, slot) -> slot.isIdle() ? null : slot);
+        }
+    }
+
+    private record Subject(String rule, String key) {
+    }
+
+    // A semaphore whose size is that of the latest acquisition
+    private static final class Slot {
+        private int acquiring; // Requests acquiring or waiting; only changed under the map entry's lock
+        private int limit;
+        private int held;
+
+        private synchronized boolean acquire(int permits, long maxWaitNanos) {
+            if (permits > limit) {
+                // A raised limit may admit requests already waiting
+                notifyAll();
+            }
+            limit = permits;
+            long deadline = System.nanoTime() + maxWaitNanos;
+            while (held >= limit) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    // Passes on a release this thread may have been woken for
+                    notify();
+                    return false;
+                }
+            }
+            held++;
+            return true;
+        }
+
+        private synchronized void release() {
+            held--;
+            notify();
+        }
+
+        private synchronized boolean isIdle() {
+            return acquiring == 0 && held == 0;
+        }
+    }
+}
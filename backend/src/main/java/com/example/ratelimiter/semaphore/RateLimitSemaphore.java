@@ -0,0 +1,10 @@
+package com.example.ratelimiter.semaphore;
+
+import com.example.ratelimiter.rule.RateLimitRule;
+
+// Caps simultaneous executions for rules of type "concurrent"
+public interface RateLimitSemaphore {
+    // key is the subject, or null for rules without a key header; null when no permit freed up within
+    // rate-limiter.semaphore.max-wait
+    SemaphorePermit tryAcquire(RateLimitRule rule, String key);
+}
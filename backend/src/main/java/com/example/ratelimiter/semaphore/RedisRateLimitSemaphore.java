@@ -0,0 +1,342 @@
+package com.example.ratelimiter.semaphore;
+
+import com.example.ratelimiter.algorithm.LuaScripts;
+import com.example.ratelimiter.codec.RedisKeyCodec;
+import com.example.ratelimiter.codec.StateKey;
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.metrics.RateLimitMetrics;
+import com.example.ratelimiter.resilience.FallbackLimiter;
+import com.example.ratelimiter.rule.RateLimitRule;
+import com.example.ratelimiter.shard.RedisShard;
+import com.example.ratelimiter.shard.RedisShardRouter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cluster-wide semaphores for concurrent rules. A semaphore is a sorted set of the permits held, each scored
+ * by its lease expiry: acquiring and releasing take one script call each, leases of permits still in use are
+ * renewed in the background, and the permits of a node that dies free up once their leases run out.
+ * Requests allowed to wait queue on their node; a permit released on the node goes straight to its next
+ * waiter, and permits freed elsewhere are requested for all waiters of a semaphore in one call.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "rate-limiter", name = "backend", havingValue = "redis", matchIfMissing = true)
+public class RedisRateLimitSemaphore implements RateLimitSemaphore {
+    @SuppressWarnings("rawtypes")
+    static final RedisScript<List> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            LuaScripts.load("scripts/semaphore_acquire.lua"), List.class);
+    static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            LuaScripts.load("scripts/semaphore_release.lua"), Long.class);
+    static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            LuaScripts.load("scripts/semaphore_renew.lua"), Long.class);
+
+    private final RedisShardRouter shards;
+    private final RedisKeyCodec codec;
+    private final RateLimitMetrics metrics;
+    private final LocalRateLimitSemaphore fallback;
+    private final byte[] leaseMillis;
+    private final long leaseNanos;
+    private final long maxWaitNanos;
+    private final long pollMillis;
+    private final String tokenPrefix = UUID.randomUUID() + ":";
+    private final AtomicLong nextToken = new AtomicLong();
+    private final Map<StateKey, SharedSemaphore> semaphores = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public RedisRateLimitSemaphore(RedisShardRouter shards, RedisKeyCodec codec, RateLimiterConfig config,
+            RateLimitMetrics metrics) {
+        RateLimiterConfig.Semaphore settings = config.getSemaphore();
+        this.shards = shards;
+        this.codec = codec;
+        this.metrics = metrics;
+        this.fallback = new LocalRateLimitSemaphore(config, config.getResilience().getNodeCount());
+        this.leaseMillis = RedisKeyCodec.ascii(settings.getLease().toMillis());
+        this.leaseNanos = settings.getLease().toNanos();
+        this.maxWaitNanos = settings.getMaxWait().toNanos();
+        this.pollMillis = Math.max(1, settings.getPollInterval().toMillis());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limiter-semaphore");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Leases are renewed well before they run out, so a slow renewal does not cost a permit
+        long renewMillis = Math.max(1, settings.getLease().toMillis() / 3);
+        scheduler.scheduleWithFixedDelay(this::renewAll, renewMillis, renewMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public SemaphorePermit tryAcquire(RateLimitRule rule, String key) {
+        StateKey state = codec.semaphoreState(key, rule);
+        // Pinned until the permit, if any, is among its tokens, so renewal cannot drop the semaphore in between
+        SharedSemaphore semaphore = semaphores.compute(state, (s, current) -> {
+            SharedSemaphore pinned = current != null ? current
+                    : new SharedSemaphore(rule, shards.shardFor(s.subject()), codec.semaphoreKey(s));
+            pinned.acquiring++;
+            return pinned;
+        });
+        try {
+            return tryAcquire(semaphore, rule, key);
+        } finally {
+            semaphores.computeIfPresent(state, (s, current) -> {
+                current.acquiring--;
+                return current;
+            });
+        }
+    }
+
+    private SemaphorePermit tryAcquire(SharedSemaphore semaphore, RateLimitRule rule, String key) {
+        if (!semaphore.shard.circuitBreaker().allowRequest()) {
+            return fallback(rule, key);
+        }
+
+        String token = nextToken();
+        long granted;
+        long start = System.nanoTime();
+        try {
+            granted = semaphore.acquire(List.of(token), rule.limit());
+        } catch (DataAccessException e) {
+            if (!semaphore.shard.circuitBreaker().onFailure(e)) {
+                throw e;
+            }
+            return fallback(rule, key);
+        } finally {
+            metrics.recordRedis(System.nanoTime() - start);
+        }
+        semaphore.shard.circuitBreaker().onSuccess();
+        if (granted > 0) {
+            return semaphore.held(token);
+        }
+        return maxWaitNanos > 0 ? semaphore.await() : null;
+    }
+
+    public int heldPermits() {
+        int held = 0;
+        for (SharedSemaphore semaphore : semaphores.values()) {
+            held += semaphore.tokens.size();
+        }
+        return held;
+    }
+
+    public int waitingRequests() {
+        int waiting = 0;
+        for (SharedSemaphore semaphore : semaphores.values()) {
+            waiting += semaphore.waiters.size();
+        }
+        return waiting;
+    }
+
+    // Hands the permits back so the rest of the cluster does not wait for their leases to run out
+    @PreDestroy
+    public void releaseAll() {
+        scheduler.shutdownNow();
+        semaphores.values().forEach(semaphore -> {
+            List<String> tokens = new ArrayList<>(semaphore.tokens);
+            if (!tokens.isEmpty()) {
+                semaphore.release(tokens);
+            }
+        });
+        semaphores.clear();
+    }
+
+    private SemaphorePermit fallback(RateLimitRule rule, String key) {
+        metrics.recordFallback(rule.failureMode());
+        return switch (rule.failureMode()) {
+            case FallbackLimiter.OPEN -> SemaphorePermit.NONE;
+            case FallbackLimiter.CLOSED -> null;
+            default -> fallback.tryAcquire(rule, key);
+        };
+    }
+
+    private String nextToken() {
+        return tokenPrefix + nextToken.incrementAndGet();
+    }
+
+    void renewAll() {
+        long now = System.nanoTime();
+        semaphores.forEach((state, semaphore) -> {
+            List<String> tokens = new ArrayList<>(semaphore.tokens);
+            if (tokens.isEmpty()) {
+                // Decided under the entry's lock, which every acquisition takes before it can add a token
+                semaphores.computeIfPresent(state, (s, current) -> current.acquiring == 0 && current.tokens.isEmpty()
+                        && now - current.lastUsed > leaseNanos ? null : current);
+                return;
+            }
+            try {
+                long renewed = semaphore.renew(tokens);
+                if (renewed < tokens.size()) {
+                    log.warn("{} permits of {} expired before their executions ended", tokens.size() - renewed,
+                            state);
+                }
+            } catch (DataAccessException e) {
+                log.warn("Could not renew {} permits of {}: {}", tokens.size(), state, e.getMessage());
+            }
+        });
+    }
+
+    private final class SharedSemaphore {
+        private final RateLimitRule rule;
+        private final RedisShard shard;
+        private final byte[] key;
+        private volatile long limit; // Of the latest acquisition, which waiters are granted permits under
+        private final Set<String> tokens = ConcurrentHashMap.newKeySet();
+        private final Queue<CompletableFuture<SemaphorePermit>> waiters = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean polling = new AtomicBoolean();
+        private volatile long lastUsed = System.nanoTime();
+        private int acquiring; // Requests acquiring or waiting; only changed under the map entry's lock
+
+        private SharedSemaphore(RateLimitRule rule, RedisShard shard, byte[] key) {
+            this.rule = rule;
+            this.shard = shard;
+            this.key = key;
+        }
+
+        @SuppressWarnings("unchecked")
+        private long acquire(List<String> candidates, long limit) {
+            this.limit = limit;
+            Object[] args = encode(candidates, 2);
+            args[0] = RedisKeyCodec.ascii(limit);
+            args[1] = leaseMillis;
+            List<Long> result = shard.template().execute(ACQUIRE_SCRIPT, List.of(key), args);
+            if (result == null || result.size() < 2) {
+                throw new IllegalStateException("Unexpected semaphore script result for " + rule.id());
+            }
+            lastUsed = System.nanoTime();
+            return result.get(0);
+        }
+
+        private void release(List<String> released) {
+            tokens.removeAll(released);
+            try {
+                shard.template().execute(RELEASE_SCRIPT, List.of(key), encode(released, 0));
+            } catch (DataAccessException e) {
+                // The lease runs out on its own
+                log.warn("Could not release {} permits of {}: {}", released.size(), rule.id(), e.getMessage());
+            }
+        }
+
+        private long renew(List<String> renewed) {
+            Object[] args = encode(renewed, 1);
+            args[0] = leaseMillis;
+            Long result = shard.template().execute(RENEW_SCRIPT, List.of(key), args);
+            return result == null ? 0 : result;
+        }
+
+        private SemaphorePermit held(String token) {
+            tokens.add(token);
+            return () -> handOff(token);
+        }
+
+        // A permit released while requests on this node wait goes to the next of them under the same lease
+        private void handOff(String token) {
+            CompletableFuture<SemaphorePermit> waiter;
+            while ((waiter = waiters.poll()) != null) {
+                if (waiter.complete(() -> handOff(token))) {
+                    return;
+                }
+            }
+            release(List.of(token));
+        }
+
+        private SemaphorePermit await() {
+            CompletableFuture<SemaphorePermit> waiter = new CompletableFuture<>();
+            waiters.add(waiter);
+            schedulePoll();
+            try {
+                return waiter.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException | ExecutionException e) {
+                return abandon(waiter);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return abandon(waiter);
+            }
+        }
+
+        // A permit granted just as the wait ended is kept rather than leaked
+        private SemaphorePermit abandon(CompletableFuture<SemaphorePermit> waiter) {
+            if (waiter.complete(null)) {
+                waiters.remove(waiter);
+                return null;
+            }
+            return waiter.join();
+        }
+
+        private void schedulePoll() {
+            if (polling.compareAndSet(false, true)) {
+                scheduler.schedule(this::poll, pollMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        // Requests permits for every waiter of the semaphore in one script call
+        private void poll() {
+            try {
+                waiters.removeIf(CompletableFuture::isDone);
+                int waiting = waiters.size();
+                if (waiting > 0 && shard.circuitBreaker().allowRequest()) {
+                    List<String> candidates = new ArrayList<>(waiting);
+                    for (int i = 0; i < waiting; i++) {
+                        candidates.add(nextToken());
+                    }
+                    grant(candidates, (int) acquire(candidates, limit));
+                }
+            } catch (DataAccessException e) {
+                log.debug("Could not acquire permits of {} for waiting requests: {}", rule.id(), e.getMessage());
+            } finally {
+                polling.set(false);
+                if (!waiters.isEmpty()) {
+                    schedulePoll();
+                }
+            }
+        }
+
+        private void grant(List<String> candidates, int granted) {
+            List<String> unused = new ArrayList<>();
+            for (int i = 0; i < granted; i++) {
+                String token = candidates.get(i);
+                tokens.add(token);
+                CompletableFuture<SemaphorePermit> waiter;
+                boolean taken = false;
+                while (!taken && (waiter = waiters.poll()) != null) {
+                    taken = waiter.complete(() -> handOff(token));
+                }
+                if (!taken) {
+                    unused.add(token);
+                }
+            }
+            if (!unused.isEmpty()) {
+                release(unused);
+            }
+        }
+
+        private Object[] encode(List<String> values, int offset) {
+            Object[] args = new Object[values.size() + offset];
+            for (int i = 0; i < values.size(); i++) {
+                args[i + offset] = values.get(i).getBytes(StandardCharsets.US_ASCII);
+            }
+            return args;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.ratelimiter.semaphore;
+
+// A held permit of a concurrent rule's semaphore, released exactly once when the execution ends
+@FunctionalInterface
+public interface SemaphorePermit {
+    // Admitted without holding a permit, as with the open failure mode while Redis is unavailable
+    SemaphorePermit NONE = () -> {
+    };
+
+    void release();
+}
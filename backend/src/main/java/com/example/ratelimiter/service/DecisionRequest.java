@@ -0,0 +1,11 @@
+package com.example.ratelimiter.service;
+
+import com.example.ratelimiter.rule.CompiledRule;
+
+// One item of RateLimiterService.isAllowedBatch: cost permits of rule for the subject key
+public record DecisionRequest(CompiledRule rule, String key, int cost) {
+
+    public DecisionRequest(CompiledRule rule, String key) {
+        this(rule, key, 1);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.ratelimiter.service;
+
+import com.example.ratelimiter.rule.CompiledRule;
+
+import java.util.Arrays;
+
+public interface RateLimitBackend {
+    default RateLimitDecision tryAcquire(CompiledRule rule, String key) {
+        return tryAcquire(rule, key, 1, new RedisCalls());
+    }
+
+    // Takes all the permits a request costs, or none of them; the round trips it makes are summed on calls
+    RateLimitDecision tryAcquire(CompiledRule rule, String key, int permits, RedisCalls calls);
+
+    default RateLimitDecision[] tryAcquireAll(CompiledRule[] rules, String[] keys) {
+        return tryAcquireAll(rules, keys, singlePermits(rules.length), new RedisCalls());
+    }
+
+    // Evaluates all rules that apply to one request, all-or-nothing; keys[i] is the subject of rules[i], which
+    // costs permits[i]
+    RateLimitDecision[] tryAcquireAll(CompiledRule[] rules, String[] keys, int[] permits, RedisCalls calls);
+
+    // Independent decisions, one per rule and key, as asked for by a gateway on behalf of many requests
+    default RateLimitDecision[] tryAcquireBatch(CompiledRule[] rules, String[] keys, int[] permits,
+            RedisCalls calls) {
+        RateLimitDecision[] decisions = new RateLimitDecision[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            decisions[i] = tryAcquire(rules[i], keys[i], permits[i], calls);
+        }
+        return decisions;
+    }
+
+    boolean supports(String algorithm);
+
+    static int[] singlePermits(int count) {
+        int[] permits = new int[count];
+        Arrays.fill(permits, 1);
+        return permits;
+    }
+}
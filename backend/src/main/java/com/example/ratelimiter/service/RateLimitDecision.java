@@ -0,0 +1,4 @@
+package com.example.ratelimiter.service;
+
+public record RateLimitDecision(boolean allowed, long limit, long remaining, long resetMillis) {
+}
@@ -1,38 +1,198 @@
 package com.example.ratelimiter.service;
 
+import com.example.ratelimiter.codec.RedisKeyCodec;
 import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.events.DecisionEventLog;
+import com.example.ratelimiter.headers.RateLimitHeaders;
+import com.example.ratelimiter.metrics.RateLimitMetrics;
+import com.example.ratelimiter.resilience.FallbackLimiter;
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.rule.RateLimitCost;
+import com.example.ratelimiter.rule.RateLimitRule;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @RequiredArgsConstructor
 public class RateLimiterService {
-    private final RedisTemplate<String, String> redisTemplate;
     private final RateLimiterConfig config;
+    private final RateLimitBackend backend;
+    private final RateLimitMetrics metrics;
+    private final DecisionEventLog events;
+    private final RedisKeyCodec codec;
+    private final Map<AdHocRule, CompiledRule> adHocRules = new ConcurrentHashMap<>();
 
     public boolean isAllowed(String key, String type, int customLimit) {
-        String redisKey = String.format("%s:%s", key, type);
-        String currentCount = redisTemplate.opsForValue().get(redisKey);
+        return isAllowed(key, type, customLimit, null);
+    }
+
+    public boolean isAllowed(String key, String type, int customLimit, String algorithm) {
+        return tryAcquire(key, type, customLimit, algorithm).allowed();
+    }
 
+    public RateLimitDecision tryAcquire(String key, String type, int customLimit, String algorithm) {
+        String algorithmName = algorithm == null || algorithm.isEmpty() ? config.getDefaultAlgorithm() : algorithm;
         int limit = getLimit(type, customLimit);
-        Duration duration = getDuration(type);
+        // Kept per combination, so callers alternating limits or algorithms do not compile a rule on every call
+        CompiledRule rule = adHocRules.computeIfAbsent(new AdHocRule(type, limit, algorithmName),
+                adHoc -> compile(new RateLimitRule(type, null, type, algorithmName, limit, getDuration(type),
+                        config.getResilience().getFailureMode())));
+        return tryAcquire(rule, key);
+    }
+
+    private record AdHocRule(String type, int limit, String algorithm) {
+    }
+
+    public RateLimitDecision tryAcquire(CompiledRule rule, String key) {
+        return tryAcquire(rule, key, 1);
+    }
+
+    public RateLimitDecision tryAcquire(CompiledRule rule, String key, int permits) {
+        RedisCalls calls = RedisCalls.start(config);
+        long start = metrics.startDecision();
+        RateLimitDecision decision = backend.tryAcquire(rule, key, permits, calls);
+        metrics.recordDecision(start, calls);
+        metrics.recordOutcome(rule, key, decision);
+        events.record(rule.rule(), key, decision);
+        return decision;
+    }
 
-        if (currentCount == null) {
-            redisTemplate.opsForValue().set(redisKey, "1", duration);
-            return true;
+    public RateLimitDecision[] tryAcquireAll(CompiledRule[] rules, String[] keys) {
+        return tryAcquireAll(rules, keys, RateLimitBackend.singlePermits(rules.length));
+    }
+
+    // permits[i] is what the request costs under rules[i], as resolved from the rule's cost
+    public RateLimitDecision[] tryAcquireAll(CompiledRule[] rules, String[] keys, int[] permits) {
+        RedisCalls calls = RedisCalls.start(config);
+        long start = metrics.startDecision();
+        RateLimitDecision[] decisions = backend.tryAcquireAll(rules, keys, permits, calls);
+        metrics.recordDecision(start, calls);
+        for (int i = 0; i < rules.length; i++) {
+            metrics.recordOutcome(rules[i], keys[i], decisions[i]);
+            events.record(rules[i].rule(), keys[i], decisions[i]);
+        }
+        return decisions;
+    }
+
+    // Independent decisions for many requests at once; the backend needs one round trip per Redis node
+    public List<RateLimitDecision> isAllowedBatch(List<DecisionRequest> requests) {
+        if (requests.size() > config.getMaxBatchSize()) {
+            throw new IllegalArgumentException("Batch of " + requests.size() + " decisions exceeds the maximum of "
+                    + config.getMaxBatchSize());
+        }
+        CompiledRule[] rules = new CompiledRule[requests.size()];
+        String[] keys = new String[requests.size()];
+        int[] permits = new int[requests.size()];
+        for (int i = 0; i < rules.length; i++) {
+            DecisionRequest request = requests.get(i);
+            if (request.rule() == null || request.key() == null || request.key().isEmpty()) {
+                throw new IllegalArgumentException("Decision " + i + " needs a rule and a key");
+            }
+            if (request.cost() < 1) {
+                throw new IllegalArgumentException("Decision " + i + " has cost " + request.cost()
+                        + "; costs must be at least 1");
+            }
+            rules[i] = request.rule();
+            keys[i] = request.key();
+            permits[i] = request.cost();
         }
 
-        int count = Integer.parseInt(currentCount);
-        if (count >= limit) {
-            return false;
+        RedisCalls calls = RedisCalls.start(config);
+        long start = metrics.startDecision();
+        RateLimitDecision[] decisions = backend.tryAcquireBatch(rules, keys, permits, calls);
+        metrics.recordDecision(start, calls);
+        for (int i = 0; i < rules.length; i++) {
+            metrics.recordOutcome(rules[i], keys[i], decisions[i]);
+            events.record(rules[i].rule(), keys[i], decisions[i]);
         }
+        return Arrays.asList(decisions);
+    }
 
-        redisTemplate.opsForValue().increment(redisKey);
-        return true;
+    public CompiledRule compileRule(String id, String header, String type, int customLimit, String algorithm) {
+        return compileRule(id, header, type, customLimit, algorithm, null);
+    }
+
+    // Resolves and validates a rule once so the hot path does no lookups by type or algorithm name
+    public CompiledRule compileRule(String id, String header, String type, int customLimit, String algorithm,
+            String failureMode) {
+        return compileRule(id, header, type, customLimit, algorithm, failureMode, null);
+    }
+
+    public CompiledRule compileRule(String id, String header, String type, int customLimit, String algorithm,
+            String failureMode, String cost) {
+        return compile(resolveRule(id, header, type, customLimit, algorithm, failureMode, cost));
+    }
+
+    // What decisions derive from a rule, derived once: its script arguments, its RateLimit-Policy entry and its
+    // outcome counters. In-flight limits keep no window state in Redis, so they have nothing to encode
+    public CompiledRule compile(RateLimitRule rule) {
+        return new CompiledRule(rule, rule.isInFlight() ? null : codec.encode(rule), RateLimitHeaders.policy(rule),
+                metrics.outcomeCounter(rule, "allowed"), metrics.outcomeCounter(rule, "denied"));
+    }
+
+    private RateLimitRule resolveRule(String id, String header, String type, int customLimit, String algorithm,
+            String failureMode, String cost) {
+        String resolvedType = type == null || type.isEmpty() ? "second" : type;
+        if (RateLimitRule.CONCURRENCY.equals(resolvedType)) {
+            return compileConcurrencyRule(id, customLimit, algorithm);
+        }
+        if (RateLimitRule.CONCURRENT.equals(resolvedType)) {
+            return compileConcurrentRule(id, header, customLimit, failureMode);
+        }
+        if (header == null || header.isEmpty()) {
+            throw new IllegalArgumentException("Rate limit rule " + id + " has no key header");
+        }
+        String algorithmName = algorithm == null || algorithm.isEmpty() ? config.getDefaultAlgorithm() : algorithm;
+        if (!backend.supports(algorithmName)) {
+            throw new IllegalArgumentException("Rate limit algorithm " + algorithmName + " of rule " + id
+                    + " is not supported by the " + config.getBackend() + " backend");
+        }
+        String resolvedFailureMode = resolveFailureMode(id, failureMode);
+        RateLimitCost resolvedCost;
+        try {
+            resolvedCost = RateLimitCost.parse(cost);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(e.getMessage() + " of rule " + id, e);
+        }
+        return new RateLimitRule(id, header, resolvedType, algorithmName, getLimit(resolvedType, customLimit),
+                getDuration(resolvedType), resolvedFailureMode, resolvedCost);
+    }
+
+    // Concurrency limits are enforced per node around the handler and have no key, window or Redis state
+    private RateLimitRule compileConcurrencyRule(String id, int customLimit, String algorithm) {
+        if (algorithm != null && !algorithm.isEmpty() && !algorithm.equals(RateLimitRule.GRADIENT)) {
+            throw new IllegalArgumentException("Rate limit algorithm " + algorithm + " of rule " + id
+                    + " does not apply to concurrency limits");
+        }
+        long maxLimit = customLimit > 0 ? customLimit : config.getConcurrency().getMaxLimit();
+        return new RateLimitRule(id, null, RateLimitRule.CONCURRENCY, RateLimitRule.GRADIENT, maxLimit,
+                Duration.ZERO, config.getResilience().getFailureMode());
+    }
+
+    // The key header is optional: without one the semaphore caps the endpoint as a whole
+    private RateLimitRule compileConcurrentRule(String id, String header, int customLimit, String failureMode) {
+        if (customLimit <= 0) {
+            throw new IllegalArgumentException("Concurrent rate limit rule " + id + " needs a limit");
+        }
+        return new RateLimitRule(id, header == null || header.isEmpty() ? null : header, RateLimitRule.CONCURRENT,
+                RateLimitRule.SEMAPHORE, customLimit, config.getSemaphore().getLease(),
+                resolveFailureMode(id, failureMode));
+    }
+
+    private String resolveFailureMode(String id, String failureMode) {
+        String resolved = failureMode == null || failureMode.isEmpty()
+                ? config.getResilience().getFailureMode() : failureMode;
+        if (!FallbackLimiter.FAILURE_MODES.contains(resolved)) {
+            throw new IllegalArgumentException("Invalid rate limit failure mode " + resolved + " of rule " + id);
+        }
+        return resolved;
     }
 
     private int getLimit(String type, int customLimit) {
@@ -56,4 +216,4 @@ public class RateLimiterService {
             default -> throw new IllegalArgumentException("Invalid rate limit type: " + type);
         };
     }
-}
\ No newline at end of file
+}
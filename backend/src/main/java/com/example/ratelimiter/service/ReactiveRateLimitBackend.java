@@ -0,0 +1,20 @@
+package com.example.ratelimiter.service;
+
+import com.example.ratelimiter.rule.CompiledRule;
+import reactor.core.publisher.Mono;
+
+// Non-blocking counterpart of RateLimitBackend; implementations must never block the subscribing thread
+public interface ReactiveRateLimitBackend {
+    default Mono<RateLimitDecision> tryAcquire(CompiledRule rule, String key) {
+        return tryAcquire(rule, key, 1);
+    }
+
+    Mono<RateLimitDecision> tryAcquire(CompiledRule rule, String key, int permits);
+
+    default Mono<RateLimitDecision[]> tryAcquireAll(CompiledRule[] rules, String[] keys) {
+        return tryAcquireAll(rules, keys, RateLimitBackend.singlePermits(rules.length));
+    }
+
+    // Evaluates all rules that apply to one request, all-or-nothing; keys[i] is the subject of rules[i]
+    Mono<RateLimitDecision[]> tryAcquireAll(CompiledRule[] rules, String[] keys, int[] permits);
+}
@@ -0,0 +1,52 @@
+package com.example.ratelimiter.service;
+
+import com.example.ratelimiter.events.DecisionEventLog;
+import com.example.ratelimiter.metrics.RateLimitMetrics;
+import com.example.ratelimiter.rule.CompiledRule;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * Decides compiled rules without parking a thread for the Redis round trip. Rules are compiled by
+ * {@link RateLimiterService#compileRule}, the same as for the blocking path.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReactiveRateLimiterService {
+    private final ReactiveRateLimitBackend backend;
+    private final RateLimitMetrics metrics;
+    private final DecisionEventLog events;
+
+    public Mono<RateLimitDecision> tryAcquire(CompiledRule rule, String key) {
+        return tryAcquire(rule, key, 1);
+    }
+
+    public Mono<RateLimitDecision> tryAcquire(CompiledRule rule, String key, int permits) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return backend.tryAcquire(rule, key, permits).doOnNext(decision -> {
+                metrics.recordAsyncDecision(System.nanoTime() - start);
+                metrics.recordOutcome(rule, key, decision);
+                events.record(rule.rule(), key, decision);
+            });
+        });
+    }
+
+    public Mono<RateLimitDecision[]> tryAcquireAll(CompiledRule[] rules, String[] keys) {
+        return tryAcquireAll(rules, keys, RateLimitBackend.singlePermits(rules.length));
+    }
+
+    public Mono<RateLimitDecision[]> tryAcquireAll(CompiledRule[] rules, String[] keys, int[] permits) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return backend.tryAcquireAll(rules, keys, permits).doOnNext(decisions -> {
+                metrics.recordAsyncDecision(System.nanoTime() - start);
+                for (int i = 0; i < rules.length; i++) {
+                    metrics.recordOutcome(rules[i], keys[i], decisions[i]);
+                    events.record(rules[i].rule(), keys[i], decisions[i]);
+                }
+            });
+        });
+    }
+}
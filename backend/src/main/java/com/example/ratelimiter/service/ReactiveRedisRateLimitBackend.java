@@ -0,0 +1,180 @@
+package com.example.ratelimiter.service;
+
+import com.example.ratelimiter.algorithm.LuaScripts;
+import com.example.ratelimiter.algorithm.RateLimitAlgorithmRegistry;
+import com.example.ratelimiter.cache.DenyCache;
+import com.example.ratelimiter.codec.EncodedRule;
+import com.example.ratelimiter.codec.RedisKeyCodec;
+import com.example.ratelimiter.codec.StateKey;
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.metrics.RateLimitMetrics;
+import com.example.ratelimiter.resilience.FallbackLimiter;
+import com.example.ratelimiter.resilience.RedisCircuitBreaker;
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.service.RedisRateLimitBackend.Evaluation;
+import com.example.ratelimiter.shard.RedisShard;
+import com.example.ratelimiter.shard.RedisShardRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.ratelimiter.service.RedisRateLimitBackend.merge;
+import static com.example.ratelimiter.service.RedisRateLimitBackend.notEvaluated;
+import static com.example.ratelimiter.service.RedisRateLimitBackend.select;
+
+/**
+ * Runs the same rate limit script as {@link RedisRateLimitBackend} on the reactive Lettuce connection,
+ * sharing its deny cache, circuit breaker and fallback. Quota leases are not used on this path because
+ * renewing them blocks.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "rate-limiter", name = "backend", havingValue = "redis", matchIfMissing = true)
+public class ReactiveRedisRateLimitBackend implements ReactiveRateLimitBackend {
+    private final RedisShardRouter shards;
+    private final RedisKeyCodec codec;
+    private final RateLimitAlgorithmRegistry algorithms;
+    private final RateLimitMetrics metrics;
+    private final DenyCache denyCache;
+    private final FallbackLimiter fallback;
+    private final RateLimiterConfig config;
+
+    @Override
+    public Mono<RateLimitDecision> tryAcquire(CompiledRule rule, String key, int permits) {
+        return tryAcquireAll(new CompiledRule[]{rule}, new String[]{key}, new int[]{permits})
+                .map(decisions -> decisions[0]);
+    }
+
+    @Override
+    public Mono<RateLimitDecision[]> tryAcquireAll(CompiledRule[] rules, String[] keys, int[] permits) {
+        StateKey[] states = new StateKey[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            states[i] = codec.stateKey(keys[i], rules[i].encoded());
+            RateLimitDecision cached = denyCache.get(states[i], rules[i].rule().limit(), permits[i]);
+            if (cached != null) {
+                return Mono.just(RedisRateLimitBackend.cachedDenial(rules, i, cached));
+            }
+        }
+
+        RedisCalls calls = RedisCalls.start(config);
+        int[][] groups = shards.scriptGroups(states);
+        if (groups.length == 1) {
+            return evaluateAll(rules, keys, permits, states, groups[0], calls).map(Evaluation::decisions);
+        }
+        // Subjects one after the other, as in the blocking backend: a denial cancels the remaining subjects
+        // and hands back what the subjects before it took
+        return Flux.fromArray(groups)
+                .concatMap(group -> evaluateAll(rules, keys, permits, states, group, calls))
+                .takeUntil(evaluation -> !allAllowed(evaluation.decisions()))
+                .collectList()
+                .flatMap(evaluations -> {
+                    RateLimitDecision[] decisions = notEvaluated(rules);
+                    evaluations.forEach(evaluation -> merge(decisions, evaluation.group(), evaluation.decisions()));
+                    if (allAllowed(decisions)) {
+                        return Mono.just(decisions);
+                    }
+                    return Flux.fromIterable(evaluations.subList(0, evaluations.size() - 1))
+                            .concatMap(evaluation -> refund(rules, keys, permits, states, evaluation, calls))
+                            .then(Mono.just(decisions));
+                });
+    }
+
+    private Mono<Evaluation> evaluateAll(CompiledRule[] allRules, String[] allKeys, int[] allPermits,
+            StateKey[] allStates, int[] group, RedisCalls calls) {
+        CompiledRule[] rules = select(allRules, group);
+        String[] keys = select(allKeys, group);
+        int[] permits = select(allPermits, group);
+        StateKey[] states = select(allStates, group);
+        RedisShard shard = shards.shardFor(states[0].subject());
+        RedisCircuitBreaker circuitBreaker = shard.circuitBreaker();
+        if (!circuitBreaker.allowRequest()) {
+            return Mono.fromSupplier(() -> new Evaluation(group, fallback.tryAcquireAll(rules, keys, permits), false));
+        }
+
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return calls.within(LuaScripts.execute(shard.reactiveTemplate(), algorithms.getScript(),
+                            scriptKeys(states), scriptArgs(rules, states, permits)))
+                    .doOnTerminate(() -> metrics.recordRedis(System.nanoTime() - start));
+        }).map(result -> {
+            circuitBreaker.onSuccess();
+            return new Evaluation(group, decisions(rules, permits, states, result), true);
+        }).onErrorResume(DataAccessException.class, e -> circuitBreaker.onFailure(e)
+                ? Mono.fromSupplier(() -> new Evaluation(group, fallback.tryAcquireAll(rules, keys, permits), false))
+                : Mono.error(e));
+    }
+
+    private Mono<Void> refund(CompiledRule[] allRules, String[] allKeys, int[] allPermits, StateKey[] allStates,
+            Evaluation evaluation, RedisCalls calls) {
+        CompiledRule[] rules = select(allRules, evaluation.group());
+        int[] permits = select(allPermits, evaluation.group());
+        if (!evaluation.redis()) {
+            String[] keys = select(allKeys, evaluation.group());
+            for (int i = 0; i < rules.length; i++) {
+                fallback.release(rules[i].rule(), keys[i], permits[i]);
+            }
+            return Mono.empty();
+        }
+        StateKey[] states = select(allStates, evaluation.group());
+        return calls.within(LuaScripts.execute(shards.shardFor(states[0].subject()).reactiveTemplate(),
+                        algorithms.getRefundScript(), scriptKeys(states), scriptArgs(rules, states, permits)))
+                .onErrorResume(DataAccessException.class, e -> {
+                    log.warn("Could not hand back permits for {}: {}", List.of(states), e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private RateLimitDecision[] decisions(CompiledRule[] rules, int[] permits, StateKey[] states,
+            List<Long> result) {
+        if (result.size() < rules.length * 3) {
+            throw new IllegalStateException("Unexpected rate limit script result for " + List.of(states));
+        }
+
+        RateLimitDecision[] decisions = new RateLimitDecision[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            decisions[i] = new RateLimitDecision(result.get(3 * i) == 1L, rules[i].rule().limit(),
+                    result.get(3 * i + 1), result.get(3 * i + 2));
+            denyCache.put(states[i], decisions[i], permits[i]);
+        }
+        return decisions;
+    }
+
+    private List<byte[]> scriptKeys(StateKey[] states) {
+        List<byte[]> redisKeys = new ArrayList<>(states.length);
+        for (StateKey state : states) {
+            redisKeys.add(codec.redisKey(state));
+        }
+        return redisKeys;
+    }
+
+    private List<byte[]> scriptArgs(CompiledRule[] rules, StateKey[] states, int[] permits) {
+        List<byte[]> args = new ArrayList<>(rules.length * 5);
+        for (int i = 0; i < rules.length; i++) {
+            EncodedRule encoded = rules[i].encoded();
+            args.add(encoded.algorithmBytes());
+            args.add(encoded.limitBytes());
+            args.add(encoded.windowBytes());
+            args.add(codec.fieldBytes(states[i], encoded));
+            args.add(RedisKeyCodec.permits(permits[i]));
+        }
+        return args;
+    }
+
+    private static boolean allAllowed(RateLimitDecision[] decisions) {
+        for (RateLimitDecision decision : decisions) {
+            if (!decision.allowed()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
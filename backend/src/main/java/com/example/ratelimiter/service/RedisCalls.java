@@ -0,0 +1,84 @@
+package com.example.ratelimiter.service;
+
+import com.example.ratelimiter.config.RateLimiterConfig;
+import org.springframework.dao.QueryTimeoutException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The Redis round trips of one decision. With resilience enabled they share one deadline, so a decision
+ * spanning several subjects, or handing back permits after a denial, still waits at most the configured
+ * timeout in total. The time spent waiting is summed by the backend on the thread that decides.
+ */
+public final class RedisCalls {
+    private final boolean timed;
+    private final long deadline;
+    private long nanos;
+
+    public RedisCalls() {
+        this(false, 0);
+    }
+
+    private RedisCalls(boolean timed, long deadline) {
+        this.timed = timed;
+        this.deadline = deadline;
+    }
+
+    public static RedisCalls start(RateLimiterConfig config) {
+        RateLimiterConfig.Resilience resilience = config.getResilience();
+        return resilience.isEnabled()
+                ? new RedisCalls(true, System.nanoTime() + resilience.getTimeout().toNanos())
+                : new RedisCalls();
+    }
+
+    // Fails a call with QueryTimeoutException, like any other Redis timeout, once the deadline has passed
+    public <T> Mono<T> within(Mono<T> call) {
+        if (!timed) {
+            return call;
+        }
+        return Mono.defer(() -> {
+            long remaining = deadline - System.nanoTime();
+            return remaining > 0
+                    ? call.timeout(Duration.ofNanos(remaining), Mono.error(RedisCalls::timeout))
+                    : Mono.error(timeout());
+        });
+    }
+
+    // Waits for a call on the deciding thread and adds the wait to the decision's Redis time
+    public <T> T await(Mono<T> call) {
+        long start = System.nanoTime();
+        try {
+            return within(call).block();
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    // Waits on the deciding thread for calls that run at once, each bounded by within and handling its own
+    // failures, and adds the wait to the decision's Redis time once
+    public void join(List<Mono<Void>> calls) {
+        if (calls.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            Mono.when(calls).block();
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    public void record(long nanos) {
+        this.nanos += nanos;
+    }
+
+    public long nanos() {
+        return nanos;
+    }
+
+    private static QueryTimeoutException timeout() {
+        return new QueryTimeoutException("Redis calls of the rate limit decision exceeded its deadline");
+    }
+}
@@ -0,0 +1,366 @@
+package com.example.ratelimiter.service;
+
+import com.example.ratelimiter.algorithm.LuaScripts;
+import com.example.ratelimiter.algorithm.RateLimitAlgorithmRegistry;
+import com.example.ratelimiter.cache.DenyCache;
+import com.example.ratelimiter.codec.EncodedRule;
+import com.example.ratelimiter.codec.RedisKeyCodec;
+import com.example.ratelimiter.codec.StateKey;
+import com.example.ratelimiter.lease.QuotaLeaseManager;
+import com.example.ratelimiter.metrics.RateLimitMetrics;
+import com.example.ratelimiter.resilience.FallbackLimiter;
+import com.example.ratelimiter.resilience.RedisCircuitBreaker;
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.shard.RedisShard;
+import com.example.ratelimiter.shard.RedisShardRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "rate-limiter", name = "backend", havingValue = "redis", matchIfMissing = true)
+public class RedisRateLimitBackend implements RateLimitBackend {
+    private final RedisShardRouter shards;
+    private final RedisKeyCodec codec;
+    private final RateLimitAlgorithmRegistry algorithms;
+    private final QuotaLeaseManager leases;
+    private final RateLimitMetrics metrics;
+    private final DenyCache denyCache;
+    private final FallbackLimiter fallback;
+
+    @Override
+    public RateLimitDecision tryAcquire(CompiledRule rule, String key, int permits, RedisCalls calls) {
+        EncodedRule encoded = rule.encoded();
+        StateKey state = codec.stateKey(key, encoded);
+        RateLimitDecision cached = denyCache.get(state, rule.rule().limit(), permits);
+        if (cached != null) {
+            return cached;
+        }
+        RedisShard shard = shards.shardFor(state.subject());
+        RedisCircuitBreaker circuitBreaker = shard.circuitBreaker();
+        if (!circuitBreaker.allowRequest()) {
+            return fallback.tryAcquire(rule.rule(), key, permits);
+        }
+
+        RateLimitDecision decision;
+        try {
+            // Leases hand out single permits; costlier requests take theirs from Redis directly
+            decision = permits == 1 && leases.isLeasable(encoded.algorithm(), rule.rule().limit())
+                    ? leases.tryAcquire(state, encoded, rule.rule().limit(), calls)
+                    : evaluate(shard, state, encoded, rule.rule().limit(), permits, calls);
+        } catch (DataAccessException e) {
+            if (!circuitBreaker.onFailure(e)) {
+                throw e;
+            }
+            return fallback.tryAcquire(rule.rule(), key, permits);
+        }
+        circuitBreaker.onSuccess();
+        denyCache.put(state, decision, permits);
+        return decision;
+    }
+
+    private RateLimitDecision evaluate(RedisShard shard, StateKey state, EncodedRule encoded, long limit,
+            int permits, RedisCalls calls) {
+        List<Long> result = calls.await(LuaScripts.execute(shard.reactiveTemplate(), algorithms.getScript(),
+                List.of(codec.redisKey(state)), List.of(encoded.algorithmBytes(), encoded.limitBytes(),
+                        encoded.windowBytes(), codec.fieldBytes(state, encoded), RedisKeyCodec.permits(permits))));
+        if (result == null || result.size() < 3) {
+            throw new IllegalStateException("Unexpected rate limit script result for " + state);
+        }
+
+        return new RateLimitDecision(result.get(0) == 1L, limit, result.get(1), result.get(2));
+    }
+
+    @Override
+    public RateLimitDecision[] tryAcquireAll(CompiledRule[] rules, String[] keys, int[] permits,
+            RedisCalls calls) {
+        if (rules.length == 1) {
+            return new RateLimitDecision[]{tryAcquire(rules[0], keys[0], permits[0], calls)};
+        }
+
+        StateKey[] states = new StateKey[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            states[i] = codec.stateKey(keys[i], rules[i].encoded());
+            RateLimitDecision cached = denyCache.get(states[i], rules[i].rule().limit(), permits[i]);
+            if (cached != null) {
+                return cachedDenial(rules, i, cached);
+            }
+        }
+
+        int[][] groups = shards.scriptGroups(states);
+        if (groups.length == 1) {
+            return evaluateAll(rules, keys, permits, states, groups[0], calls).decisions();
+        }
+        // One atomic script per subject, in rule order. A denial stops before the remaining subjects and
+        // hands back what the subjects before it took, so the decision stays all-or-nothing
+        RateLimitDecision[] decisions = notEvaluated(rules);
+        List<Evaluation> allowed = new ArrayList<>(groups.length);
+        for (int[] group : groups) {
+            Evaluation evaluation = evaluateAll(rules, keys, permits, states, group, calls);
+            if (!merge(decisions, group, evaluation.decisions())) {
+                allowed.forEach(earlier -> refund(rules, keys, permits, states, earlier, calls));
+                break;
+            }
+            allowed.add(evaluation);
+        }
+        return decisions;
+    }
+
+    // Independent decisions, one per rule. The rules for each node are decided by one script call, or in
+    // cluster mode one call per subject, all sent without waiting for replies, so a batch costs about one
+    // round trip
+    @Override
+    public RateLimitDecision[] tryAcquireBatch(CompiledRule[] rules, String[] keys, int[] permits,
+            RedisCalls calls) {
+        RateLimitDecision[] decisions = new RateLimitDecision[rules.length];
+        StateKey[] states = new StateKey[rules.length];
+        Map<RedisShard, List<Integer>> pending = new HashMap<>();
+        for (int i = 0; i < rules.length; i++) {
+            EncodedRule encoded = rules[i].encoded();
+            states[i] = codec.stateKey(keys[i], encoded);
+            decisions[i] = denyCache.get(states[i], rules[i].rule().limit(), permits[i]);
+            if (decisions[i] != null) {
+                continue;
+            }
+            if (permits[i] == 1 && leases.isLeasable(encoded.algorithm(), rules[i].rule().limit())) {
+                // Mostly served from this node's lease without a round trip
+                decisions[i] = tryAcquire(rules[i], keys[i], 1, calls);
+            } else {
+                pending.computeIfAbsent(shards.shardFor(states[i].subject()), shard -> new ArrayList<>()).add(i);
+            }
+        }
+        // Each shard is asked on its own connection at once, so the batch waits for the slowest shard
+        List<Mono<Void>> batches = new ArrayList<>(pending.size());
+        pending.forEach((shard, items) -> batches.add(evaluateBatch(shard, rules, keys, permits, states,
+                items.stream().mapToInt(Integer::intValue).toArray(), decisions, calls)));
+        calls.join(batches);
+        return decisions;
+    }
+
+    // Fills in the decisions of one shard's items once Redis answers, or from the fallback when it fails
+    private Mono<Void> evaluateBatch(RedisShard shard, CompiledRule[] allRules, String[] allKeys, int[] allPermits,
+            StateKey[] allStates, int[] items, RateLimitDecision[] decisions, RedisCalls calls) {
+        CompiledRule[] rules = select(allRules, items);
+        int[] permits = select(allPermits, items);
+        StateKey[] states = select(allStates, items);
+        RedisCircuitBreaker circuitBreaker = shard.circuitBreaker();
+        if (!circuitBreaker.allowRequest()) {
+            batchFallback(allRules, allKeys, allPermits, items, decisions);
+            return Mono.empty();
+        }
+
+        int[][] groups = shards.scriptGroups(states);
+        // Commands on the shard's connection are written back to back, so the groups share a round trip
+        return calls.within(Flux.fromArray(groups)
+                        .flatMapSequential(group -> {
+                            StateKey[] groupStates = select(states, group);
+                            return LuaScripts.execute(shard.reactiveTemplate(), algorithms.getBatchScript(),
+                                    scriptKeys(groupStates), scriptArgs(select(rules, group), groupStates,
+                                            select(permits, group)));
+                        })
+                        .collectList())
+                .doOnNext(results -> {
+                    circuitBreaker.onSuccess();
+                    for (int g = 0; g < groups.length; g++) {
+                        List<Long> result = results.get(g);
+                        if (result == null || result.size() < groups[g].length * 3) {
+                            throw new IllegalStateException("Unexpected rate limit script result for "
+                                    + List.of(select(states, groups[g])));
+                        }
+                        for (int k = 0; k < groups[g].length; k++) {
+                            int i = items[groups[g][k]];
+                            decisions[i] = new RateLimitDecision(result.get(3 * k) == 1L, allRules[i].rule().limit(),
+                                    result.get(3 * k + 1), result.get(3 * k + 2));
+                            denyCache.put(allStates[i], decisions[i], allPermits[i]);
+                        }
+                    }
+                })
+                .then()
+                .onErrorResume(DataAccessException.class, e -> {
+                    if (!circuitBreaker.onFailure(e)) {
+                        return Mono.error(e);
+                    }
+                    batchFallback(allRules, allKeys, allPermits, items, decisions);
+                    return Mono.empty();
+                });
+    }
+
+    private void batchFallback(CompiledRule[] rules, String[] keys, int[] permits, int[] items,
+            RateLimitDecision[] decisions) {
+        for (int i : items) {
+            decisions[i] = fallback.tryAcquire(rules[i].rule(), keys[i], permits[i]);
+        }
+    }
+
+    // The rules of one group in one script call, so they must share a node (and a slot unless on a single node)
+    private Evaluation evaluateAll(CompiledRule[] allRules, String[] allKeys, int[] allPermits, StateKey[] allStates,
+            int[] group, RedisCalls calls) {
+        CompiledRule[] rules = select(allRules, group);
+        String[] keys = select(allKeys, group);
+        int[] permits = select(allPermits, group);
+        StateKey[] states = select(allStates, group);
+        RedisShard shard = shards.shardFor(states[0].subject());
+        RedisCircuitBreaker circuitBreaker = shard.circuitBreaker();
+        if (!circuitBreaker.allowRequest()) {
+            return new Evaluation(group, fallback.tryAcquireAll(rules, keys, permits), false);
+        }
+
+        List<Long> result;
+        try {
+            result = calls.await(LuaScripts.execute(shard.reactiveTemplate(), algorithms.getScript(),
+                    scriptKeys(states), scriptArgs(rules, states, permits)));
+        } catch (DataAccessException e) {
+            if (!circuitBreaker.onFailure(e)) {
+                throw e;
+            }
+            return new Evaluation(group, fallback.tryAcquireAll(rules, keys, permits), false);
+        }
+        circuitBreaker.onSuccess();
+        if (result == null || result.size() < rules.length * 3) {
+            throw new IllegalStateException("Unexpected rate limit script result for " + List.of(states));
+        }
+
+        RateLimitDecision[] decisions = new RateLimitDecision[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            decisions[i] = new RateLimitDecision(result.get(3 * i) == 1L, rules[i].rule().limit(),
+                    result.get(3 * i + 1), result.get(3 * i + 2));
+            denyCache.put(states[i], decisions[i], permits[i]);
+        }
+        return new Evaluation(group, decisions, true);
+    }
+
+    private void refund(CompiledRule[] allRules, String[] allKeys, int[] allPermits, StateKey[] allStates,
+            Evaluation evaluation, RedisCalls calls) {
+        CompiledRule[] rules = select(allRules, evaluation.group());
+        int[] permits = select(allPermits, evaluation.group());
+        if (!evaluation.redis()) {
+            String[] keys = select(allKeys, evaluation.group());
+            for (int i = 0; i < rules.length; i++) {
+                fallback.release(rules[i].rule(), keys[i], permits[i]);
+            }
+            return;
+        }
+        StateKey[] states = select(allStates, evaluation.group());
+        try {
+            calls.await(LuaScripts.execute(shards.shardFor(states[0].subject()).reactiveTemplate(),
+                    algorithms.getRefundScript(), scriptKeys(states), scriptArgs(rules, states, permits)));
+        } catch (DataAccessException e) {
+            log.warn("Could not hand back permits for {}: {}", List.of(states), e.getMessage());
+        }
+    }
+
+    private List<byte[]> scriptKeys(StateKey[] states) {
+        List<byte[]> redisKeys = new ArrayList<>(states.length);
+        for (StateKey state : states) {
+            redisKeys.add(codec.redisKey(state));
+        }
+        return redisKeys;
+    }
+
+    private List<byte[]> scriptArgs(CompiledRule[] rules, StateKey[] states, int[] permits) {
+        List<byte[]> args = new ArrayList<>(rules.length * 5);
+        for (int i = 0; i < rules.length; i++) {
+            EncodedRule encoded = rules[i].encoded();
+            args.add(encoded.algorithmBytes());
+            args.add(encoded.limitBytes());
+            args.add(encoded.windowBytes());
+            args.add(codec.fieldBytes(states[i], encoded));
+            args.add(RedisKeyCodec.permits(permits[i]));
+        }
+        return args;
+    }
+
+    // The decisions of one script group, and whether Redis (rather than the fallback) made them
+    record Evaluation(int[] group, RateLimitDecision[] decisions, boolean redis) {
+    }
+
+    // The other rules are not evaluated; nothing is consumed for them, as with any rejected request
+    static RateLimitDecision[] cachedDenial(CompiledRule[] rules, int denied, RateLimitDecision cached) {
+        RateLimitDecision[] decisions = notEvaluated(rules);
+        decisions[denied] = cached;
+        return decisions;
+    }
+
+    static RateLimitDecision[] notEvaluated(CompiledRule[] rules) {
+        RateLimitDecision[] decisions = new RateLimitDecision[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            decisions[i] = new RateLimitDecision(true, rules[i].rule().limit(), rules[i].rule().limit(), 0);
+        }
+        return decisions;
+    }
+
+    // Copies the decisions of one script group into place; returns whether all of them allowed
+    static boolean merge(RateLimitDecision[] decisions, int[] group, RateLimitDecision[] groupDecisions) {
+        boolean allowed = true;
+        for (int i = 0; i < group.length; i++) {
+            decisions[group[i]] = groupDecisions[i];
+            allowed &= groupDecisions[i].allowed();
+        }
+        return allowed;
+    }
+
+    // Groups list indexes in order, so a group covering every rule is the whole array
+    static <T> T[] select(T[] values, int[] indexes) {
+        if (indexes.length == values.length) {
+            return values;
+        }
+        T[] selected = Arrays.copyOf(values, indexes.length);
+        for (int i = 0; i < indexes.length; i++) {
+            selected[i] = values[indexes[i]];
+        }
+        return selected;
+    }
+
+    static int[] select(int[] values, int[] indexes) {
+        if (indexes.length == values.length) {
+            return values;
+        }
+        int[] selected = new int[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            selected[i] = values[indexes[i]];
+        }
+        return selected;
+    }
+
+    @Override
+    public boolean supports(String algorithm) {
+        return algorithms.contains(algorithm);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preloadScripts() {
+        for (RedisShard shard : shards.shards()) {
+            try {
+                loadScripts(shard);
+            } catch (DataAccessException e) {
+                // Not fatal: the first EVALSHA will fall back to EVAL and load the script
+                log.warn("Could not preload rate limit scripts on {}: {}", shard.name(), e.getMessage());
+            }
+        }
+    }
+
+    private void loadScripts(RedisShard shard) {
+        for (RedisScript<?> script : List.of(algorithms.getScript(), algorithms.getBatchScript())) {
+            byte[] source = script.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+            shard.template().execute((RedisCallback<String>) connection -> connection.scriptingCommands()
+                    .scriptLoad(source));
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.ratelimiter.shard;
+
+import com.example.ratelimiter.resilience.RedisCircuitBreaker;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
+
+// One Redis deployment that owns part of the subjects, with its own circuit so losing it only affects them
+public record RedisShard(String name, RedisTemplate<byte[], byte[]> template,
+        ReactiveRedisTemplate<byte[], byte[]> reactiveTemplate, RedisCircuitBreaker circuitBreaker) {
+}
@@ -0,0 +1,119 @@
+package com.example.ratelimiter.shard;
+
+import com.example.ratelimiter.codec.RedisKeyCodec;
+import com.example.ratelimiter.codec.StateKey;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps a subject to the Redis shard holding its state. With client-side sharding the subject hash is
+ * looked up on a consistent hash ring, so adding a node only moves the subjects of the ring segments it
+ * takes over. A Redis Cluster is a single shard here: Lettuce routes each key to its slot and follows
+ * MOVED/ASK redirects itself.
+ */
+public class RedisShardRouter implements DisposableBean {
+    private final List<RedisShard> shards;
+    private final boolean singleNode;
+    private final long[] points;
+    private final RedisShard[] owners;
+    private final List<DisposableBean> resources;
+
+    private RedisShardRouter(List<RedisShard> shards, boolean singleNode, int virtualNodes,
+            List<DisposableBean> resources) {
+        this.shards = List.copyOf(shards);
+        this.singleNode = singleNode;
+        this.resources = resources;
+
+        long[] ring = new long[shards.size() * virtualNodes];
+        Map<Long, RedisShard> owner = new LinkedHashMap<>();
+        int next = 0;
+        for (RedisShard shard : shards) {
+            for (int i = 0; i < virtualNodes; i++) {
+                long point = RedisKeyCodec.hash(shard.name() + "#" + i);
+                if (owner.putIfAbsent(point, shard) == null) {
+                    ring[next++] = point;
+                }
+            }
+        }
+        this.points = Arrays.copyOf(ring, next);
+        Arrays.sort(points);
+        this.owners = new RedisShard[points.length];
+        for (int i = 0; i < points.length; i++) {
+            owners[i] = owner.get(points[i]);
+        }
+    }
+
+    // A standalone node, or a Redis Cluster when clustered is set
+    public static RedisShardRouter single(RedisShard shard, boolean clustered) {
+        return single(shard, clustered, List.of());
+    }
+
+    // Resources are closed with the router
+    public static RedisShardRouter single(RedisShard shard, boolean clustered, List<DisposableBean> resources) {
+        return new RedisShardRouter(List.of(shard), !clustered, 1, resources);
+    }
+
+    // Client-side sharding; resources are closed with the router
+    public static RedisShardRouter ring(List<RedisShard> shards, int virtualNodes, List<DisposableBean> resources) {
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("Client-side sharding needs at least one node");
+        }
+        return new RedisShardRouter(shards, false, Math.max(1, virtualNodes), resources);
+    }
+
+    public RedisShard shardFor(long subject) {
+        if (owners.length == 1) {
+            return owners[0];
+        }
+        int index = Arrays.binarySearch(points, subject);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == owners.length ? 0 : index];
+    }
+
+    public List<RedisShard> shards() {
+        return shards;
+    }
+
+    /**
+     * Splits the states a multi-rule decision touches into the groups one script call may evaluate
+     * atomically. A single node takes any keys in one call; otherwise every subject is its own group,
+     * since keys of different subjects can live on different nodes (or cluster slots). Groups keep rule order.
+     */
+    public int[][] scriptGroups(StateKey[] states) {
+        if (singleNode) {
+            return new int[][]{range(states.length)};
+        }
+        Map<Long, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < states.length; i++) {
+            groups.computeIfAbsent(states[i].subject(), s -> new ArrayList<>()).add(i);
+        }
+        if (groups.size() == 1) {
+            return new int[][]{range(states.length)};
+        }
+        return groups.values().stream()
+                .map(group -> group.stream().mapToInt(Integer::intValue).toArray())
+                .toArray(int[][]::new);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (DisposableBean resource : resources) {
+            resource.destroy();
+        }
+    }
+
+    private static int[] range(int length) {
+        int[] indexes = new int[length];
+        for (int i = 0; i < length; i++) {
+            indexes[i] = i;
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,158 @@
+-- Count-min sketch: every subject of a rule shares one fixed-size string of u32 cells (BITFIELD), so memory
+-- does not depend on how many distinct keys arrive. The field ends in the subject's 64-bit hash as 16 hex
+-- digits, whose halves pick one cell per row. Layout, in cells:
+--   bucket b (0 or 1) at b * (1 + depth * width): its window index, then depth rows of width counters
+--   heavy hitters after both buckets: slots of {fingerprint, window index, count, previous count}
+-- Buckets alternate by window parity and the previous one is weighted as in the sliding window counter.
+-- Rows only ever rise to the new estimate (conservative update), so estimates over-count and never under-count.
+-- A subject whose estimate reaches COUNT_MIN.promote of its limit takes a free slot and is counted exactly from
+-- then on, which also keeps its traffic out of the sketch and the estimates of every other subject.
+local CM_BUCKET = 1 + COUNT_MIN.depth * COUNT_MIN.width
+local CM_HEAVY = 2 * CM_BUCKET
+local CM_PROBES = math.min(4, COUNT_MIN.slots)
+
+local function cm_tag(index)
+    return index % 4294967296
+end
+
+local function cm_op(ops, op, cell, value)
+    table.insert(ops, op)
+    table.insert(ops, 'u32')
+    table.insert(ops, '#' .. cell)
+    if value then
+        table.insert(ops, value)
+    end
+end
+
+-- The subject's cell in each row of the current bucket, its heavy hitter slots, and their values in one call
+local function cm_read(key, field, index)
+    local h1 = tonumber(string.sub(field, -16, -9), 16)
+    local h2 = tonumber(string.sub(field, -8), 16)
+    local current = (index % 2) * CM_BUCKET
+    local previous = CM_BUCKET - current
+    local ops = {}
+    cm_op(ops, 'GET', current)
+    cm_op(ops, 'GET', previous)
+    local cells = {}
+    for row = 0, COUNT_MIN.depth - 1 do
+        local cell = 1 + row * COUNT_MIN.width + (h1 + row * h2) % COUNT_MIN.width
+        cells[row + 1] = current + cell
+        cm_op(ops, 'GET', current + cell)
+        cm_op(ops, 'GET', previous + cell)
+    end
+    local slots = {}
+    for probe = 1, CM_PROBES do
+        slots[probe] = CM_HEAVY + 4 * ((h2 + probe - 1) % COUNT_MIN.slots)
+        for offset = 0, 3 do
+            cm_op(ops, 'GET', slots[probe] + offset)
+        end
+    end
+    return redis.call('BITFIELD', key, unpack(ops)), current, cells, slots, h1 == 0 and 1 or h1
+end
+
+-- The subject's live heavy hitter slot, else the first free one; values index of the slot's first cell
+local function cm_slot(values, slots, fingerprint, index)
+    local free
+    for probe = 1, #slots do
+        local v = 2 + 2 * COUNT_MIN.depth + 4 * (probe - 1)
+        local tag = values[v + 2]
+        local live = tag == cm_tag(index) or tag == cm_tag(index - 1)
+        if live and values[v + 1] == fingerprint then
+            return slots[probe], v, nil
+        end
+        if not live and not free then
+            free = slots[probe]
+        end
+    end
+    return nil, nil, free
+end
+
+ALGORITHMS['count-min'] = {
+    check = function(key, field, limit, window, now, cost)
+        local index = math.floor(now / window)
+        local elapsed = now - index * window
+        local values, bucket, cells, slots, fingerprint = cm_read(key, field, index)
+        local slot, v, free = cm_slot(values, slots, fingerprint, index)
+
+        local current, previous, counts, clear = 0, 0, {}
+        if slot then
+            if values[v + 2] == cm_tag(index) then
+                current, previous = values[v + 3], values[v + 4]
+            else
+                previous = values[v + 3]
+            end
+        else
+            local fresh = values[1] ~= cm_tag(index)
+            current, previous = math.huge, math.huge
+            for row = 1, COUNT_MIN.depth do
+                counts[row] = fresh and 0 or values[1 + 2 * row]
+                current = math.min(current, counts[row])
+                previous = math.min(previous, values[2 + 2 * row])
+            end
+            if values[2] ~= cm_tag(index - 1) then
+                previous = 0
+            end
+            if fresh then
+                -- The bucket still holds the window before last; commit clears it
+                clear = bucket
+            end
+        end
+
+        local weighted = previous * (window - elapsed) / window + current
+        if weighted + cost <= limit then
+            return true, limit - weighted - cost, window - elapsed, {
+                index = index, slot = slot, free = free, fingerprint = fingerprint, cells = cells, counts = counts,
+                clear = clear, current = current + cost, previous = previous, weighted = weighted + cost}
+        end
+
+        local wait
+        if cost > limit then
+            wait = window - elapsed
+        elseif current + cost <= limit and previous > 0 then
+            wait = window - (limit - current - cost) * window / previous - elapsed
+        else
+            wait = window - elapsed + math.max(0, window - (limit - cost) * window / current)
+        end
+        return false, 0, math.max(wait, 1), nil
+    end,
+    commit = function(key, field, state, limit, window, now)
+        local tag = cm_tag(state.index)
+        local ops = {}
+        if state.slot then
+            -- An entry of the previous window rolls over: its count became the previous count in check
+            cm_op(ops, 'SET', state.slot + 1, tag)
+            cm_op(ops, 'SET', state.slot + 2, state.current)
+            cm_op(ops, 'SET', state.slot + 3, state.previous)
+        else
+            if state.clear then
+                redis.call('SETRANGE', key, 4 * state.clear, string.rep('\0', 4 * CM_BUCKET))
+                cm_op(ops, 'SET', state.clear, tag)
+            end
+            for row = 1, COUNT_MIN.depth do
+                if state.counts[row] < state.current then
+                    cm_op(ops, 'SET', state.cells[row], state.current)
+                end
+            end
+            if state.free and state.weighted >= COUNT_MIN.promote * limit then
+                for offset, value in ipairs({state.fingerprint, tag, state.current, state.previous}) do
+                    cm_op(ops, 'SET', state.free + offset - 1, value)
+                end
+            end
+        end
+        if #ops > 0 then
+            redis.call('BITFIELD', key, unpack(ops))
+        end
+        return 2 * window
+    end,
+    refund = function(key, field, limit, window, now, cost)
+        -- Only exact counts are handed back: lowering shared cells could under-count other subjects
+        local index = math.floor(now / window)
+        local values, _, _, slots, fingerprint = cm_read(key, field, index)
+        local slot, v = cm_slot(values, slots, fingerprint, index)
+        if not slot or values[v + 2] ~= cm_tag(index) or values[v + 3] < 1 then
+            return false
+        end
+        redis.call('BITFIELD', key, 'SET', 'u32', '#' .. (slot + 2), math.max(0, values[v + 3] - cost))
+        return true
+    end
+}
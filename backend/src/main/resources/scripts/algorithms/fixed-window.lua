@@ -0,0 +1,34 @@
+-- Fixed window: a counter that resets one window after the first hit.
+-- State is struct-packed {window end, count}; an ended window reads as empty.
+ALGORITHMS['fixed-window'] = {
+    check = function(key, field, limit, window, now, cost)
+        local count, window_end = 0, now + window
+        local raw = redis.call('HGET', key, field)
+        if raw then
+            local stored_end, stored_count = struct.unpack('<dd', raw)
+            if stored_end > now then
+                count, window_end = stored_count, stored_end
+            end
+        end
+        if count + cost > limit then
+            return false, 0, window_end - now, nil
+        end
+        return true, limit - count - cost, window_end - now, {window_end, count + cost}
+    end,
+    commit = function(key, field, state, limit, window, now)
+        redis.call('HSET', key, field, struct.pack('<dd', state[1], state[2]))
+        return state[1] - now
+    end,
+    refund = function(key, field, limit, window, now, cost)
+        local raw = redis.call('HGET', key, field)
+        if not raw then
+            return false
+        end
+        local window_end, count = struct.unpack('<dd', raw)
+        if window_end <= now or count < 1 then
+            return false
+        end
+        redis.call('HSET', key, field, struct.pack('<dd', window_end, math.max(0, count - cost)))
+        return true
+    end
+}
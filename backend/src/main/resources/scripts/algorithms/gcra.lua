@@ -0,0 +1,39 @@
+-- Generic cell rate algorithm: one request is emitted every window / limit milliseconds,
+-- with bursts of up to limit requests; a request costing n permits takes n emission intervals.
+-- State is a struct-packed theoretical arrival time (TAT), which is also when the state becomes irrelevant.
+ALGORITHMS['gcra'] = {
+    check = function(key, field, limit, window, now, cost)
+        local interval = window / limit
+        local tat = now
+        local raw = redis.call('HGET', key, field)
+        if raw then
+            tat = math.max(struct.unpack('<d', raw), now)
+        end
+        local next_tat = tat + interval * cost
+        local allow_at = next_tat - window
+        if cost > limit then
+            -- never fits; answer with a full window like any other denial
+            return false, 0, window, nil
+        end
+        if now < allow_at then
+            return false, 0, allow_at - now, nil
+        end
+        return true, (now - allow_at) / interval, next_tat - now, next_tat
+    end,
+    commit = function(key, field, next_tat, limit, window, now)
+        redis.call('HSET', key, field, struct.pack('<d', next_tat))
+        return next_tat - now
+    end,
+    refund = function(key, field, limit, window, now, cost)
+        local raw = redis.call('HGET', key, field)
+        if not raw then
+            return false
+        end
+        local tat = struct.unpack('<d', raw)
+        if tat <= now then
+            return false
+        end
+        redis.call('HSET', key, field, struct.pack('<d', math.max(now, tat - cost * window / limit)))
+        return true
+    end
+}
@@ -0,0 +1,53 @@
+-- Sliding window counter: the previous window's count is weighted by how much of it
+-- still overlaps the sliding window. State is struct-packed {window index, current, previous};
+-- it is irrelevant two windows after the last hit.
+ALGORITHMS['sliding-window-counter'] = {
+    check = function(key, field, limit, window, now, cost)
+        local index = math.floor(now / window)
+        local elapsed = now - index * window
+        local current, previous = 0, 0
+        local raw = redis.call('HGET', key, field)
+        if raw then
+            local stored, stored_current, stored_previous = struct.unpack('<ddd', raw)
+            if stored == index then
+                current, previous = stored_current, stored_previous
+            elseif stored == index - 1 then
+                previous = stored_current
+            end
+        end
+
+        local weighted = previous * (window - elapsed) / window + current
+        if weighted + cost <= limit then
+            return true, limit - weighted - cost, window - elapsed, {index, current + cost, previous}
+        end
+
+        local wait
+        if cost > limit then
+            -- never fits; answer with the rest of the window like any other denial
+            wait = window - elapsed
+        elseif current + cost <= limit and previous > 0 then
+            -- the previous window's weight has to decay far enough to fit cost more permits
+            wait = window - (limit - current - cost) * window / previous - elapsed
+        else
+            -- the current window becomes the previous one and has to decay in turn
+            wait = window - elapsed + math.max(0, window - (limit - cost) * window / current)
+        end
+        return false, 0, math.max(wait, 1), nil
+    end,
+    commit = function(key, field, state, limit, window, now)
+        redis.call('HSET', key, field, struct.pack('<ddd', state[1], state[2], state[3]))
+        return 2 * window
+    end,
+    refund = function(key, field, limit, window, now, cost)
+        local raw = redis.call('HGET', key, field)
+        if not raw then
+            return false
+        end
+        local index, current, previous = struct.unpack('<ddd', raw)
+        if index ~= math.floor(now / window) or current < 1 then
+            return false
+        end
+        redis.call('HSET', key, field, struct.pack('<ddd', index, math.max(0, current - cost), previous))
+        return true
+    end
+}
@@ -0,0 +1,36 @@
+-- Token bucket: holds up to limit tokens and refills limit tokens per window.
+-- State is struct-packed {tokens, last refill time}; a full window later the bucket is full again.
+ALGORITHMS['token-bucket'] = {
+    check = function(key, field, limit, window, now, cost)
+        local tokens = limit
+        local raw = redis.call('HGET', key, field)
+        if raw then
+            local stored_tokens, refilled_at = struct.unpack('<dd', raw)
+            local refill = math.max(0, now - refilled_at) * limit / window
+            tokens = math.min(limit, stored_tokens + refill)
+        end
+
+        if tokens >= cost then
+            return true, tokens - cost, (limit - tokens + cost) * window / limit, tokens - cost
+        end
+        if cost > limit then
+            -- never fits; answer with a full window like any other denial
+            return false, 0, window, nil
+        end
+        return false, 0, (cost - tokens) * window / limit, nil
+    end,
+    commit = function(key, field, tokens, limit, window, now)
+        redis.call('HSET', key, field, struct.pack('<dd', tokens, now))
+        return window
+    end,
+    refund = function(key, field, limit, window, now, cost)
+        local raw = redis.call('HGET', key, field)
+        if not raw then
+            return false
+        end
+        local stored_tokens, refilled_at = struct.unpack('<dd', raw)
+        local tokens = math.min(limit, stored_tokens + math.max(0, now - refilled_at) * limit / window)
+        redis.call('HSET', key, field, struct.pack('<dd', math.min(limit, tokens + cost), now))
+        return true
+    end
+}
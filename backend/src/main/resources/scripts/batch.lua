@@ -0,0 +1,34 @@
+-- Decides many rate limits independently in one call, for a gateway asking on behalf of many requests:
+-- unlike rate_limit.lua each limit is committed on its own, in order, so a limit listed twice sees the first
+-- permits. KEYS and ARGV as in rate_limit.lua.
+-- Returns {allowed (1/0), remaining, milliseconds until the limit resets} for each limit
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local result = {}
+local ttls = {}
+for i, key in ipairs(KEYS) do
+    local base = 5 * (i - 1)
+    local algorithm = ALGORITHMS[ARGV[base + 1]]
+    if not algorithm then
+        return redis.error_reply('Unknown rate limit algorithm: ' .. ARGV[base + 1])
+    end
+    local limit = tonumber(ARGV[base + 2])
+    local window = tonumber(ARGV[base + 3])
+    local field = ARGV[base + 4]
+    local cost = tonumber(ARGV[base + 5])
+    local allowed, remaining, reset, state = algorithm.check(key, field, limit, window, now, cost)
+    if allowed then
+        local ttl = algorithm.commit(key, field, state, limit, window, now)
+        ttls[key] = math.max(ttls[key] or 0, math.ceil(ttl))
+    end
+    result[3 * i - 2] = allowed and 1 or 0
+    result[3 * i - 1] = math.floor(remaining)
+    result[3 * i] = math.ceil(reset)
+end
+for key, ttl in pairs(ttls) do
+    if redis.call('PTTL', key) < ttl then
+        redis.call('PEXPIRE', key, ttl)
+    end
+end
+return result
@@ -0,0 +1,38 @@
+-- Leases a block of fixed-window permits to one node, first handing back what is left of its previous lease.
+-- KEYS[1] = hash holding the subject's state, ARGV[1] = fixed-window field (struct-packed {window end, count})
+-- ARGV[2] = limit, ARGV[3] = window length in milliseconds, ARGV[4] = share of the remaining quota to lease,
+-- ARGV[5] = maximum permits per lease, ARGV[6] = unused permits of the previous lease,
+-- ARGV[7] = window end of the previous lease
+-- Returns {permits granted, milliseconds until the window resets, window end, permits left unleased in Redis}
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local key, field = KEYS[1], ARGV[1]
+local limit = tonumber(ARGV[2])
+local window = tonumber(ARGV[3])
+
+local window_end, count = now + window, 0
+local raw = redis.call('HGET', key, field)
+if raw then
+    local stored_end, stored_count = struct.unpack('<dd', raw)
+    if stored_end > now then
+        window_end, count = stored_end, stored_count
+    end
+end
+
+-- permits are only handed back into the window they were taken from
+local unused = tonumber(ARGV[6])
+if unused > 0 and math.abs(window_end - tonumber(ARGV[7])) <= 2 then
+    count = count - math.min(unused, count)
+end
+
+local available = limit - count
+local permits = 0
+if available > 0 then
+    permits = math.min(available, tonumber(ARGV[5]), math.max(1, math.floor(available * tonumber(ARGV[4]))))
+end
+redis.call('HSET', key, field, struct.pack('<dd', window_end, count + permits))
+local ttl = math.ceil(window_end - now)
+if redis.call('PTTL', key) < ttl then
+    redis.call('PEXPIRE', key, ttl)
+end
+return {permits, ttl, window_end, math.max(0, limit - count - permits)}
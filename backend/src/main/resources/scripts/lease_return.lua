@@ -0,0 +1,18 @@
+-- Hands unused leased permits back to a fixed-window counter.
+-- KEYS[1] = hash holding the subject's state, ARGV[1] = fixed-window field (struct-packed {window end, count}),
+-- ARGV[2] = unused permits, ARGV[3] = window end of the lease
+-- Returns the number of permits handed back
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local raw = redis.call('HGET', KEYS[1], ARGV[1])
+if not raw then
+    return 0
+end
+local window_end, count = struct.unpack('<dd', raw)
+if window_end <= now or math.abs(window_end - tonumber(ARGV[3])) > 2 then
+    return 0
+end
+local returned = math.min(tonumber(ARGV[2]), count)
+redis.call('HSET', KEYS[1], ARGV[1], struct.pack('<dd', window_end, count - returned))
+return returned
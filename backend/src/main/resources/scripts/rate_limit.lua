@@ -0,0 +1,44 @@
+-- Evaluates every rate limit that applies to a request in a single round trip, all-or-nothing:
+-- all limits are checked first and state is only committed when every one of them allows.
+-- KEYS[i] = hash holding the state of the subject of limit i
+-- ARGV[5i-4] .. ARGV[5i] = its algorithm, limit, window length in ms, hash field and the permits the request costs
+-- Returns {allowed (1/0), remaining, milliseconds until the limit resets} for each limit
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local checks = {}
+local all_allowed = true
+for i, key in ipairs(KEYS) do
+    local base = 5 * (i - 1)
+    local algorithm = ALGORITHMS[ARGV[base + 1]]
+    if not algorithm then
+        return redis.error_reply('Unknown rate limit algorithm: ' .. ARGV[base + 1])
+    end
+    local limit = tonumber(ARGV[base + 2])
+    local window = tonumber(ARGV[base + 3])
+    local field = ARGV[base + 4]
+    local cost = tonumber(ARGV[base + 5])
+    local allowed, remaining, reset, state = algorithm.check(key, field, limit, window, now, cost)
+    checks[i] = {algorithm = algorithm, field = field, limit = limit, window = window, allowed = allowed,
+                 remaining = remaining, reset = reset, state = state}
+    all_allowed = all_allowed and allowed
+end
+
+local result = {}
+local ttls = {}
+for i, check in ipairs(checks) do
+    if all_allowed then
+        -- commit returns how long the field's state matters; the hash lives as long as its longest field
+        local ttl = check.algorithm.commit(KEYS[i], check.field, check.state, check.limit, check.window, now)
+        ttls[KEYS[i]] = math.max(ttls[KEYS[i]] or 0, math.ceil(ttl))
+    end
+    result[3 * i - 2] = check.allowed and 1 or 0
+    result[3 * i - 1] = math.floor(check.remaining)
+    result[3 * i] = math.ceil(check.reset)
+end
+for key, ttl in pairs(ttls) do
+    if redis.call('PTTL', key) < ttl then
+        redis.call('PEXPIRE', key, ttl)
+    end
+end
+return result
@@ -0,0 +1,16 @@
+-- Hands back the permits a rate_limit.lua call took, for a decision over several subjects that another
+-- subject's limits denied after this call had committed (the subjects live on different nodes or slots).
+-- KEYS and ARGV as in rate_limit.lua. Returns the number of limits refunded.
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local refunded = 0
+for i, key in ipairs(KEYS) do
+    local base = 5 * (i - 1)
+    local algorithm = ALGORITHMS[ARGV[base + 1]]
+    if algorithm and algorithm.refund(key, ARGV[base + 4], tonumber(ARGV[base + 2]), tonumber(ARGV[base + 3]), now,
+            tonumber(ARGV[base + 5])) then
+        refunded = refunded + 1
+    end
+end
+return refunded
@@ -0,0 +1,21 @@
+-- Grants permits of a cluster-wide semaphore; each held permit is a member scored by its lease expiry, so the
+-- permits of a crashed node free up on their own once their leases run out.
+-- KEYS[1] = sorted set of held permits, ARGV[1] = limit, ARGV[2] = lease in milliseconds,
+-- ARGV[3..n] = tokens to grant, in the order they should be granted
+-- Returns {permits granted (the first tokens of ARGV), permits held after granting}
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local key = KEYS[1]
+local lease = tonumber(ARGV[2])
+
+redis.call('ZREMRANGEBYSCORE', key, '-inf', now)
+local held = redis.call('ZCARD', key)
+local granted = math.max(0, math.min(tonumber(ARGV[1]) - held, #ARGV - 2))
+for i = 1, granted do
+    redis.call('ZADD', key, now + lease, ARGV[i + 2])
+end
+if granted > 0 then
+    -- every lease of the semaphore has the same length, so none outlives the key
+    redis.call('PEXPIRE', key, lease)
+end
+return {granted, held + granted}
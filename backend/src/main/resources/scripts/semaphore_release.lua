@@ -0,0 +1,4 @@
+-- Releases permits of a cluster-wide semaphore.
+-- KEYS[1] = sorted set of held permits, ARGV[1..n] = tokens of the permits
+-- Returns the number of permits released; a permit whose lease expired is no longer held
+return redis.call('ZREM', KEYS[1], unpack(ARGV))
@@ -0,0 +1,16 @@
+-- Extends the leases of permits still in use so long-running executions keep them.
+-- KEYS[1] = sorted set of held permits, ARGV[1] = lease in milliseconds, ARGV[2..n] = tokens of the permits
+-- Returns the number of permits renewed; the others had already expired and may have been granted again
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local key = KEYS[1]
+local lease = tonumber(ARGV[1])
+
+local renewed = 0
+for i = 2, #ARGV do
+    renewed = renewed + redis.call('ZADD', key, 'XX', 'CH', now + lease, ARGV[i])
+end
+if renewed > 0 then
+    redis.call('PEXPIRE', key, lease)
+end
+return renewed
@@ -0,0 +1,55 @@
+package com.example.ratelimiter.algorithm;
+
+import com.example.ratelimiter.config.RateLimiterConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitAlgorithmRegistryTest {
+
+    @Test
+    void whenComposingBuiltInAlgorithms_shouldAcceptEveryModule() {
+        // When
+        RateLimitAlgorithmRegistry registry = new RateLimitAlgorithmRegistry(List.of(new FixedWindowAlgorithm(),
+                new SlidingWindowCounterAlgorithm(), new TokenBucketAlgorithm(), new GcraAlgorithm(),
+                new CountMinSketchAlgorithm(new RateLimiterConfig())));
+
+        // Then
+        assertTrue(registry.contains("count-min"));
+        assertTrue(registry.getRefundScript().getScriptAsString().contains("ALGORITHMS['gcra']"));
+    }
+
+    @Test
+    void whenModuleLacksRefund_shouldRejectAtComposition() {
+        // Given
+        RateLimitAlgorithm incomplete = new RateLimitAlgorithm() {
+            @Override
+            public String name() {
+                return "no-refund";
+            }
+
+            @Override
+            public String luaModule() {
+                return """
+                        ALGORITHMS['no-refund'] = {
+                            check = function(key, field, limit, window, now, cost)
+                                return true, limit - cost, window, nil
+                            end,
+                            commit = function(key, field, state, limit, window, now)
+                                return window
+                            end
+                        }
+                        """;
+            }
+        };
+
+        // When
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> new RateLimitAlgorithmRegistry(List.of(new FixedWindowAlgorithm(), incomplete)));
+
+        // Then
+        assertEquals("Rate limit algorithm no-refund does not define refund", e.getMessage());
+    }
+}
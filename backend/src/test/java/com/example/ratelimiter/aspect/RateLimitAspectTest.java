@@ -1,53 +1,89 @@
 package com.example.ratelimiter.aspect;
 
 import com.example.ratelimiter.annotation.RateLimit;
+import com.example.ratelimiter.concurrency.ConcurrencyLimiterRegistry;
+import com.example.ratelimiter.config.RateLimiterConfig;
 import com.example.ratelimiter.exception.RateLimitExceededException;
+import com.example.ratelimiter.headers.RateLimitHeaders;
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.rule.RateLimitRule;
+import com.example.ratelimiter.service.RateLimitDecision;
 import com.example.ratelimiter.service.RateLimiterService;
+import com.example.ratelimiter.service.ReactiveRateLimiterService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.MDC;
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
+import reactor.core.publisher.Mono;
 
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.ratelimiter.rule.CompiledRules.compile;
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.anyInt;
-import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class RateLimitAspectTest {
+    private static final String HANDLER = "Handler.handle(..)";
+    private static final Method HANDLE = Object.class.getMethods()[0];
 
     @Mock
     private RateLimiterService rateLimiterService;
 
+    @Mock
+    private ReactiveRateLimiterService reactiveRateLimiterService;
+
+    @Mock
+    private ConcurrencyLimiterRegistry concurrencyLimiters;
+
     @Mock
     private RateLimit rateLimit;
 
     private RateLimitAspect aspect;
     private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
 
     @BeforeEach
     void setUp() {
-        aspect = new RateLimitAspect(rateLimiterService);
+        aspect = new RateLimitAspect(rateLimiterService, reactiveRateLimiterService, concurrencyLimiters,
+                new RateLimitHeaders(new RateLimiterConfig()), Runnable::run);
         request = new MockHttpServletRequest();
-        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
     }
 
     @Test
     void whenRateLimitAllowed_shouldProceed() throws Throwable {
         // Given
-        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        ProceedingJoinPoint joinPoint = joinPoint(String.class);
         when(joinPoint.proceed()).thenReturn("success");
         when(rateLimit.key()).thenReturn("X-User-Id");
         when(rateLimit.type()).thenReturn("second");
         when(rateLimit.limit()).thenReturn(5);
+        when(rateLimit.algorithm()).thenReturn("gcra");
+        when(rateLimit.failureMode()).thenReturn("closed");
+        when(rateLimit.cost()).thenReturn("");
         request.addHeader("X-User-Id", "user123");
-        when(rateLimiterService.isAllowed(anyString(), anyString(), anyInt())).thenReturn(true);
+        CompiledRule rule = compile(new RateLimitRule(HANDLER, "X-User-Id", "second", "gcra", 5,
+                Duration.ofSeconds(1), "closed"));
+        when(rateLimiterService.compileRule(HANDLER, "X-User-Id", "second", 5, "gcra", "closed", ""))
+                .thenReturn(rule);
+        when(rateLimiterService.tryAcquire(rule, "user123", 1)).thenReturn(new RateLimitDecision(true, 5, 4, 1000));
 
         // When
         Object result = aspect.checkRateLimit(joinPoint, rateLimit);
@@ -55,7 +91,7 @@ class RateLimitAspectTest {
         // Then
         assertNotNull(result);
         assertEquals("success", result);
-        verify(rateLimiterService).isAllowed("user123", "second", 5);
+        verify(rateLimiterService).tryAcquire(rule, "user123", 1);
     }
 
     @Test
@@ -64,21 +100,138 @@ class RateLimitAspectTest {
         when(rateLimit.key()).thenReturn("X-User-Id");
         when(rateLimit.type()).thenReturn("second");
         when(rateLimit.limit()).thenReturn(5);
+        when(rateLimit.algorithm()).thenReturn("");
+        when(rateLimit.failureMode()).thenReturn("");
+        when(rateLimit.cost()).thenReturn("");
         request.addHeader("X-User-Id", "user123");
-        when(rateLimiterService.isAllowed(anyString(), anyString(), anyInt())).thenReturn(false);
+        CompiledRule rule = compile(new RateLimitRule(HANDLER, "X-User-Id", "second", "fixed-window", 5,
+                Duration.ofSeconds(1), "local"));
+        when(rateLimiterService.compileRule(HANDLER, "X-User-Id", "second", 5, "", "", "")).thenReturn(rule);
+        when(rateLimiterService.tryAcquire(rule, "user123", 1)).thenReturn(new RateLimitDecision(false, 5, 0, 1000));
 
         // When/Then
         assertThrows(RateLimitExceededException.class,
-                () -> aspect.checkRateLimit(mock(ProceedingJoinPoint.class), rateLimit));
+                () -> aspect.checkRateLimit(joinPoint(String.class), rateLimit));
+        assertEquals("1", response.getHeader("Retry-After"));
     }
 
     @Test
     void whenHeaderMissing_shouldThrowException() {
         // Given
-        when(rateLimit.key()).thenReturn("X-User-Id");
+        givenRule();
+        request.removeHeader("X-User-Id");
 
         // When/Then
-        assertThrows(IllegalArgumentException.class,
-                () -> aspect.checkRateLimit(mock(ProceedingJoinPoint.class), rateLimit));
+        assertThrows(IllegalArgumentException.class, () -> aspect.checkRateLimit(joinPoint(String.class), rateLimit));
+        verify(rateLimiterService, never()).tryAcquire(any(), any(), anyInt());
+    }
+
+    @Test
+    void whenCalledAgain_shouldReuseRuleNamedAfterHandler() throws Throwable {
+        // Given
+        ProceedingJoinPoint joinPoint = joinPoint(String.class);
+        CompiledRule rule = givenRule();
+        when(rateLimiterService.tryAcquire(rule, "user123", 1)).thenReturn(new RateLimitDecision(true, 5, 4, 1000));
+
+        // When
+        aspect.checkRateLimit(joinPoint, rateLimit);
+        aspect.checkRateLimit(joinPoint, rateLimit);
+
+        // Then
+        verify(rateLimiterService, times(1)).compileRule(HANDLER, "X-User-Id", "second", 5, "", "", "");
+        verify(rateLimiterService, times(2)).tryAcquire(rule, "user123", 1);
+    }
+
+    @Test
+    void whenAsyncHandlerAllowed_shouldProceedWithoutBlockingCall() throws Throwable {
+        // Given
+        ProceedingJoinPoint joinPoint = joinPoint(CompletableFuture.class);
+        when(joinPoint.proceed()).thenReturn(CompletableFuture.completedFuture("success"));
+        CompiledRule rule = givenRule();
+        when(reactiveRateLimiterService.tryAcquireAll(new CompiledRule[]{rule}, new String[]{"user123"},
+                new int[]{1}))
+                .thenReturn(Mono.just(new RateLimitDecision[]{new RateLimitDecision(true, 5, 4, 1000)}));
+
+        // When
+        Object result = aspect.checkRateLimit(joinPoint, rateLimit);
+
+        // Then
+        assertEquals("success", ((CompletableFuture<?>) result).get());
+        verify(rateLimiterService, never()).tryAcquire(any(), any(), anyInt());
+    }
+
+    @Test
+    void whenAsyncHandlerRunsOnExecutor_shouldSeeRequestAttributesAndMdc() throws Throwable {
+        // Given
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        aspect = new RateLimitAspect(rateLimiterService, reactiveRateLimiterService, concurrencyLimiters,
+                new RateLimitHeaders(new RateLimiterConfig()), executor);
+        ProceedingJoinPoint joinPoint = joinPoint(CompletableFuture.class);
+        when(joinPoint.proceed()).thenAnswer(invocation -> CompletableFuture.completedFuture(
+                MDC.get("traceId") + " " + ((ServletRequestAttributes) RequestContextHolder.getRequestAttributes())
+                        .getRequest().getHeader("X-User-Id")));
+        CompiledRule rule = givenRule();
+        when(reactiveRateLimiterService.tryAcquireAll(new CompiledRule[]{rule}, new String[]{"user123"},
+                new int[]{1}))
+                .thenReturn(Mono.just(new RateLimitDecision[]{new RateLimitDecision(true, 5, 4, 1000)}));
+        MDC.put("traceId", "trace-1");
+
+        // When
+        Object result;
+        try {
+            result = aspect.checkRateLimit(joinPoint, rateLimit);
+        } finally {
+            MDC.clear();
+        }
+
+        // Then
+        try {
+            assertEquals("trace-1 user123", ((CompletableFuture<?>) result).get(5, TimeUnit.SECONDS));
+            assertNull(executor.submit(() -> MDC.get("traceId")).get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void whenAsyncHandlerRateLimited_shouldCompleteExceptionally() throws Throwable {
+        // Given
+        ProceedingJoinPoint joinPoint = joinPoint(CompletableFuture.class);
+        CompiledRule rule = givenRule();
+        when(reactiveRateLimiterService.tryAcquireAll(new CompiledRule[]{rule}, new String[]{"user123"},
+                new int[]{1}))
+                .thenReturn(Mono.just(new RateLimitDecision[]{new RateLimitDecision(false, 5, 0, 1000)}));
+
+        // When
+        Object result = aspect.checkRateLimit(joinPoint, rateLimit);
+
+        // Then
+        ExecutionException e = assertThrows(ExecutionException.class, () -> ((CompletableFuture<?>) result).get());
+        assertInstanceOf(RateLimitExceededException.class, e.getCause());
+        verify(joinPoint, never()).proceed();
+    }
+
+    private CompiledRule givenRule() {
+        when(rateLimit.key()).thenReturn("X-User-Id");
+        when(rateLimit.type()).thenReturn("second");
+        when(rateLimit.limit()).thenReturn(5);
+        when(rateLimit.algorithm()).thenReturn("");
+        when(rateLimit.failureMode()).thenReturn("");
+        when(rateLimit.cost()).thenReturn("");
+        request.addHeader("X-User-Id", "user123");
+        CompiledRule rule = compile(new RateLimitRule(HANDLER, "X-User-Id", "second", "fixed-window", 5,
+                Duration.ofSeconds(1), "local"));
+        when(rateLimiterService.compileRule(HANDLER, "X-User-Id", "second", 5, "", "", "")).thenReturn(rule);
+        return rule;
+    }
+
+    private static ProceedingJoinPoint joinPoint(Class<?> returnType) {
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        MethodSignature signature = mock(MethodSignature.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(signature.getMethod()).thenReturn(HANDLE);
+        when(signature.toShortString()).thenReturn(HANDLER);
+        when(signature.getReturnType()).thenReturn(returnType);
+        return joinPoint;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,40 @@
+package com.example.ratelimiter.cache;
+
+import com.example.ratelimiter.codec.StateKey;
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.service.RateLimitDecision;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DenyCacheTest {
+    private static final StateKey STATE = new StateKey(42, "second:fixed-window:POST /api/posts");
+
+    @Test
+    void whenKeyDenied_shouldAnswerUntilReset() {
+        // Given
+        DenyCache cache = new DenyCache(new RateLimiterConfig());
+
+        // When
+        cache.put(STATE, new RateLimitDecision(false, 5, 0, 60_000), 1);
+
+        // Then
+        RateLimitDecision cached = cache.get(STATE, 5, 1);
+        assertNotNull(cached);
+        assertFalse(cached.allowed());
+        assertNull(cache.get(STATE, 6, 1));
+    }
+
+    @Test
+    void whenInvalidated_shouldSendKeysBackToBackend() {
+        // Given
+        DenyCache cache = new DenyCache(new RateLimiterConfig());
+        cache.put(STATE, new RateLimitDecision(false, 5, 0, 60_000), 1);
+
+        // When
+        cache.invalidateAll();
+
+        // Then
+        assertNull(cache.get(STATE, 5, 1));
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.ratelimiter.codec;
+
+import com.example.ratelimiter.algorithm.CountMinSketchAlgorithm;
+import com.example.ratelimiter.algorithm.FixedWindowAlgorithm;
+import com.example.ratelimiter.algorithm.GcraAlgorithm;
+import com.example.ratelimiter.algorithm.RateLimitAlgorithmRegistry;
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.rule.RateLimitRule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedisKeyCodecTest {
+
+    private RateLimiterConfig config;
+    private RateLimitAlgorithmRegistry algorithms;
+    private RedisKeyCodec codec;
+
+    @BeforeEach
+    void setUp() {
+        config = new RateLimiterConfig();
+        algorithms = new RateLimitAlgorithmRegistry(List.of(new FixedWindowAlgorithm(), new GcraAlgorithm(),
+                new CountMinSketchAlgorithm(config)));
+        codec = new RedisKeyCodec(config, algorithms);
+    }
+
+    @Test
+    void whenEncodingRule_shouldWriteScriptArgumentsAsAscii() {
+        // Given
+        RateLimitRule rule = rule("day", "fixed-window", 1000, Duration.ofDays(1));
+
+        // When
+        EncodedRule encoded = codec.encode(rule);
+
+        // Then
+        assertEquals("fixed-window", encoded.algorithm());
+        assertEquals("day:fixed-window", encoded.field());
+        assertArrayEquals(bytes("day:fixed-window"), encoded.fieldBytes());
+        assertArrayEquals(bytes("1000"), encoded.limitBytes());
+        assertArrayEquals(bytes("86400000"), encoded.windowBytes());
+    }
+
+    @Test
+    void whenRulesLimitSameSubject_shouldShareKeyAndUseOwnFields() {
+        // Given
+        EncodedRule perSecond = codec.encode(rule("second", "fixed-window", 5, Duration.ofSeconds(1)));
+        EncodedRule perDay = codec.encode(rule("day", "gcra", 1000, Duration.ofDays(1)));
+
+        // When
+        StateKey first = codec.stateKey("user123", perSecond);
+        StateKey second = codec.stateKey("user123", perDay);
+
+        // Then
+        assertEquals(first.subject(), second.subject());
+        assertNotEquals(first.field(), second.field());
+        assertArrayEquals(codec.redisKey(first), codec.redisKey(second));
+        assertFalse(Arrays.equals(codec.redisKey(first),
+                codec.redisKey(codec.stateKey("user124", perSecond))));
+    }
+
+    @Test
+    void whenRuleIsCountMin_shouldShareRuleKeyAndPassSubjectHashInField() {
+        // Given
+        EncodedRule sketch = codec.encode(rule("second", "count-min", 5, Duration.ofSeconds(1)));
+
+        // When
+        StateKey first = codec.stateKey("2001:db8::1", sketch);
+        StateKey second = codec.stateKey("2001:db8::2", sketch);
+
+        // Then
+        assertEquals(first.subject(), second.subject());
+        assertNotEquals(first, second);
+        assertEquals(String.format("second:count-min:%016x", RedisKeyCodec.hash("2001:db8::1")), first.field());
+        assertArrayEquals(bytes(first.field()), codec.fieldBytes(first, sketch));
+        assertNotEquals(first.subject(), codec.encode(new RateLimitRule("other", "X-User-Id", "second", "count-min",
+                5, Duration.ofSeconds(1), "open")).sketch());
+        assertEquals(0, codec.encode(rule("second", "fixed-window", 5, Duration.ofSeconds(1))).sketch());
+    }
+
+    @Test
+    void whenBuildingKey_shouldPutSubjectHashInHashTag() {
+        // Given
+        config.setKeyPrefix("app:");
+        codec = new RedisKeyCodec(config, algorithms);
+
+        // When
+        byte[] key = codec.redisKey(new StateKey(0x0102030405060708L, "second:fixed-window"));
+
+        // Then
+        assertArrayEquals(new byte[]{'a', 'p', 'p', ':', '{', 1, 2, 3, 4, 5, 6, 7, 8, '}'}, key);
+    }
+
+    @Test
+    void whenPrefixContainsBraces_shouldReject() {
+        config.setKeyPrefix("{rl}:");
+        assertThrows(IllegalStateException.class, () -> new RedisKeyCodec(config, algorithms));
+    }
+
+    @Test
+    void whenHashingSubject_shouldStayStable() {
+        // The hash is part of the stored layout; changing it orphans every existing window
+        assertEquals(RedisKeyCodec.hash("user123"), RedisKeyCodec.hash(new StringBuilder("user123")));
+        assertNotEquals(RedisKeyCodec.hash("user123"), RedisKeyCodec.hash("user132"));
+        assertEquals(-1166397803181037274L, RedisKeyCodec.hash(""));
+    }
+
+    @Test
+    void whenWritingAscii_shouldMatchDecimalString() {
+        for (long value : new long[]{0, 7, 10, 999, 1000, 86_400_000, Long.MAX_VALUE, -42}) {
+            assertArrayEquals(bytes(Long.toString(value)), RedisKeyCodec.ascii(value));
+        }
+    }
+
+    @Test
+    void whenSketchSettingsChange_shouldMoveRuleToAnotherSketch() {
+        // Given
+        RateLimitRule rule = rule("second", CountMinSketchAlgorithm.NAME, 5, Duration.ofSeconds(1));
+        RateLimiterConfig coarser = new RateLimiterConfig();
+        coarser.getSketch().setEpsilon(0.01);
+
+        // When
+        EncodedRule encoded = codec.encode(rule);
+        EncodedRule other = new RedisKeyCodec(coarser, algorithms).encode(rule);
+
+        // Then
+        assertEquals(encoded.sketch(), codec.encode(rule("second", CountMinSketchAlgorithm.NAME, 5,
+                Duration.ofSeconds(1))).sketch());
+        assertNotEquals(encoded.sketch(), other.sketch());
+    }
+
+    private static RateLimitRule rule(String type, String algorithm, long limit, Duration window) {
+        return new RateLimitRule("rule", "X-User-Id", type, algorithm, limit, window, "open");
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
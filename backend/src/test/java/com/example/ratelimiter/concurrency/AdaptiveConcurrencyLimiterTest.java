@@ -0,0 +1,125 @@
+package com.example.ratelimiter.concurrency;
+
+import com.example.ratelimiter.config.RateLimiterConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static AdaptiveConcurrencyLimiter limiter(long maxLimit) {
+        RateLimiterConfig.Concurrency settings = new RateLimiterConfig.Concurrency();
+        settings.setInitialLimit(10);
+        return new AdaptiveConcurrencyLimiter(settings, maxLimit);
+    }
+
+    // Fills the limiter to its cap, then completes every request with the given latency
+    private static void saturate(AdaptiveConcurrencyLimiter limiter, long latencyMillis, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            int admitted = 0;
+            while (limiter.tryAcquire()) {
+                admitted++;
+            }
+            for (int i = 0; i < admitted; i++) {
+                limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+            }
+        }
+    }
+
+    @Test
+    void whenCapReached_shouldShedUntilRequestCompletes() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = limiter(100);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+
+        // When/Then
+        assertFalse(limiter.tryAcquire());
+        limiter.onIgnore();
+        assertTrue(limiter.tryAcquire());
+        assertEquals(10, limiter.inFlight());
+    }
+
+    @Test
+    void whenLatencySteadyUnderLoad_shouldRaiseCapUpToMaximum() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = limiter(40);
+
+        // When
+        saturate(limiter, 10, 50);
+
+        // Then
+        assertEquals(40, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void whenLatencyRises_shouldLowerCapAndRecoverOnceItSettles() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = limiter(100);
+        saturate(limiter, 10, 20);
+        int healthy = limiter.limit();
+
+        // When
+        saturate(limiter, 100, 10);
+        int degraded = limiter.limit();
+        saturate(limiter, 10, 20);
+
+        // Then
+        assertTrue(degraded < healthy / 2, () -> "cap " + degraded + " after cap " + healthy);
+        assertTrue(limiter.limit() > degraded);
+    }
+
+    @Test
+    void whenMostlyIdle_shouldNotRaiseCap() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = limiter(100);
+
+        // When
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+
+        // Then
+        assertEquals(10, limiter.limit());
+    }
+
+    @Test
+    void whenRequestTimesOut_shouldBackOff() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = limiter(100);
+        assertTrue(limiter.tryAcquire());
+
+        // When
+        limiter.onDropped();
+
+        // Then
+        assertEquals(9, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void whenMaxLimitLowered_shouldClampCapAndKeepRequestsInFlight() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = limiter(100);
+        for (int i = 0; i < 8; i++) {
+            limiter.tryAcquire();
+        }
+
+        // When
+        limiter.maxLimit(5);
+
+        // Then
+        assertEquals(5, limiter.limit());
+        assertEquals(8, limiter.inFlight());
+        assertFalse(limiter.tryAcquire());
+        for (int i = 0; i < 4; i++) {
+            limiter.onIgnore();
+        }
+        assertTrue(limiter.tryAcquire());
+    }
+}
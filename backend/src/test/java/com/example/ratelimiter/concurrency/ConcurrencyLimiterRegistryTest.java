@@ -0,0 +1,55 @@
+package com.example.ratelimiter.concurrency;
+
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.events.DecisionEventLog;
+import com.example.ratelimiter.metrics.RateLimitMetrics;
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.rule.RateLimitRule;
+import com.example.ratelimiter.semaphore.RateLimitSemaphore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static com.example.ratelimiter.rule.CompiledRules.compile;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ConcurrencyLimiterRegistryTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ConcurrencyLimiterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        RateLimiterConfig config = new RateLimiterConfig();
+        meterRegistry = new SimpleMeterRegistry();
+        registry = new ConcurrencyLimiterRegistry(config, new RateLimitMetrics(meterRegistry, config),
+                mock(RateLimitSemaphore.class), mock(DecisionEventLog.class));
+    }
+
+    @Test
+    void whenRuleReloadedWithNewLimit_shouldKeepLimiterAndReportNewCap() {
+        // Given
+        RateLimitRule before = rule(1000);
+        ConcurrencyLimiterRegistry.InFlight inFlight = registry.tryAcquire(new CompiledRule[]{compile(before)});
+
+        // When
+        RateLimitRule after = rule(3);
+
+        // Then
+        assertSame(registry.limiter(before), registry.limiter(after));
+        assertEquals(1, registry.limiter(after).inFlight());
+        assertEquals(1, meterRegistry.find("rate.limiter.concurrency.limit").gauges().size());
+        assertEquals(3, meterRegistry.get("rate.limiter.concurrency.limit").tag("endpoint", "GET /api/report")
+                .gauge().value());
+        inFlight.complete();
+        assertEquals(0, meterRegistry.get("rate.limiter.concurrency.in.flight").gauge().value());
+    }
+
+    private static RateLimitRule rule(long limit) {
+        return new RateLimitRule("GET /api/report", null, RateLimitRule.CONCURRENCY, RateLimitRule.GRADIENT, limit,
+                Duration.ZERO, "local");
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.ratelimiter.config;
+
+import com.example.ratelimiter.annotation.RateLimit;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterRuntimeHintsTest {
+
+    @Test
+    void whenRegisteringHints_shouldCoverScriptsAnnotationsAndRebindableProperties() {
+        // Given
+        RuntimeHints hints = new RuntimeHints();
+
+        // When
+        new RateLimiterRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        // Then
+        assertTrue(RuntimeHintsPredicates.resource().forResource("scripts/batch.lua").test(hints));
+        assertTrue(RuntimeHintsPredicates.resource().forResource("scripts/algorithms/count-min.lua").test(hints));
+        assertTrue(RuntimeHintsPredicates.proxies().forInterfaces(RateLimit.class).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(EndpointRateLimitConfig.RateLimitConfig.class)
+                .test(hints));
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.ratelimiter.events;
+
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.metrics.RateLimitMetrics;
+import com.example.ratelimiter.rule.RateLimitRule;
+import com.example.ratelimiter.service.RateLimitDecision;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecisionEventLogTest {
+
+    private static final RateLimitRule RULE = new RateLimitRule("POST /api/posts", "X-User-Id", "second",
+            "fixed-window", 5, Duration.ofSeconds(1), "local");
+    private static final RateLimitDecision ALLOWED = new RateLimitDecision(true, 5, 4, 1_000);
+    private static final RateLimitDecision DENIED = new RateLimitDecision(false, 5, 0, 1_000);
+
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitMetrics metrics;
+    private RateLimiterConfig.Events settings;
+
+    @BeforeEach
+    void setUp() {
+        RateLimiterConfig config = new RateLimiterConfig();
+        meterRegistry = new SimpleMeterRegistry();
+        metrics = new RateLimitMetrics(meterRegistry, config);
+        settings = config.getEvents();
+        settings.setEnabled(true);
+        settings.setFlushInterval(Duration.ofMillis(1));
+    }
+
+    private double events(String result) {
+        return meterRegistry.get("rate.limiter.events").tag("result", result).counter().count();
+    }
+
+    @Test
+    void whenDecisionsRecorded_shouldWriteDenialsAndSampledAllowsInBatches() throws Exception {
+        // Given
+        settings.setAllowSampleRate(0);
+        List<List<DecisionEvent>> batches = new CopyOnWriteArrayList<>();
+        DecisionEventLog log = new DecisionEventLog(settings, metrics, events -> batches.add(List.copyOf(events)));
+
+        // When
+        log.record(RULE, "user123", ALLOWED);
+        log.record(RULE, "user123", DENIED);
+        log.recordConcurrency(RULE, null, false);
+        log.start();
+        log.stop();
+
+        // Then
+        List<DecisionEvent> written = batches.stream().flatMap(List::stream).toList();
+        assertEquals(2, written.size());
+        assertEquals("user123", written.get(0).key());
+        assertFalse(written.get(0).allowed());
+        assertEquals(0, written.get(0).remaining());
+        assertNull(written.get(1).key());
+        assertEquals(2, events("written"));
+    }
+
+    @Test
+    void whenBufferFull_shouldDropAndCountInsteadOfBlocking() throws Exception {
+        // Given
+        settings.setBufferSize(4);
+        CountDownLatch release = new CountDownLatch(1);
+        DecisionEventLog log = new DecisionEventLog(settings, metrics, events -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            log.record(RULE, "user" + i, DENIED);
+        }
+
+        // Then
+        assertEquals(6, events("dropped"));
+        release.countDown();
+        log.start();
+        log.stop();
+        assertEquals(4, events("written"));
+    }
+
+    @Test
+    void whenSinkFails_shouldCountLostEventsAndKeepWriting() throws Exception {
+        // Given
+        List<DecisionEvent> written = new CopyOnWriteArrayList<>();
+        DecisionEventLog log = new DecisionEventLog(settings, metrics, new DecisionEventSink() {
+            private boolean failed;
+
+            @Override
+            public void write(List<DecisionEvent> events) {
+                if (!failed) {
+                    failed = true;
+                    throw new IllegalStateException("Redis is down");
+                }
+                written.addAll(events);
+            }
+        });
+        log.start();
+
+        // When
+        log.record(RULE, "user1", DENIED);
+        while (events("failed") == 0) {
+            Thread.onSpinWait();
+        }
+        log.record(RULE, "user2", DENIED);
+        log.stop();
+
+        // Then
+        assertEquals(1, events("failed"));
+        assertEquals("user2", written.get(0).key());
+    }
+
+    @Test
+    void whenManyThreadsOffer_shouldDeliverEveryEventOnce() throws Exception {
+        // Given
+        DecisionRingBuffer buffer = new DecisionRingBuffer(1 << 16);
+        ExecutorService producers = Executors.newFixedThreadPool(4);
+
+        // When
+        for (int thread = 0; thread < 4; thread++) {
+            int offset = thread * 10_000;
+            producers.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    buffer.offer(0, "rule", "second", Integer.toString(offset + i), false, 5, 0, 0);
+                }
+            });
+        }
+        producers.shutdown();
+        assertTrue(producers.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Then
+        List<DecisionEvent> drained = new ArrayList<>();
+        while (buffer.drain(drained, 1_000) > 0) {
+            Thread.onSpinWait();
+        }
+        Set<String> keys = new HashSet<>();
+        drained.forEach(event -> keys.add(event.key()));
+        assertEquals(40_000, drained.size());
+        assertEquals(40_000, keys.size());
+    }
+}
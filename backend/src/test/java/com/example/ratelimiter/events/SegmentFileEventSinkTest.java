@@ -0,0 +1,84 @@
+package com.example.ratelimiter.events;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentFileEventSinkTest {
+
+    @TempDir
+    private Path directory;
+
+    private static List<DecisionEvent> events(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new DecisionEvent(1_700_000_000_000L + i, "POST /api/posts", "second",
+                        "user\"" + i, false, 5, 0, 1_000))
+                .toList();
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    @Test
+    void whenEventsWritten_shouldAppendJsonLinesAndTruncateOnClose() throws Exception {
+        // Given
+        SegmentFileEventSink sink = new SegmentFileEventSink(directory, 1 << 20, 4);
+
+        // When
+        sink.write(events(2));
+        sink.close();
+
+        // Then
+        List<String> lines = Files.readAllLines(segments().get(0));
+        assertEquals(2, lines.size());
+        assertEquals("{\"ts\":1700000000000,\"rule\":\"POST /api/posts\",\"type\":\"second\",\"key\":\"user\\\"0\","
+                + "\"outcome\":\"denied\",\"limit\":5,\"remaining\":0,\"reset\":1000}", lines.get(0));
+    }
+
+    @Test
+    void whenSegmentFull_shouldRollAndDeleteOldestBeyondMaximum() throws Exception {
+        // Given
+        SegmentFileEventSink sink = new SegmentFileEventSink(directory, 4096, 2);
+
+        // When
+        sink.write(events(200));
+        sink.close();
+
+        // Then
+        List<Path> segments = segments();
+        assertEquals(2, segments.size());
+        assertTrue(segments.get(1).getFileName().toString().compareTo("decisions-0000000000000002.log") > 0);
+        for (Path segment : segments) {
+            assertTrue(Files.size(segment) <= 4096);
+            assertTrue(Files.readString(segment).endsWith("}\n"));
+        }
+    }
+
+    @Test
+    void whenRestarted_shouldStartNewSegmentAfterExistingOnes() throws Exception {
+        // Given
+        SegmentFileEventSink first = new SegmentFileEventSink(directory, 1 << 20, 4);
+        first.write(events(1));
+        first.close();
+
+        // When
+        SegmentFileEventSink second = new SegmentFileEventSink(directory, 1 << 20, 4);
+        second.write(events(1));
+        second.close();
+
+        // Then
+        List<Path> segments = segments();
+        assertEquals(List.of("decisions-0000000000000001.log", "decisions-0000000000000002.log"),
+                segments.stream().map(path -> path.getFileName().toString()).toList());
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.ratelimiter.filter;
+
+import com.example.ratelimiter.concurrency.ConcurrencyLimiterRegistry;
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.events.DecisionEventLog;
+import com.example.ratelimiter.headers.RateLimitHeaders;
+import com.example.ratelimiter.metrics.RateLimitMetrics;
+import com.example.ratelimiter.rule.RateLimitCost;
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.rule.RateLimitRule;
+import com.example.ratelimiter.rule.RateLimitRuleRegistry;
+import com.example.ratelimiter.rule.RateLimitRuleSnapshot;
+import com.example.ratelimiter.rule.RateLimitRuleTable;
+import com.example.ratelimiter.semaphore.LocalRateLimitSemaphore;
+import com.example.ratelimiter.service.RateLimitDecision;
+import com.example.ratelimiter.service.RateLimiterService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static com.example.ratelimiter.rule.CompiledRules.compile;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimitFilterTest {
+
+    private static final CompiledRule POSTS = compile(new RateLimitRule("POST /api/posts", "X-User-Id", "second",
+            "fixed-window", 5, Duration.ofSeconds(1), "local"));
+
+    @Mock
+    private RateLimitRuleRegistry ruleRegistry;
+
+    @Mock
+    private RateLimiterService rateLimiterService;
+
+    @Mock
+    private FilterChain filterChain;
+
+    private ConcurrencyLimiterRegistry concurrencyLimiters;
+    private RateLimitFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() {
+        RateLimiterConfig config = new RateLimiterConfig();
+        concurrencyLimiters = new ConcurrencyLimiterRegistry(config,
+                new RateLimitMetrics(new SimpleMeterRegistry(), config), new LocalRateLimitSemaphore(config),
+                DecisionEventLog.DISABLED);
+        filter = new RateLimitFilter(ruleRegistry, rateLimiterService, concurrencyLimiters, new ObjectMapper(),
+                new RateLimitHeaders(config));
+        request = new MockHttpServletRequest("POST", "/api/posts");
+        response = new MockHttpServletResponse();
+        givenRules(RateLimitRuleTable.builder().add("POST", "/api/posts", POSTS).build(), RateLimitRuleTable.EMPTY);
+    }
+
+    @Test
+    void whenRateLimitAllowed_shouldContinueChain() throws Exception {
+        // Given
+        request.addHeader("X-User-Id", "user123");
+        givenDecisions(new RateLimitDecision(true, 5, 4, 1000));
+
+        // When
+        filter.doFilter(request, response, filterChain);
+
+        // Then
+        verify(filterChain).doFilter(request, response);
+        assertEquals(200, response.getStatus());
+        assertEquals("4", response.getHeader("RateLimit-Remaining"));
+        assertEquals("5;w=1", response.getHeader("RateLimit-Policy"));
+        assertNull(response.getHeader("Retry-After"));
+    }
+
+    @Test
+    void whenRateLimitExceeded_shouldWrite429WithoutContinuing() throws Exception {
+        // Given
+        request.addHeader("X-User-Id", "user123");
+        givenDecisions(new RateLimitDecision(false, 5, 0, 1000));
+
+        // When
+        filter.doFilter(request, response, filterChain);
+
+        // Then
+        verifyNoInteractions(filterChain);
+        assertEquals(429, response.getStatus());
+        assertEquals("Rate limit exceeded for second", response.getContentAsString());
+        assertEquals("0", response.getHeader("RateLimit-Remaining"));
+        assertEquals("1", response.getHeader("RateLimit-Reset"));
+        assertEquals("1", response.getHeader("Retry-After"));
+    }
+
+    @Test
+    void whenPathIsEncodedOrHasMatrixParameters_shouldApplyLimitOfDecodedPath() throws Exception {
+        // Given
+        givenDecisions(new RateLimitDecision(false, 5, 0, 1000));
+
+        for (String uri : new String[]{"/api/%70osts", "/api/posts;x=1", "/api;v=2/p%6Fsts;jsessionid=abc"}) {
+            request = new MockHttpServletRequest("POST", uri);
+            request.addHeader("X-User-Id", "user123");
+            response = new MockHttpServletResponse();
+
+            // When
+            filter.doFilter(request, response, filterChain);
+
+            // Then
+            assertEquals(429, response.getStatus(), uri);
+        }
+        verifyNoInteractions(filterChain);
+    }
+
+    @Test
+    void whenHeaderMissing_shouldWrite400() throws Exception {
+        // When
+        filter.doFilter(request, response, filterChain);
+
+        // Then
+        verifyNoInteractions(filterChain, rateLimiterService);
+        assertEquals(400, response.getStatus());
+        assertTrue(response.getContentAsString().contains("\"path\":\"/api/posts\""));
+    }
+
+    @Test
+    void whenNoRuleMatches_shouldContinueChain() throws Exception {
+        // Given
+        request.setMethod("GET");
+
+        // When
+        filter.doFilter(request, response, filterChain);
+
+        // Then
+        verify(filterChain).doFilter(request, response);
+        verify(rateLimiterService, never()).tryAcquireAll(any(), any(), any());
+    }
+
+    @Test
+    void whenStackedLimits_shouldEvaluateAllInOneCallAndRejectOnAnyDenial() throws Exception {
+        // Given
+        CompiledRule perIp = compile(new RateLimitRule("posts-per-ip", "X-IP-Address", "day", "fixed-window",
+                1000, Duration.ofDays(1), "local"));
+        givenRules(RateLimitRuleTable.builder()
+                .add("POST", "/api/posts", POSTS)
+                .add("POST", "/api/posts", perIp)
+                .build(), RateLimitRuleTable.EMPTY);
+        request.addHeader("X-User-Id", "user123");
+        request.addHeader("X-IP-Address", "10.0.0.1");
+        when(rateLimiterService.tryAcquireAll(new CompiledRule[]{POSTS, perIp}, new String[]{"user123", "10.0.0.1"},
+                new int[]{1, 1}))
+                .thenReturn(new RateLimitDecision[]{
+                        new RateLimitDecision(true, 5, 4, 1000), new RateLimitDecision(false, 1000, 0, 5000)});
+
+        // When
+        filter.doFilter(request, response, filterChain);
+
+        // Then
+        verifyNoInteractions(filterChain);
+        assertEquals(429, response.getStatus());
+        assertEquals("Rate limit exceeded for day", response.getContentAsString());
+    }
+
+    @Test
+    void whenCostReadFromHeader_shouldTakeThatManyPermits() throws Exception {
+        // Given
+        CompiledRule uploads = compile(new RateLimitRule("POST /api/posts", "X-User-Id", "second", "fixed-window",
+                100, Duration.ofSeconds(1), "local", RateLimitCost.parse("header('X-Batch-Size') * 2")));
+        givenRules(RateLimitRuleTable.builder().add("POST", "/api/posts", uploads).build(), RateLimitRuleTable.EMPTY);
+        request.addHeader("X-User-Id", "user123");
+        request.addHeader("X-Batch-Size", "20");
+        when(rateLimiterService.tryAcquireAll(new CompiledRule[]{uploads}, new String[]{"user123"}, new int[]{40}))
+                .thenReturn(new RateLimitDecision[]{new RateLimitDecision(true, 100, 60, 1000)});
+
+        // When
+        filter.doFilter(request, response, filterChain);
+
+        // Then
+        verify(filterChain).doFilter(request, response);
+    }
+
+    @Test
+    void whenCostHeaderMissing_shouldWrite400() throws Exception {
+        // Given
+        CompiledRule uploads = compile(new RateLimitRule("POST /api/posts", "X-User-Id", "second", "fixed-window",
+                100, Duration.ofSeconds(1), "local", RateLimitCost.parse("header('X-Batch-Size')")));
+        givenRules(RateLimitRuleTable.builder().add("POST", "/api/posts", uploads).build(), RateLimitRuleTable.EMPTY);
+        request.addHeader("X-User-Id", "user123");
+
+        // When
+        filter.doFilter(request, response, filterChain);
+
+        // Then
+        verifyNoInteractions(filterChain, rateLimiterService);
+        assertEquals(400, response.getStatus());
+        assertTrue(response.getContentAsString().contains("X-Batch-Size"));
+    }
+
+    @Test
+    void whenConcurrencyCapReached_shouldShedUntilInFlightRequestCompletes() throws Exception {
+        // Given
+        CompiledRule inFlight = compile(new RateLimitRule("POST /api/posts", null, "concurrency", "gradient", 1,
+                Duration.ZERO, "local"));
+        givenRules(RateLimitRuleTable.EMPTY, RateLimitRuleTable.builder()
+                .add("POST", "/api/posts", inFlight)
+                .build());
+        MockHttpServletResponse concurrent = new MockHttpServletResponse();
+        doAnswer(invocation -> {
+            filter.doFilter(new MockHttpServletRequest("POST", "/api/posts"), concurrent, mock(FilterChain.class));
+            return null;
+        }).when(filterChain).doFilter(request, response);
+
+        // When
+        filter.doFilter(request, response, filterChain);
+        MockHttpServletResponse after = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/posts"), after, mock(FilterChain.class));
+
+        // Then
+        assertEquals(200, response.getStatus());
+        assertEquals(429, concurrent.getStatus());
+        assertEquals("Rate limit exceeded for concurrency", concurrent.getContentAsString());
+        assertEquals(200, after.getStatus());
+        verifyNoInteractions(rateLimiterService);
+    }
+
+    @Test
+    void whenRateLimitExceededUnderInFlightLimit_shouldHandBackSlot() throws Exception {
+        // Given
+        CompiledRule inFlight = compile(new RateLimitRule("POST /api/posts", null, "concurrent", "semaphore", 1,
+                Duration.ofSeconds(30), "local"));
+        givenRules(RateLimitRuleTable.builder().add("POST", "/api/posts", POSTS).build(),
+                RateLimitRuleTable.builder().add("POST", "/api/posts", inFlight).build());
+        request.addHeader("X-User-Id", "user123");
+        givenDecisions(new RateLimitDecision(false, 5, 0, 1000));
+
+        // When
+        filter.doFilter(request, response, filterChain);
+
+        // Then
+        assertEquals(429, response.getStatus());
+        assertEquals("Rate limit exceeded for second", response.getContentAsString());
+        assertTrue(concurrencyLimiters.tryAcquire(new CompiledRule[]{inFlight}).admitted());
+    }
+
+    @Test
+    void whenInFlightKeyHeaderMissing_shouldWrite400WithoutTakingPermits() throws Exception {
+        // Given
+        CompiledRule inFlight = compile(new RateLimitRule("POST /api/posts", "X-Device-Id", "concurrent",
+                "semaphore", 1, Duration.ofSeconds(30), "local"));
+        givenRules(RateLimitRuleTable.builder().add("POST", "/api/posts", POSTS).build(),
+                RateLimitRuleTable.builder().add("POST", "/api/posts", inFlight).build());
+        request.addHeader("X-User-Id", "user123");
+
+        // When
+        filter.doFilter(request, response, filterChain);
+
+        // Then
+        verifyNoInteractions(filterChain, rateLimiterService);
+        assertEquals(400, response.getStatus());
+        assertTrue(response.getContentAsString().contains("X-Device-Id"));
+    }
+
+    private void givenDecisions(RateLimitDecision... decisions) {
+        when(rateLimiterService.tryAcquireAll(new CompiledRule[]{POSTS}, new String[]{"user123"}, new int[]{1}))
+                .thenReturn(decisions);
+    }
+
+    private void givenRules(RateLimitRuleTable table, RateLimitRuleTable concurrencyTable) {
+        when(ruleRegistry.snapshot()).thenReturn(new RateLimitRuleSnapshot(1, table, concurrencyTable));
+    }
+}
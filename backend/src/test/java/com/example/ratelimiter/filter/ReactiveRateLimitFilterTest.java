@@ -0,0 +1,149 @@
+package com.example.ratelimiter.filter;
+
+import com.example.ratelimiter.concurrency.ConcurrencyLimiterRegistry;
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.headers.RateLimitHeaders;
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.rule.RateLimitRule;
+import com.example.ratelimiter.rule.RateLimitRuleRegistry;
+import com.example.ratelimiter.rule.RateLimitRuleSnapshot;
+import com.example.ratelimiter.rule.RateLimitRuleTable;
+import com.example.ratelimiter.service.RateLimitDecision;
+import com.example.ratelimiter.service.ReactiveRateLimiterService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static com.example.ratelimiter.rule.CompiledRules.compile;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveRateLimitFilterTest {
+
+    private static final CompiledRule POSTS = compile(new RateLimitRule("POST /api/posts", "X-User-Id", "second",
+            "fixed-window", 5, Duration.ofSeconds(1), "local"));
+
+    @Mock
+    private RateLimitRuleRegistry ruleRegistry;
+
+    @Mock
+    private ReactiveRateLimiterService rateLimiterService;
+
+    @Mock
+    private ConcurrencyLimiterRegistry concurrencyLimiters;
+
+    @Mock
+    private WebFilterChain filterChain;
+
+    private ReactiveRateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new ReactiveRateLimitFilter(ruleRegistry, rateLimiterService, concurrencyLimiters, new ObjectMapper(),
+                new RateLimitHeaders(new RateLimiterConfig()));
+        givenRules(RateLimitRuleTable.builder().add("POST", "/api/posts", POSTS).build(), RateLimitRuleTable.EMPTY);
+    }
+
+    @Test
+    void whenRateLimitAllowed_shouldContinueChain() {
+        // Given
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.post("/api/posts")
+                .header("X-User-Id", "user123"));
+        when(filterChain.filter(exchange)).thenReturn(Mono.empty());
+        givenDecisions(new RateLimitDecision(true, 5, 4, 1000));
+
+        // When
+        filter.filter(exchange, filterChain).block();
+
+        // Then
+        verify(filterChain).filter(exchange);
+        assertNull(exchange.getResponse().getStatusCode());
+    }
+
+    @Test
+    void whenRateLimitExceeded_shouldWrite429WithoutContinuing() {
+        // Given
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.post("/api/posts")
+                .header("X-User-Id", "user123"));
+        givenDecisions(new RateLimitDecision(false, 5, 0, 1000));
+
+        // When
+        filter.filter(exchange, filterChain).block();
+
+        // Then
+        verifyNoInteractions(filterChain);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exchange.getResponse().getStatusCode());
+        assertEquals("Rate limit exceeded for second", exchange.getResponse().getBodyAsString().block());
+        assertEquals("1", exchange.getResponse().getHeaders().getFirst("Retry-After"));
+    }
+
+    @Test
+    void whenHeaderMissing_shouldWrite400() {
+        // Given
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.post("/api/posts"));
+
+        // When
+        filter.filter(exchange, filterChain).block();
+
+        // Then
+        verifyNoInteractions(filterChain, rateLimiterService);
+        assertEquals(HttpStatus.BAD_REQUEST, exchange.getResponse().getStatusCode());
+        assertTrue(exchange.getResponse().getBodyAsString().block().contains("\"path\":\"/api/posts\""));
+    }
+
+    @Test
+    void whenNoRuleMatches_shouldContinueChain() {
+        // Given
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/api/posts"));
+        when(filterChain.filter(exchange)).thenReturn(Mono.empty());
+
+        // When
+        filter.filter(exchange, filterChain).block();
+
+        // Then
+        verify(filterChain).filter(exchange);
+        verifyNoInteractions(rateLimiterService);
+    }
+
+    @Test
+    void whenInFlightKeyHeaderMissing_shouldWrite400WithoutTakingPermits() {
+        // Given
+        CompiledRule inFlight = compile(new RateLimitRule("POST /api/posts", "X-Device-Id", "concurrent",
+                "semaphore", 1, Duration.ofSeconds(30), "local"));
+        givenRules(RateLimitRuleTable.builder().add("POST", "/api/posts", POSTS).build(),
+                RateLimitRuleTable.builder().add("POST", "/api/posts", inFlight).build());
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.post("/api/posts")
+                .header("X-User-Id", "user123"));
+
+        // When
+        filter.filter(exchange, filterChain).block();
+
+        // Then
+        verifyNoInteractions(filterChain, rateLimiterService, concurrencyLimiters);
+        assertEquals(HttpStatus.BAD_REQUEST, exchange.getResponse().getStatusCode());
+    }
+
+    private void givenDecisions(RateLimitDecision... decisions) {
+        when(rateLimiterService.tryAcquireAll(new CompiledRule[]{POSTS}, new String[]{"user123"}, new int[]{1}))
+                .thenReturn(Mono.just(decisions));
+    }
+
+    private static MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+        return MockServerWebExchange.from(request);
+    }
+
+    private void givenRules(RateLimitRuleTable table, RateLimitRuleTable concurrencyTable) {
+        when(ruleRegistry.snapshot()).thenReturn(new RateLimitRuleSnapshot(1, table, concurrencyTable));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.ratelimiter.headers;
+
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.rule.RateLimitRule;
+import com.example.ratelimiter.service.RateLimitDecision;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.example.ratelimiter.rule.CompiledRules.compile;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitHeadersTest {
+
+    private static final CompiledRule PER_SECOND = compile(new RateLimitRule("posts", "X-User-Id", "second",
+            "fixed-window", 5, Duration.ofSeconds(1), "local"));
+    private static final CompiledRule PER_DAY = compile(new RateLimitRule("posts", "X-User-Id", "day",
+            "fixed-window", 100, Duration.ofDays(1), "local"));
+
+    private RateLimiterConfig config;
+    private Map<String, String> written;
+
+    @BeforeEach
+    void setUp() {
+        config = new RateLimiterConfig();
+        written = new LinkedHashMap<>();
+    }
+
+    @Test
+    void whenAllowedUnderSeveralRules_shouldReportQuotaWithFewestPermitsLeft() {
+        // When
+        new RateLimitHeaders(config).write(new CompiledRule[]{PER_SECOND, PER_DAY},
+                new RateLimitDecision[]{new RateLimitDecision(true, 5, 4, 300),
+                        new RateLimitDecision(true, 100, 2, 7_200_000)},
+                written::put);
+
+        // Then
+        assertEquals(Map.of("RateLimit-Limit", "100", "RateLimit-Remaining", "2", "RateLimit-Reset", "7200",
+                "RateLimit-Policy", "5;w=1, 100;w=86400"), written);
+    }
+
+    @Test
+    void whenDenied_shouldReportDenyingRuleAndRetryAfter() {
+        // When
+        new RateLimitHeaders(config).write(new CompiledRule[]{PER_SECOND, PER_DAY},
+                new RateLimitDecision[]{new RateLimitDecision(true, 5, 0, 800),
+                        new RateLimitDecision(false, 100, 0, 1500)},
+                written::put);
+
+        // Then
+        assertEquals("100", written.get("RateLimit-Limit"));
+        assertEquals("2", written.get("RateLimit-Reset"));
+        assertEquals("2", written.get("Retry-After"));
+    }
+
+    @Test
+    void whenJitterConfigured_shouldStretchRetryAfterWithinBound() {
+        // Given
+        config.getHeaders().setRetryAfterJitter(0.5);
+        RateLimitHeaders headers = new RateLimitHeaders(config);
+
+        // When/Then
+        for (int i = 0; i < 1000; i++) {
+            long retryAfter = headers.retryAfterSeconds(10_000);
+            assertTrue(retryAfter >= 10 && retryAfter <= 15, () -> "Retry-After " + retryAfter);
+        }
+        assertEquals(1, headers.retryAfterSeconds(0));
+    }
+
+    @Test
+    void whenDisabled_shouldWriteNothing() {
+        // Given
+        config.getHeaders().setEnabled(false);
+
+        // When
+        new RateLimitHeaders(config).write(new CompiledRule[]{PER_SECOND},
+                new RateLimitDecision[]{new RateLimitDecision(false, 5, 0, 800)}, written::put);
+
+        // Then
+        assertTrue(written.isEmpty());
+    }
+}
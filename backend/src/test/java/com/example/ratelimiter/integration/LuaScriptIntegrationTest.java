@@ -0,0 +1,220 @@
+package com.example.ratelimiter.integration;
+
+import com.example.ratelimiter.algorithm.CountMinSketchAlgorithm;
+import com.example.ratelimiter.algorithm.FixedWindowAlgorithm;
+import com.example.ratelimiter.algorithm.GcraAlgorithm;
+import com.example.ratelimiter.algorithm.LuaScripts;
+import com.example.ratelimiter.algorithm.RateLimitAlgorithmRegistry;
+import com.example.ratelimiter.algorithm.SlidingWindowCounterAlgorithm;
+import com.example.ratelimiter.algorithm.TokenBucketAlgorithm;
+import com.example.ratelimiter.config.RateLimiterConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Calls the Lua scripts directly against a real Redis, so what they decide, commit and hand back is checked
+ * without the Java code around them.
+ */
+@Testcontainers
+class LuaScriptIntegrationTest {
+    private static final String WINDOW = "200";
+    private static final String MINUTE = "60000";
+
+    @Container
+    static GenericContainer<?> redis = new GenericContainer<>(DockerImageName.parse("redis:7.2"))
+            .withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate template;
+    private static RateLimitAlgorithmRegistry algorithms;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redis.getHost(), redis.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        template = new StringRedisTemplate(connectionFactory);
+        algorithms = new RateLimitAlgorithmRegistry(List.of(new FixedWindowAlgorithm(),
+                new SlidingWindowCounterAlgorithm(), new TokenBucketAlgorithm(), new GcraAlgorithm(),
+                new CountMinSketchAlgorithm(new RateLimiterConfig())));
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        template.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+    }
+
+    @Test
+    void whenLimitReached_shouldDenyUntilWindowRolls() throws InterruptedException {
+        for (String algorithm : List.of("fixed-window", "sliding-window-counter", "token-bucket", "gcra")) {
+            // Given
+            String key = "window:" + algorithm;
+            assertThat(decide(key, algorithm, "2", WINDOW).get(0)).as(algorithm).isEqualTo(1L);
+            assertThat(decide(key, algorithm, "2", WINDOW).get(0)).as(algorithm).isEqualTo(1L);
+
+            // When
+            List<Long> denied = decide(key, algorithm, "2", WINDOW);
+            Thread.sleep(denied.get(2) + 20);
+
+            // Then the reset it reported is when the next permit frees up
+            assertThat(denied.get(0)).as(algorithm).isEqualTo(0L);
+            assertThat(denied.get(1)).as(algorithm).isZero();
+            assertThat(decide(key, algorithm, "2", WINDOW).get(0)).as(algorithm).isEqualTo(1L);
+        }
+    }
+
+    @Test
+    void whenOneStackedLimitDenies_shouldCommitNone() {
+        // Given
+        decide("exhausted", "fixed-window", "1", MINUTE);
+
+        // When
+        List<Long> result = execute(algorithms.getScript(), List.of("fresh", "exhausted"),
+                "sliding-window-counter", "5", MINUTE, "second", "1",
+                "fixed-window", "1", MINUTE, "second", "1");
+
+        // Then
+        assertThat(List.of(result.get(0), result.get(1), result.get(3))).containsExactly(1L, 4L, 0L);
+        assertThat(template.hasKey("fresh")).isFalse();
+        assertThat(decide("fresh", "sliding-window-counter", "5", MINUTE).get(1)).isEqualTo(4L);
+    }
+
+    @Test
+    void whenBatchListsLimitsSeparately_shouldCommitEachOnItsOwn() {
+        // When
+        List<Long> result = execute(algorithms.getBatchScript(), List.of("user1", "user1", "user2"),
+                "fixed-window", "1", MINUTE, "second", "1",
+                "fixed-window", "1", MINUTE, "second", "1",
+                "gcra", "5", MINUTE, "second", "1");
+
+        // Then the second sees the permit the first took; the third is unaffected by that denial
+        assertThat(List.of(result.get(0), result.get(3), result.get(6))).containsExactly(1L, 0L, 1L);
+        assertThat(result.get(7)).isEqualTo(4L);
+    }
+
+    @Test
+    void whenPermitsRefunded_shouldAllowAgain() {
+        for (String algorithm : List.of("fixed-window", "sliding-window-counter", "token-bucket", "gcra")) {
+            // Given
+            String key = "refund:" + algorithm;
+            decide(key, algorithm, "2", MINUTE);
+            decide(key, algorithm, "2", MINUTE);
+            assertThat(decide(key, algorithm, "2", MINUTE).get(0)).as(algorithm).isEqualTo(0L);
+
+            // When
+            Long refunded = count(algorithms.getRefundScript(), List.of(key), algorithm, "2", MINUTE, "second", "1");
+
+            // Then
+            assertThat(refunded).as(algorithm).isEqualTo(1L);
+            assertThat(decide(key, algorithm, "2", MINUTE).get(0)).as(algorithm).isEqualTo(1L);
+            assertThat(decide(key, algorithm, "2", MINUTE).get(0)).as(algorithm).isEqualTo(0L);
+        }
+    }
+
+    @Test
+    void whenCountMinKeyNearsItsLimit_shouldCountItExactly() {
+        // Given
+        String field = "count-min:0123456789abcdef";
+        countMin(field);
+        Long beforePromotion = count(algorithms.getRefundScript(), List.of("sketch"),
+                "count-min", "10", MINUTE, field, "1");
+
+        // When it reaches half of its limit
+        for (int i = 0; i < 4; i++) {
+            countMin(field);
+        }
+        Long afterPromotion = count(algorithms.getRefundScript(), List.of("sketch"),
+                "count-min", "10", MINUTE, field, "1");
+
+        // Then only its exact counter can hand permits back, and it is still held to its limit
+        assertThat(beforePromotion).isZero();
+        assertThat(afterPromotion).isEqualTo(1L);
+        assertThat(countMin(field).subList(0, 2)).containsExactly(1L, 5L);
+        for (int i = 0; i < 5; i++) {
+            assertThat(countMin(field).get(0)).isEqualTo(1L);
+        }
+        assertThat(countMin(field).get(0)).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("rawtypes")
+    void whenLeaseReturned_shouldCountOnlyThePermitsUsed() {
+        // Given
+        RedisScript<List> lease = script("scripts/lease.lua", List.class);
+        RedisScript<Long> leaseReturn = script("scripts/lease_return.lua", Long.class);
+
+        // When
+        List<Long> leased = execute(lease, List.of("user1"), "second", "10", MINUTE, "0.5", "100", "0", "0");
+        Long returned = count(leaseReturn, List.of("user1"), "second", "3", String.valueOf(leased.get(2)));
+
+        // Then
+        assertThat(leased.get(0)).isEqualTo(5L);
+        assertThat(leased.get(3)).isEqualTo(5L);
+        assertThat(returned).isEqualTo(3L);
+        assertThat(decide("user1", "fixed-window", "10", MINUTE).get(1)).isEqualTo(7L);
+    }
+
+    @Test
+    @SuppressWarnings("rawtypes")
+    void whenSemaphoreFull_shouldGrantOnlyReleasedOrExpiredPermits() throws InterruptedException {
+        // Given
+        RedisScript<List> acquire = script("scripts/semaphore_acquire.lua", List.class);
+        RedisScript<Long> release = script("scripts/semaphore_release.lua", Long.class);
+        RedisScript<Long> renew = script("scripts/semaphore_renew.lua", Long.class);
+        assertThat(execute(acquire, List.of("sem"), "2", MINUTE, "a", "b", "c")).containsExactly(2L, 2L);
+
+        // When / Then
+        assertThat(execute(acquire, List.of("sem"), "2", MINUTE, "d")).containsExactly(0L, 2L);
+        assertThat(count(release, List.of("sem"), "a")).isEqualTo(1L);
+        assertThat(execute(acquire, List.of("sem"), "2", MINUTE, "d")).containsExactly(1L, 2L);
+        assertThat(count(renew, List.of("sem"), MINUTE, "b", "d", "a")).isEqualTo(2L);
+
+        assertThat(execute(acquire, List.of("short"), "1", "100", "e")).containsExactly(1L, 1L);
+        Thread.sleep(150);
+        assertThat(execute(acquire, List.of("short"), "1", "100", "f")).containsExactly(1L, 1L);
+    }
+
+    private List<Long> countMin(String field) {
+        return execute(algorithms.getScript(), List.of("sketch"), "count-min", "10", MINUTE, field, "1");
+    }
+
+    private static List<Long> decide(String key, String algorithm, String limit, String window) {
+        return execute(algorithms.getScript(), List.of(key), algorithm, limit, window, "second", "1");
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static List<Long> execute(RedisScript<List> script, List<String> keys, String... args) {
+        return template.execute(script, keys, (Object[]) args);
+    }
+
+    private static Long count(RedisScript<Long> script, List<String> keys, String... args) {
+        return template.execute(script, keys, (Object[]) args);
+    }
+
+    private static <T> RedisScript<T> script(String path, Class<T> resultType) {
+        return new DefaultRedisScript<>(LuaScripts.load(path), resultType);
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.ratelimiter.integration;
 
+import com.example.ratelimiter.cache.DenyCache;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -45,6 +46,9 @@ class RateLimiterIntegrationTest {
         @Autowired
         private RedisTemplate<String, String> redisTemplate;
 
+        @Autowired
+        private DenyCache denyCache;
+
         private String baseUrl;
 
         @BeforeEach
@@ -53,6 +57,8 @@ class RateLimiterIntegrationTest {
                                 + restTemplate.getRestTemplate().getUriTemplateHandler().expand("/").getPort();
                 // Clear Redis before each test
                 redisTemplate.getConnectionFactory().getConnection().flushAll();
+                // Denials cached by earlier tests would otherwise outlive the flushed counters
+                denyCache.invalidateAll();
                 // Add a small delay to ensure Redis is ready
                 Thread.sleep(100);
         }
@@ -138,6 +144,8 @@ class RateLimiterIntegrationTest {
 
                 // Clear Redis for the next test
                 redisTemplate.getConnectionFactory().getConnection().flushAll();
+                // Denials cached by earlier tests would otherwise outlive the flushed counters
+                denyCache.invalidateAll();
                 Thread.sleep(100);
 
                 // Test accounts endpoint (limit: 3 per day)
@@ -161,6 +169,8 @@ class RateLimiterIntegrationTest {
 
                 // Clear Redis for the next test
                 redisTemplate.getConnectionFactory().getConnection().flushAll();
+                // Denials cached by earlier tests would otherwise outlive the flushed counters
+                denyCache.invalidateAll();
                 Thread.sleep(100);
 
                 // Test rewards endpoint (limit: 1 per week)
@@ -0,0 +1,164 @@
+package com.example.ratelimiter.integration;
+
+import com.example.ratelimiter.cache.DenyCache;
+import com.example.ratelimiter.codec.RedisKeyCodec;
+import com.example.ratelimiter.shard.RedisShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the application against three standalone Redis nodes with client-side sharding: every subject
+ * keeps its limits on one node, script calls split evenly across the nodes, and losing a node only
+ * affects the subjects it owns.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "rate-limiter.resilience.failure-threshold=1")
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ShardedRateLimiterIntegrationTest {
+    private static final Pattern SCRIPT_CALLS = Pattern.compile("cmdstat_eval(?:sha)?:calls=(\\d+)");
+
+    @Container
+    static GenericContainer<?> first = redis();
+
+    @Container
+    static GenericContainer<?> second = redis();
+
+    @Container
+    static GenericContainer<?> third = redis();
+
+    @DynamicPropertySource
+    static void redisProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.redis.host", first::getHost);
+        registry.add("spring.data.redis.port", () -> first.getMappedPort(6379));
+        registry.add("rate-limiter.sharding.nodes", () -> String.join(",", node(first), node(second), node(third)));
+    }
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private RedisShardRouter shards;
+
+    @Autowired
+    private DenyCache denyCache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        for (GenericContainer<?> redis : nodes()) {
+            redis.execInContainer("redis-cli", "FLUSHALL");
+            redis.execInContainer("redis-cli", "CONFIG", "RESETSTAT");
+        }
+        denyCache.invalidateAll();
+    }
+
+    @Test
+    @Order(1)
+    void whenSubjectsSpreadOverShards_shouldEnforceEachLimit() {
+        for (int user = 0; user < 12; user++) {
+            for (int i = 0; i < 5; i++) {
+                assertThat(post("user" + user)).isEqualTo(200);
+            }
+            assertThat(post("user" + user)).isEqualTo(429);
+        }
+    }
+
+    @Test
+    @Order(2)
+    void whenLoadSpreadOverShards_shouldSplitScriptCallsEvenly() {
+        // Each node serves about a third of the decisions, so aggregate capacity grows with the node count
+        for (int user = 0; user < 600; user++) {
+            assertThat(post("user" + user)).isEqualTo(200);
+        }
+
+        long total = 0;
+        for (GenericContainer<?> redis : nodes()) {
+            total += scriptCalls(redis);
+        }
+        assertThat(total).isGreaterThanOrEqualTo(600);
+        for (GenericContainer<?> redis : nodes()) {
+            assertThat(scriptCalls(redis)).isBetween(total / 5, total / 2);
+        }
+    }
+
+    @Test
+    @Order(3)
+    void whenShardLost_shouldKeepEnforcingLimitsOnOtherShards() {
+        String lost = node(third);
+        String survivor = subjectOn(node(first));
+        first.getDockerClient().pauseContainerCmd(third.getContainerId()).exec();
+        try {
+            // Subjects of the lost node are decided by the local fallback instead of failing
+            assertThat(post(subjectOn(lost))).isEqualTo(200);
+
+            for (int i = 0; i < 5; i++) {
+                assertThat(post(survivor)).isEqualTo(200);
+            }
+            assertThat(post(survivor)).isEqualTo(429);
+        } finally {
+            first.getDockerClient().unpauseContainerCmd(third.getContainerId()).exec();
+        }
+    }
+
+    private int post(String user) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-User-Id", user);
+        return restTemplate.exchange("/api/posts", HttpMethod.POST, new HttpEntity<>(headers), String.class)
+                .getStatusCode().value();
+    }
+
+    private String subjectOn(String node) {
+        for (int user = 0; ; user++) {
+            if (shards.shardFor(RedisKeyCodec.hash("user" + user)).name().equals(node)) {
+                return "user" + user;
+            }
+        }
+    }
+
+    private static long scriptCalls(GenericContainer<?> redis) {
+        try {
+            String stats = redis.execInContainer("redis-cli", "INFO", "commandstats").getStdout();
+            long calls = 0;
+            Matcher matcher = SCRIPT_CALLS.matcher(stats);
+            while (matcher.find()) {
+                calls += Long.parseLong(matcher.group(1));
+            }
+            return calls;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<GenericContainer<?>> nodes() {
+        return List.of(first, second, third);
+    }
+
+    private static String node(GenericContainer<?> redis) {
+        return redis.getHost() + ":" + redis.getMappedPort(6379);
+    }
+
+    private static GenericContainer<?> redis() {
+        return new GenericContainer<>(DockerImageName.parse("redis:7.2")).withExposedPorts(6379);
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.ratelimiter.lease;
+
+import com.example.ratelimiter.algorithm.FixedWindowAlgorithm;
+import com.example.ratelimiter.algorithm.RateLimitAlgorithmRegistry;
+import com.example.ratelimiter.codec.EncodedRule;
+import com.example.ratelimiter.codec.RedisKeyCodec;
+import com.example.ratelimiter.codec.StateKey;
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.metrics.RateLimitMetrics;
+import com.example.ratelimiter.rule.RateLimitRule;
+import com.example.ratelimiter.resilience.RedisCircuitBreaker;
+import com.example.ratelimiter.service.RateLimitDecision;
+import com.example.ratelimiter.service.RedisCalls;
+import com.example.ratelimiter.shard.RedisShard;
+import com.example.ratelimiter.shard.RedisShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QuotaLeaseManagerTest {
+
+    private static final RateLimitRule RULE = new RateLimitRule("user", "X-User-Id", "second", "fixed-window", 1000,
+            Duration.ofSeconds(1), "open");
+
+    @Mock
+    private ReactiveRedisTemplate<byte[], byte[]> redisTemplate;
+
+    private RateLimiterConfig config;
+    private RedisKeyCodec codec;
+    private QuotaLeaseManager leases;
+    private EncodedRule rule;
+    private StateKey state;
+
+    @BeforeEach
+    void setUp() {
+        config = new RateLimiterConfig();
+        config.getLease().setEnabled(true);
+        config.getLease().setMaxDuration(Duration.ofMinutes(1));
+        codec = new RedisKeyCodec(config, new RateLimitAlgorithmRegistry(List.of(new FixedWindowAlgorithm())));
+        RateLimitMetrics metrics = new RateLimitMetrics(new SimpleMeterRegistry(), config);
+        RedisShardRouter shards = RedisShardRouter.single(new RedisShard("redis", null, redisTemplate,
+                new RedisCircuitBreaker(config, metrics)), false);
+        leases = new QuotaLeaseManager(shards, codec, config);
+        rule = codec.encode(RULE);
+        state = codec.stateKey("user123", rule);
+    }
+
+    @Test
+    void whenLeaseGranted_shouldServeFromLocalPermits() {
+        // Given
+        givenLeaseReturns(10L, 1000L, 5000L, 990L);
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            assertTrue(leases.tryAcquire(state, rule, 1000, new RedisCalls()).allowed());
+        }
+
+        // Then
+        verify(redisTemplate, times(1)).execute(eq(QuotaLeaseManager.LEASE_SCRIPT), anyList(), anyList());
+    }
+
+    @Test
+    void whenServingFromLease_shouldReportClusterRemainingNotLeaseRemaining() {
+        // Given
+        givenLeaseReturns(10L, 1000L, 5000L, 600L);
+
+        // When
+        RateLimitDecision first = leases.tryAcquire(state, rule, 1000, new RedisCalls());
+        RateLimitDecision second = leases.tryAcquire(state, rule, 1000, new RedisCalls());
+
+        // Then
+        assertEquals(609, first.remaining());
+        assertEquals(608, second.remaining());
+    }
+
+    @Test
+    void whenLeaseExhausted_shouldRenewFromRedis() {
+        // Given
+        givenLeaseReturns(2L, 1000L, 5000L, 998L);
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            leases.tryAcquire(state, rule, 1000, new RedisCalls());
+        }
+
+        // Then
+        verify(redisTemplate, times(2)).execute(eq(QuotaLeaseManager.LEASE_SCRIPT), anyList(), anyList());
+    }
+
+    @Test
+    void whenQuotaExhausted_shouldDenyLocallyUntilLeaseExpires() {
+        // Given
+        givenLeaseReturns(0L, 800L, 5000L, 0L);
+
+        // When
+        RateLimitDecision first = leases.tryAcquire(state, rule, 1000, new RedisCalls());
+        RateLimitDecision second = leases.tryAcquire(state, rule, 1000, new RedisCalls());
+
+        // Then
+        assertFalse(first.allowed());
+        assertFalse(second.allowed());
+        assertTrue(second.resetMillis() <= 800);
+        verify(redisTemplate, times(1)).execute(eq(QuotaLeaseManager.LEASE_SCRIPT), anyList(), anyList());
+    }
+
+    @Test
+    void whenShuttingDown_shouldReturnUnusedPermits() {
+        // Given
+        givenLeaseReturns(10L, 1000L, 5000L, 990L);
+        when(redisTemplate.execute(eq(QuotaLeaseManager.RETURN_SCRIPT), anyList(), anyList()))
+                .thenReturn(Flux.just(9L));
+        leases.tryAcquire(state, rule, 1000, new RedisCalls());
+
+        // When
+        leases.returnAll();
+
+        // Then
+        byte[] key = codec.redisKey(state);
+        verify(redisTemplate).execute(eq(QuotaLeaseManager.RETURN_SCRIPT),
+                argThat(keys -> keys.size() == 1 && Arrays.equals(keys.get(0), key)),
+                argThat(args -> args.size() == 3 && Arrays.equals((byte[]) args.get(0), bytes("second:fixed-window"))
+                        && Arrays.equals((byte[]) args.get(1), bytes("9"))
+                        && Arrays.equals((byte[]) args.get(2), bytes("5000"))));
+    }
+
+    @Test
+    void whenRuleNotLeasable_shouldReportIt() {
+        assertTrue(leases.isLeasable("fixed-window", 100));
+        assertFalse(leases.isLeasable("fixed-window", 99));
+        assertFalse(leases.isLeasable("gcra", 1000));
+
+        config.getLease().setEnabled(false);
+        assertFalse(leases.isLeasable("fixed-window", 1000));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenLeaseReturns(Long... result) {
+        when(redisTemplate.execute(eq(QuotaLeaseManager.LEASE_SCRIPT), anyList(), anyList()))
+                .thenReturn(Flux.just(List.of(result)));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
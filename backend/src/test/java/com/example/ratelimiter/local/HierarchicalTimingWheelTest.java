@@ -0,0 +1,53 @@
+package com.example.ratelimiter.local;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HierarchicalTimingWheelTest {
+
+    @Test
+    void whenDeadlinesSpanLevels_shouldFireEachAtItsTick() {
+        // Given
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1_000);
+        long[] delays = {1, 63, 64, 65, 4_095, 4_096, 300_000, 20_000_000};
+        for (long delay : delays) {
+            wheel.schedule(1_000 + delay, delay);
+        }
+
+        // When
+        List<long[]> fired = new ArrayList<>();
+        for (long tick = 1_001; tick <= 1_000 + 20_000_000; tick++) {
+            long now = tick;
+            wheel.advance(tick, payload -> fired.add(new long[]{payload, now}));
+        }
+
+        // Then
+        assertEquals(delays.length, fired.size());
+        for (long[] event : fired) {
+            assertEquals(1_000 + event[0], event[1]);
+        }
+    }
+
+    @Test
+    void whenHandlerReschedules_shouldFireAgain() {
+        // Given
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(0);
+        wheel.schedule(10, 7);
+        List<Long> fired = new ArrayList<>();
+
+        // When
+        wheel.advance(100, payload -> {
+            fired.add(wheel.currentTick());
+            if (fired.size() < 3) {
+                wheel.schedule(wheel.currentTick() + 10, payload);
+            }
+        });
+
+        // Then
+        assertEquals(List.of(10L, 20L, 30L), fired);
+    }
+}
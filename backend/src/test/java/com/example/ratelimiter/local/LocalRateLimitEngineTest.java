@@ -0,0 +1,255 @@
+package com.example.ratelimiter.local;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalRateLimitEngineTest {
+
+    private static final long WINDOW = 1000;
+
+    private AtomicLong clock;
+    private LocalRateLimitEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong(1_700_000_000_000L);
+        engine = new LocalRateLimitEngine(1024, 4, 100, clock::get);
+    }
+
+    @Test
+    void whenUnderLimit_shouldAllowAndCountDown() {
+        // Given
+        long key = LocalRateLimitEngine.hash("user123", "second");
+
+        // When/Then
+        assertEquals(2, engine.tryAcquire(key, 3, WINDOW));
+        assertEquals(1, engine.tryAcquire(key, 3, WINDOW));
+        assertEquals(0, engine.tryAcquire(key, 3, WINDOW));
+        assertEquals(LocalRateLimitEngine.DENIED, engine.tryAcquire(key, 3, WINDOW));
+    }
+
+    @Test
+    void whenRequestCostsSeveralPermits_shouldTakeAllOrNone() {
+        // Given
+        long key = LocalRateLimitEngine.hash("user123", "second");
+
+        // When/Then
+        assertEquals(2, engine.tryAcquire(key, 5, WINDOW, 3));
+        assertEquals(LocalRateLimitEngine.DENIED, engine.tryAcquire(key, 5, WINDOW, 3));
+        assertEquals(0, engine.tryAcquire(key, 5, WINDOW, 2));
+
+        engine.release(key, WINDOW, 3);
+        assertEquals(0, engine.tryAcquire(key, 5, WINDOW, 3));
+    }
+
+    @Test
+    void whenWindowEnds_shouldStartNewWindow() {
+        // Given
+        long key = LocalRateLimitEngine.hash("user123", "second");
+        engine.tryAcquire(key, 1, WINDOW);
+        assertEquals(LocalRateLimitEngine.DENIED, engine.tryAcquire(key, 1, WINDOW));
+
+        // When
+        clock.addAndGet(WINDOW);
+
+        // Then
+        assertEquals(0, engine.tryAcquire(key, 1, WINDOW));
+    }
+
+    @Test
+    void whenPermitReleased_shouldBeAvailableAgain() {
+        // Given
+        long key = LocalRateLimitEngine.hash("user123", "second");
+        engine.tryAcquire(key, 1, WINDOW);
+
+        // When
+        engine.release(key, WINDOW);
+
+        // Then
+        assertEquals(0, engine.tryAcquire(key, 1, WINDOW));
+    }
+
+    @Test
+    void whenKeysDiffer_shouldCountSeparately() {
+        assertNotEquals(LocalRateLimitEngine.hash("user123", "second"), LocalRateLimitEngine.hash("user123", "day"));
+        assertEquals(0, engine.tryAcquire(LocalRateLimitEngine.hash("a", "second"), 1, WINDOW));
+        assertEquals(0, engine.tryAcquire(LocalRateLimitEngine.hash("b", "second"), 1, WINDOW));
+    }
+
+    @Test
+    void whenWindowExpired_shouldEvictKey() {
+        // Given
+        engine.tryAcquire(LocalRateLimitEngine.hash("a", "second"), 5, WINDOW);
+        engine.tryAcquire(LocalRateLimitEngine.hash("b", "day"), 5, 86_400_000);
+        assertEquals(2, engine.size());
+
+        // When
+        clock.addAndGet(2 * WINDOW + 200);
+        engine.expire(clock.get());
+
+        // Then
+        assertEquals(1, engine.size());
+    }
+
+    @Test
+    void whenKeyStillActive_shouldNotEvict() {
+        // Given
+        long key = LocalRateLimitEngine.hash("a", "second");
+        engine.tryAcquire(key, 5, WINDOW);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            clock.addAndGet(WINDOW);
+            engine.tryAcquire(key, 5, WINDOW);
+            engine.expire(clock.get());
+        }
+
+        // Then
+        assertEquals(1, engine.size());
+        assertEquals(3, engine.tryAcquire(key, 5, WINDOW));
+    }
+
+    @Test
+    void whenTableFull_shouldLetRequestsThroughUntracked() {
+        // Given
+        LocalRateLimitEngine small = new LocalRateLimitEngine(2, 1, 100, clock::get);
+        small.tryAcquire(LocalRateLimitEngine.hash("a", "second"), 1, WINDOW);
+        small.tryAcquire(LocalRateLimitEngine.hash("b", "second"), 1, WINDOW);
+
+        // When/Then
+        assertEquals(LocalRateLimitEngine.UNTRACKED,
+                small.tryAcquire(LocalRateLimitEngine.hash("c", "second"), 1, WINDOW));
+    }
+
+    @Test
+    void whenEvictedSlotReused_shouldStartFromZero() {
+        // Given
+        LocalRateLimitEngine small = new LocalRateLimitEngine(1, 1, 100, clock::get);
+        small.tryAcquire(LocalRateLimitEngine.hash("a", "second"), 1, WINDOW);
+        clock.addAndGet(2 * WINDOW + 200);
+        small.expire(clock.get());
+
+        // When/Then
+        assertEquals(0, small.tryAcquire(LocalRateLimitEngine.hash("b", "second"), 1, WINDOW));
+        assertEquals(LocalRateLimitEngine.UNTRACKED,
+                small.tryAcquire(LocalRateLimitEngine.hash("a", "second"), 1, WINDOW));
+    }
+
+    @Test
+    void whenKeysChurn_shouldKeepProbeRunsShort() {
+        // Given
+        LocalRateLimitEngine churned = new LocalRateLimitEngine(1024, 1, 100, clock::get);
+        long[] live = new long[768];
+
+        // When: fill the table to its limit, then let every key expire and replace it, many times over
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < live.length; i++) {
+                live[i] = LocalRateLimitEngine.hash("user" + round + ":" + i, "second");
+                assertEquals(0, churned.tryAcquire(live[i], 1, WINDOW));
+            }
+            clock.addAndGet(2 * WINDOW + 200);
+            churned.expire(clock.get());
+            assertEquals(0, churned.size());
+        }
+        for (long key : live) {
+            churned.tryAcquire(key, 1, WINDOW);
+        }
+
+        // Then: a lookup that misses stops at the first empty slot, as in a freshly built table
+        assertTrue(churned.longestRun() < 100, () -> "longest probe run " + churned.longestRun());
+        for (long key : live) {
+            assertEquals(LocalRateLimitEngine.DENIED, churned.tryAcquire(key, 1, WINDOW));
+        }
+    }
+
+    @Test
+    void whenKeysExpireBetweenLiveOnes_shouldKeepLiveKeysReachable() {
+        // Given
+        long[] keys = new long[600];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = LocalRateLimitEngine.hash("user" + i, i % 2 == 0 ? "second" : "day");
+            engine.tryAcquire(keys[i], 5, i % 2 == 0 ? WINDOW : 86_400_000);
+        }
+
+        // When
+        clock.addAndGet(2 * WINDOW + 200);
+        engine.expire(clock.get());
+
+        // Then
+        assertEquals(300, engine.size());
+        for (int i = 1; i < keys.length; i += 2) {
+            assertEquals(3, engine.tryAcquire(keys[i], 5, 86_400_000));
+        }
+    }
+
+    @Test
+    void whenNeighboursAreRemovedConcurrently_shouldNeverLoseOrShareCounts() throws InterruptedException {
+        // Given: long-lived keys interleaved with short-lived ones whose removal shifts them back
+        LocalRateLimitEngine churned = new LocalRateLimitEngine(4096, 1, 100, clock::get);
+        long[] hot = new long[64];
+        for (int i = 0; i < hot.length; i++) {
+            hot[i] = LocalRateLimitEngine.hash("hot" + i, "day");
+        }
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // When
+        for (int t = 0; t < 3; t++) {
+            executor.submit(() -> {
+                for (int j = 0; j < 20_000; j++) {
+                    if (churned.tryAcquire(hot[j % hot.length], 100, 86_400_000) >= 0) {
+                        allowed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.submit(() -> {
+            for (int round = 0; round < 200; round++) {
+                for (int i = 0; i < 200; i++) {
+                    churned.tryAcquire(LocalRateLimitEngine.hash("cold" + round + ":" + i, "second"), 1, WINDOW);
+                }
+                churned.expire(clock.addAndGet(WINDOW) + 2 * WINDOW);
+            }
+        });
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Then
+        assertEquals(hot.length * 100, allowed.get());
+        for (long key : hot) {
+            assertEquals(LocalRateLimitEngine.DENIED, churned.tryAcquire(key, 100, 86_400_000));
+        }
+    }
+
+    @Test
+    void whenConcurrentRequests_shouldNeverExceedLimit() throws InterruptedException {
+        // Given
+        long key = LocalRateLimitEngine.hash("hot", "second");
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // When
+        for (int i = 0; i < 8; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    if (engine.tryAcquire(key, 5_000, WINDOW) >= 0) {
+                        allowed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Then
+        assertEquals(5_000, allowed.get());
+    }
+}
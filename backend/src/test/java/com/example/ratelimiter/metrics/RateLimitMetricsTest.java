@@ -0,0 +1,163 @@
+package com.example.ratelimiter.metrics;
+
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.rule.RateLimitRule;
+import com.example.ratelimiter.service.RateLimitDecision;
+import com.example.ratelimiter.service.RedisCalls;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.ratelimiter.rule.CompiledRules.compile;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitMetricsTest {
+
+    private static final RateLimitRule POSTS = new RateLimitRule("POST /api/posts", "X-User-Id", "second",
+            "fixed-window", 5, Duration.ofSeconds(1), "local");
+    private static final RateLimitDecision ALLOWED = new RateLimitDecision(true, 5, 4, 1000);
+    private static final RateLimitDecision DENIED = new RateLimitDecision(false, 5, 0, 1000);
+
+    private SimpleMeterRegistry registry;
+    private RateLimiterConfig config;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        config = new RateLimiterConfig();
+    }
+
+    @Test
+    void whenOutcomesRecorded_shouldCountPerRuleWithoutKeyTag() {
+        // Given
+        RateLimitMetrics metrics = new RateLimitMetrics(registry, config);
+        CompiledRule posts = compile(POSTS, metrics);
+
+        // When
+        metrics.recordOutcome(posts, "alice", ALLOWED);
+        metrics.recordOutcome(posts, "bob", ALLOWED);
+        metrics.recordOutcome(posts, "alice", DENIED);
+
+        // Then
+        assertEquals(2, registry.get("rate.limiter.requests").tag("endpoint", "POST /api/posts")
+                .tag("outcome", "allowed").counter().count());
+        assertEquals(1, registry.get("rate.limiter.requests").tag("outcome", "denied").counter().count());
+        assertEquals(List.of(new DeniedKeyTracker.DeniedKey("POST /api/posts", "alice", 1, 0)),
+                metrics.getDeniedKeys().top(10));
+    }
+
+    @Test
+    void whenRuleReloaded_shouldKeepCountingOnSameMeters() {
+        // Given
+        RateLimitMetrics metrics = new RateLimitMetrics(registry, config);
+        metrics.recordOutcome(compile(POSTS, metrics), "alice", ALLOWED);
+        CompiledRule reloaded = compile(new RateLimitRule("POST /api/posts", "X-User-Id", "second", "fixed-window",
+                10, Duration.ofSeconds(1), "local"), metrics);
+
+        // When
+        metrics.recordOutcome(reloaded, "alice", ALLOWED);
+        metrics.recordOutcome(reloaded, "bob", ALLOWED);
+
+        // Then
+        assertEquals(1, registry.find("rate.limiter.requests").tag("outcome", "allowed").counters().size());
+        assertEquals(3, registry.get("rate.limiter.requests").tag("outcome", "allowed").counter().count());
+    }
+
+    @Test
+    void whenDecisionTimed_shouldSplitRedisFromLocalOverhead() {
+        // Given
+        RateLimitMetrics metrics = new RateLimitMetrics(registry, config);
+
+        // When
+        RedisCalls calls = new RedisCalls();
+        long start = metrics.startDecision();
+        calls.record(TimeUnit.MILLISECONDS.toNanos(5));
+        metrics.recordDecision(start - TimeUnit.MILLISECONDS.toNanos(7), calls);
+
+        // Then
+        assertEquals(1, registry.get("rate.limiter.decision").timer().count());
+        assertEquals(5, registry.get("rate.limiter.decision.redis").timer().totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertTrue(registry.get("rate.limiter.decision.local").timer().totalTime(TimeUnit.MILLISECONDS) >= 2);
+    }
+
+    @Test
+    void whenDisabled_shouldRecordNothing() {
+        // Given
+        config.getMetrics().setEnabled(false);
+        RateLimitMetrics metrics = new RateLimitMetrics(registry, config);
+
+        // When
+        metrics.recordDecision(metrics.startDecision(), new RedisCalls());
+        metrics.recordOutcome(compile(POSTS, metrics), "alice", DENIED);
+
+        // Then
+        assertEquals(0, registry.get("rate.limiter.decision").timer().count());
+        assertNull(registry.find("rate.limiter.requests").counter());
+        assertFalse(metrics.getDeniedKeys().isEnabled());
+    }
+
+    @Test
+    void whenTrackerFull_shouldReplaceLeastDeniedKey() {
+        // Given
+        DeniedKeyTracker tracker = new DeniedKeyTracker(2);
+        tracker.record("rule", "a");
+        tracker.record("rule", "a");
+        tracker.record("rule", "b");
+
+        // When
+        tracker.record("rule", "c");
+
+        // Then
+        assertEquals(List.of(new DeniedKeyTracker.DeniedKey("rule", "a", 2, 0),
+                new DeniedKeyTracker.DeniedKey("rule", "c", 2, 1)), tracker.top(10));
+    }
+
+    @Test
+    void whenEndpointAskedForNegativeTop_shouldListNoKeys() {
+        // Given
+        RateLimitMetrics metrics = new RateLimitMetrics(registry, config);
+        metrics.recordOutcome(compile(POSTS, metrics), "alice", DENIED);
+
+        // When
+        Map<String, Object> response = new RateLimitEndpoint(metrics).deniedKeys(-1);
+
+        // Then
+        assertEquals(List.of(), response.get("topDeniedKeys"));
+    }
+
+    @Test
+    void whenDenialsRecordedConcurrently_shouldCountEveryTrackedKeyExactly() throws Exception {
+        // Given
+        DeniedKeyTracker tracker = new DeniedKeyTracker(256);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // When
+        List<Future<?>> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(executor.submit(() -> {
+                for (int i = 0; i < 6_400; i++) {
+                    tracker.record("rule", "key-" + i % 64);
+                }
+            }));
+        }
+        for (Future<?> thread : threads) {
+            thread.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then
+        List<DeniedKeyTracker.DeniedKey> top = tracker.top(100);
+        assertEquals(64, top.size());
+        assertTrue(top.stream().allMatch(denied -> denied.count() == 8 * 100 && denied.error() == 0));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.ratelimiter.reload;
+
+import com.example.ratelimiter.config.EndpointRateLimitConfig;
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.rule.RateLimitRuleRegistry;
+import com.example.ratelimiter.rule.RuleSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FileRuleSourceTest {
+
+    @Mock
+    private RateLimitRuleRegistry ruleRegistry;
+
+    @TempDir
+    private Path directory;
+
+    private Path file;
+    private FileRuleSource source;
+
+    @BeforeEach
+    void setUp() {
+        file = directory.resolve("rules.yml");
+        RateLimiterConfig config = new RateLimiterConfig();
+        config.getReload().setFile(file.toString());
+        source = new FileRuleSource(ruleRegistry, config);
+    }
+
+    private void write(String content, long modifiedMillis) throws Exception {
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.ofEpochMilli(modifiedMillis)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void whenFileChanges_shouldReloadItsRules() throws Exception {
+        // Given
+        write("""
+                rate-limiter:
+                  endpoints:
+                    limits:
+                      posts:
+                        path: /api/posts
+                        key: X-User-Id
+                        failure-mode: open
+                        limit: 5
+                """, 1_000);
+        source.poll();
+
+        // When
+        write("""
+                rate-limiter.endpoints.limits.posts:
+                  path: /api/posts
+                  key: X-User-Id
+                  failure-mode: open
+                  limit: 50
+                """, 2_000);
+        source.poll();
+
+        // Then
+        ArgumentCaptor<Map<String, EndpointRateLimitConfig.RateLimitConfig>> limits =
+                ArgumentCaptor.forClass(Map.class);
+        verify(ruleRegistry, times(2)).reload(eq(RuleSource.FILE), limits.capture());
+        assertEquals(5, limits.getAllValues().get(0).get("posts").getLimit());
+        assertEquals("open", limits.getAllValues().get(0).get("posts").getFailureMode());
+        assertEquals(50, limits.getAllValues().get(1).get("posts").getLimit());
+    }
+
+    @Test
+    void whenFileUnchangedOrSameRules_shouldNotRecompile() throws Exception {
+        // Given
+        write("rate-limiter.endpoints.limits.posts.limit: 5\n", 1_000);
+        source.poll();
+
+        // When
+        source.poll();
+        write("rate-limiter.endpoints.limits.posts.limit: 5 # same limit\n", 2_000);
+        source.poll();
+
+        // Then
+        verify(ruleRegistry, times(1)).reload(eq(RuleSource.FILE), anyMap());
+    }
+
+    @Test
+    void whenRulesRejected_shouldKeepPollingWithoutRetryingSameFile() throws Exception {
+        // Given
+        doThrow(new IllegalArgumentException("Invalid rate limit type: fortnight"))
+                .doNothing()
+                .when(ruleRegistry).reload(any(), anyMap());
+        write("rate-limiter.endpoints.limits.posts.type: fortnight\n", 1_000);
+
+        // When
+        source.poll();
+        source.poll();
+        write("rate-limiter.endpoints.limits.posts.type: second\n", 2_000);
+        source.poll();
+
+        // Then
+        verify(ruleRegistry, times(2)).reload(eq(RuleSource.FILE), anyMap());
+    }
+}
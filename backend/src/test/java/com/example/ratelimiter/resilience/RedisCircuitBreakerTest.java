@@ -0,0 +1,121 @@
+package com.example.ratelimiter.resilience;
+
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.metrics.RateLimitMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedisCircuitBreakerTest {
+
+    private static final QueryTimeoutException TIMEOUT = new QueryTimeoutException("Redis command timed out");
+
+    private RateLimiterConfig config;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        config = new RateLimiterConfig();
+        config.getResilience().setFailureThreshold(3);
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void whenFailuresReachThreshold_shouldOpen() {
+        // Given
+        RedisCircuitBreaker breaker = breaker();
+
+        // When
+        breaker.onFailure(TIMEOUT);
+        breaker.onFailure(TIMEOUT);
+        boolean allowedBeforeThreshold = breaker.allowRequest();
+        breaker.onFailure(TIMEOUT);
+
+        // Then
+        assertTrue(allowedBeforeThreshold);
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.allowRequest());
+        assertEquals(1, registry.get("rate.limiter.circuit.opened").counter().count());
+    }
+
+    @Test
+    void whenSuccessInterruptsFailures_shouldStayClosed() {
+        // Given
+        RedisCircuitBreaker breaker = breaker();
+        breaker.onFailure(TIMEOUT);
+        breaker.onFailure(TIMEOUT);
+
+        // When
+        breaker.onSuccess();
+        breaker.onFailure(TIMEOUT);
+
+        // Then
+        assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void whenOpenDurationElapsed_shouldLetOneProbeThroughAndCloseOnSuccess() {
+        // Given
+        config.getResilience().setOpenDuration(Duration.ZERO);
+        RedisCircuitBreaker breaker = breaker();
+        openCircuit(breaker);
+
+        // When
+        boolean probe = breaker.allowRequest();
+        breaker.onSuccess();
+
+        // Then
+        assertTrue(probe);
+        assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals(1, registry.get("rate.limiter.circuit.outage").timer().count());
+    }
+
+    @Test
+    void whenProbeFails_shouldReopen() throws InterruptedException {
+        // Given
+        config.getResilience().setOpenDuration(Duration.ofMillis(50));
+        RedisCircuitBreaker breaker = breaker();
+        openCircuit(breaker);
+        Thread.sleep(60);
+
+        // When
+        boolean probe = breaker.allowRequest();
+        boolean concurrent = breaker.allowRequest();
+        breaker.onFailure(TIMEOUT);
+
+        // Then
+        assertTrue(probe);
+        assertFalse(concurrent);
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    void whenDisabled_shouldPropagateFailures() {
+        // Given
+        config.getResilience().setEnabled(false);
+        RedisCircuitBreaker breaker = breaker();
+
+        // When
+        boolean fallBack = breaker.onFailure(TIMEOUT);
+
+        // Then
+        assertFalse(fallBack);
+        assertTrue(breaker.allowRequest());
+    }
+
+    private RedisCircuitBreaker breaker() {
+        return new RedisCircuitBreaker(config, new RateLimitMetrics(registry, config));
+    }
+
+    private void openCircuit(RedisCircuitBreaker breaker) {
+        for (int i = 0; i < config.getResilience().getFailureThreshold(); i++) {
+            breaker.onFailure(TIMEOUT);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.ratelimiter.rule;
+
+import com.example.ratelimiter.algorithm.CountMinSketchAlgorithm;
+import com.example.ratelimiter.algorithm.FixedWindowAlgorithm;
+import com.example.ratelimiter.algorithm.GcraAlgorithm;
+import com.example.ratelimiter.algorithm.RateLimitAlgorithmRegistry;
+import com.example.ratelimiter.algorithm.SlidingWindowCounterAlgorithm;
+import com.example.ratelimiter.algorithm.TokenBucketAlgorithm;
+import com.example.ratelimiter.codec.RedisKeyCodec;
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.events.DecisionEventLog;
+import com.example.ratelimiter.metrics.RateLimitMetrics;
+import com.example.ratelimiter.service.RateLimiterService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.List;
+
+/**
+ * Compiles rules built by hand in tests the way {@link RateLimiterService} compiles configured ones, under the
+ * default settings.
+ */
+public final class CompiledRules {
+    private static final RateLimiterConfig CONFIG = new RateLimiterConfig();
+    private static final RedisKeyCodec CODEC = new RedisKeyCodec(CONFIG, new RateLimitAlgorithmRegistry(List.of(
+            new FixedWindowAlgorithm(), new SlidingWindowCounterAlgorithm(), new TokenBucketAlgorithm(),
+            new GcraAlgorithm(), new CountMinSketchAlgorithm(CONFIG))));
+    private static final RateLimitMetrics METRICS = new RateLimitMetrics(new SimpleMeterRegistry(), CONFIG);
+
+    private CompiledRules() {
+    }
+
+    public static CompiledRule compile(RateLimitRule rule) {
+        return compile(rule, METRICS);
+    }
+
+    // Binds the rule's outcome counters to the given metrics
+    public static CompiledRule compile(RateLimitRule rule, RateLimitMetrics metrics) {
+        return new RateLimiterService(CONFIG, null, metrics, DecisionEventLog.DISABLED, CODEC).compile(rule);
+    }
+
+    public static CompiledRule[] compile(RateLimitRule... rules) {
+        CompiledRule[] compiled = new CompiledRule[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            compiled[i] = compile(rules[i]);
+        }
+        return compiled;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.ratelimiter.rule;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitCostTest {
+
+    @Test
+    void whenCostIsNumber_shouldBeFixed() {
+        // When
+        RateLimitCost cost = RateLimitCost.parse("5");
+
+        // Then
+        assertTrue(cost.isFixed());
+        assertEquals(5, cost.permits());
+        assertSame(RateLimitCost.ONE, RateLimitCost.parse(""));
+        assertSame(RateLimitCost.ONE, RateLimitCost.parse(null));
+    }
+
+    @Test
+    void whenCostIsExpression_shouldResolveFromRequest() {
+        // Given
+        RateLimitCost cost = RateLimitCost.parse("header('X-Batch-Size') + param('count') * 2");
+
+        // When
+        int permits = cost.resolve(request(Map.of("X-Batch-Size", "3"), Map.of("count", "4")));
+
+        // Then
+        assertFalse(cost.isFixed());
+        assertEquals(11, permits);
+    }
+
+    @Test
+    void whenExpressionEvaluatedRepeatedly_shouldKeepResolving() {
+        // SpEL compiles the expression after its first evaluations; the result must not change
+        RateLimitCost cost = RateLimitCost.parse("header('X-Weight')");
+        for (int i = 1; i <= 200; i++) {
+            assertEquals(i, cost.resolve(request(Map.of("X-Weight", Integer.toString(i)), Map.of())));
+        }
+    }
+
+    @Test
+    void whenRequestLacksCost_shouldReject() {
+        RateLimitCost cost = RateLimitCost.parse("header('X-Batch-Size')");
+
+        assertThrows(IllegalArgumentException.class, () -> cost.resolve(request(Map.of(), Map.of())));
+        assertThrows(IllegalArgumentException.class,
+                () -> cost.resolve(request(Map.of("X-Batch-Size", "many"), Map.of())));
+        assertThrows(IllegalArgumentException.class,
+                () -> cost.resolve(request(Map.of("X-Batch-Size", "0"), Map.of())));
+    }
+
+    @Test
+    void whenCostInvalid_shouldRejectAtCompileTime() {
+        assertThrows(IllegalArgumentException.class, () -> RateLimitCost.parse("0"));
+        assertThrows(IllegalArgumentException.class, () -> RateLimitCost.parse("header('X-Batch-Size'"));
+    }
+
+    @Test
+    void whenExpressionReachesOutsideRequest_shouldReject() {
+        // Only the request's own methods can be called; no types, beans or constructors
+        RateLimitCost cost = RateLimitCost.parse("T(java.lang.System).exit(1)");
+
+        assertThrows(IllegalArgumentException.class, () -> cost.resolve(request(Map.of(), Map.of())));
+    }
+
+    private static RateLimitCost.Request request(Map<String, String> headers, Map<String, String> params) {
+        return new RateLimitCost.Request(headers::get, params::get);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.ratelimiter.rule;
+
+import com.example.ratelimiter.algorithm.FixedWindowAlgorithm;
+import com.example.ratelimiter.algorithm.RateLimitAlgorithmRegistry;
+import com.example.ratelimiter.codec.RedisKeyCodec;
+import com.example.ratelimiter.config.EndpointRateLimitConfig;
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.events.DecisionEventLog;
+import com.example.ratelimiter.metrics.RateLimitMetrics;
+import com.example.ratelimiter.service.RateLimitBackend;
+import com.example.ratelimiter.service.RateLimiterService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimitRuleRegistryTest {
+
+    @Mock
+    private ApplicationContext applicationContext;
+
+    @Mock
+    private RateLimitBackend backend;
+
+    private EndpointRateLimitConfig endpointConfig;
+    private RateLimitRuleRegistry registry;
+
+    private static EndpointRateLimitConfig.RateLimitConfig limit(String path, int limit) {
+        EndpointRateLimitConfig.RateLimitConfig config = new EndpointRateLimitConfig.RateLimitConfig();
+        config.setPath(path);
+        config.setMethod("POST");
+        config.setKey("X-User-Id");
+        config.setType("second");
+        config.setLimit(limit);
+        return config;
+    }
+
+    @BeforeEach
+    void setUp() {
+        RateLimiterConfig config = new RateLimiterConfig();
+        when(applicationContext.getBeansOfType(any(Class.class))).thenReturn(Map.of());
+        lenient().when(backend.supports(anyString())).thenReturn(true);
+        endpointConfig = new EndpointRateLimitConfig();
+        endpointConfig.getLimits().put("posts", limit("/api/posts", 5));
+        registry = new RateLimitRuleRegistry(applicationContext, endpointConfig,
+                new RateLimiterService(config, backend, new RateLimitMetrics(new SimpleMeterRegistry(), config),
+                        DecisionEventLog.DISABLED, new RedisKeyCodec(config,
+                                new RateLimitAlgorithmRegistry(List.of(new FixedWindowAlgorithm())))));
+    }
+
+    @Test
+    void whenRulesReloaded_shouldSwapInNewSnapshotAndLeaveOldOneIntact() {
+        // Given
+        registry.afterSingletonsInstantiated();
+        RateLimitRuleSnapshot initial = registry.snapshot();
+
+        // When
+        registry.reload(RuleSource.REDIS, Map.of("posts", limit("/api/posts", 10),
+                "accounts", limit("/api/accounts", 3)));
+
+        // Then
+        RateLimitRuleSnapshot reloaded = registry.snapshot();
+        assertEquals(initial.version() + 1, reloaded.version());
+        assertEquals(10, reloaded.table().match("POST", "/api/posts")[0].rule().limit());
+        assertEquals(3, reloaded.table().match("POST", "/api/accounts")[0].rule().limit());
+        assertEquals(5, initial.table().match("POST", "/api/posts")[0].rule().limit());
+        assertEquals(0, initial.table().match("POST", "/api/accounts").length);
+    }
+
+    @Test
+    void whenReloadedRulesDoNotCompile_shouldKeepCurrentSnapshot() {
+        // Given
+        registry.afterSingletonsInstantiated();
+        RateLimitRuleSnapshot initial = registry.snapshot();
+        EndpointRateLimitConfig.RateLimitConfig invalid = limit("/api/posts", 10);
+        invalid.setType("fortnight");
+
+        // When
+        assertThrows(IllegalArgumentException.class,
+                () -> registry.reload(RuleSource.FILE, Map.of("posts", invalid)));
+        registry.reload(RuleSource.REDIS, Map.of("accounts", limit("/api/accounts", 3)));
+
+        // Then
+        assertNotSame(initial, registry.snapshot());
+        assertEquals(5, registry.table().match("POST", "/api/posts")[0].rule().limit());
+        assertEquals(1, registry.table().match("POST", "/api/accounts").length);
+    }
+
+    @Test
+    void whenLaterSourceDisablesRule_shouldDropIt() {
+        // Given
+        registry.reload(RuleSource.FILE, Map.of("posts", limit("/api/posts", 10)));
+        EndpointRateLimitConfig.RateLimitConfig disabled = limit("/api/posts", 10);
+        disabled.setEnabled(false);
+        registry.reload(RuleSource.REDIS, Map.of("posts", disabled));
+
+        // When
+        registry.afterSingletonsInstantiated();
+
+        // Then
+        assertEquals(0, registry.table().size());
+        assertEquals(0, registry.table().match("POST", "/api/posts").length);
+    }
+}
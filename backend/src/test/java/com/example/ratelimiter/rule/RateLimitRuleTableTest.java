@@ -0,0 +1,112 @@
+package com.example.ratelimiter.rule;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.PathContainer;
+
+import java.time.Duration;
+
+import static com.example.ratelimiter.rule.CompiledRules.compile;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitRuleTableTest {
+
+    private static CompiledRule rule(String id) {
+        return compile(new RateLimitRule(id, "X-User-Id", "second", "fixed-window", 5, Duration.ofSeconds(1),
+                "local"));
+    }
+
+    @Test
+    void whenLiteralPathMatches_shouldReturnRulesForMethod() {
+        // Given
+        CompiledRule posts = rule("posts");
+        RateLimitRuleTable table = RateLimitRuleTable.builder().add("POST", "/api/posts", posts).build();
+
+        // When/Then
+        assertArrayEquals(new CompiledRule[]{posts}, table.match("POST", "/api/posts"));
+        assertEquals(0, table.match("GET", "/api/posts").length);
+        assertEquals(0, table.match("POST", "/api/accounts").length);
+    }
+
+    @Test
+    void whenPathIsEncodedOrHasMatrixParameters_shouldMatchAsHandlersDo() {
+        // Given
+        CompiledRule posts = rule("posts");
+        CompiledRule user = rule("user");
+        RateLimitRuleTable table = RateLimitRuleTable.builder()
+                .add("POST", "/api/posts", posts)
+                .add("GET", "/api/users/{id}", user)
+                .build();
+
+        // When/Then
+        assertArrayEquals(new CompiledRule[]{posts}, table.match("POST", "/api/%70osts"));
+        assertArrayEquals(new CompiledRule[]{posts}, table.match("POST", "/api/posts;x=1"));
+        assertArrayEquals(new CompiledRule[]{posts},
+                table.match("POST", PathContainer.parsePath("/api;v=1/posts")));
+        assertArrayEquals(new CompiledRule[]{user}, table.match("GET", "/api/users/42;x=1"));
+        assertEquals(0, table.match("POST", "/api/posts%2Fx").length);
+    }
+
+    @Test
+    void whenRuleAppliesToAnyMethod_shouldCombineWithMethodRules() {
+        // Given
+        CompiledRule any = rule("any");
+        CompiledRule post = rule("post");
+        RateLimitRuleTable table = RateLimitRuleTable.builder()
+                .add(null, "/api/posts", any)
+                .add("post", "/api/posts", post)
+                .build();
+
+        // When/Then
+        assertArrayEquals(new CompiledRule[]{post, any}, table.match("POST", "/api/posts"));
+        assertArrayEquals(new CompiledRule[]{any}, table.match("DELETE", "/api/posts"));
+    }
+
+    @Test
+    void whenPathHasVariables_shouldMatchPattern() {
+        // Given
+        CompiledRule user = rule("user");
+        RateLimitRuleTable table = RateLimitRuleTable.builder().add("GET", "/api/users/{id}", user).build();
+
+        // When/Then
+        assertArrayEquals(new CompiledRule[]{user}, table.match("GET", "/api/users/42"));
+        assertEquals(0, table.match("GET", "/api/users/42/posts").length);
+    }
+
+    @Test
+    void whenStackedRulesShareId_shouldLookThemUpTogether() {
+        // Given
+        CompiledRule perSecond = rule("POST /api/posts");
+        CompiledRule perDay = compile(new RateLimitRule("POST /api/posts", "X-User-Id", "day", "fixed-window", 100,
+                Duration.ofDays(1), "local"));
+        RateLimitRuleTable table = RateLimitRuleTable.builder()
+                .add("POST", "/api/posts", perSecond)
+                .add("POST", "/api/posts", perDay)
+                .build();
+
+        // When/Then
+        assertArrayEquals(new CompiledRule[]{perSecond, perDay}, table.rules("POST /api/posts"));
+        assertEquals(0, table.rules("GET /api/posts").length);
+    }
+
+    @Test
+    void whenBuiltWithFilter_shouldKeepOnlyMatchingRules() {
+        // Given
+        CompiledRule perSecond = rule("POST /api/posts");
+        CompiledRule inFlight = compile(new RateLimitRule("POST /api/posts", null, "concurrency", "gradient", 50,
+                Duration.ZERO, "local"));
+        RateLimitRuleTable.Builder builder = RateLimitRuleTable.builder()
+                .add("POST", "/api/posts", perSecond)
+                .add("POST", "/api/posts", inFlight);
+
+        // When
+        RateLimitRuleTable rates = builder.build(rule -> !rule.rule().isConcurrency());
+        RateLimitRuleTable concurrency = builder.build(rule -> rule.rule().isConcurrency());
+
+        // Then
+        assertArrayEquals(new CompiledRule[]{perSecond}, rates.match("POST", "/api/posts"));
+        assertArrayEquals(new CompiledRule[]{perSecond}, rates.rules("POST /api/posts"));
+        assertArrayEquals(new CompiledRule[]{inFlight}, concurrency.match("POST", "/api/posts"));
+        assertEquals(1, rates.size());
+        assertEquals(1, concurrency.size());
+    }
+}
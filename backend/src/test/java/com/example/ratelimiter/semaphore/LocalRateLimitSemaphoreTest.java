@@ -0,0 +1,53 @@
+package com.example.ratelimiter.semaphore;
+
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.rule.RateLimitRule;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalRateLimitSemaphoreTest {
+
+    private static final RateLimitRule RULE = rule(1);
+
+    @Test
+    void whenLimitReloaded_shouldResizeSemaphoreInUse() {
+        // Given
+        LocalRateLimitSemaphore semaphore = new LocalRateLimitSemaphore(new RateLimiterConfig());
+        SemaphorePermit first = semaphore.tryAcquire(RULE, "user");
+
+        // When/Then
+        assertNotNull(first);
+        assertNull(semaphore.tryAcquire(RULE, "user"));
+        SemaphorePermit second = semaphore.tryAcquire(rule(2), "user");
+        assertNotNull(second);
+        assertNull(semaphore.tryAcquire(rule(2), "user"));
+        second.release();
+        first.release();
+        assertNotNull(semaphore.tryAcquire(rule(2), "user"));
+    }
+
+    @Test
+    void whenKeysExceedMaximum_shouldOnlyEvictIdleSemaphores() {
+        // Given
+        RateLimiterConfig config = new RateLimiterConfig();
+        config.getLocal().setMaxKeys(1);
+        LocalRateLimitSemaphore semaphore = new LocalRateLimitSemaphore(config);
+        SemaphorePermit held = semaphore.tryAcquire(RULE, "held");
+
+        // When
+        semaphore.tryAcquire(RULE, "other").release();
+        semaphore.tryAcquire(RULE, "another");
+
+        // Then
+        assertNotNull(held);
+        assertNull(semaphore.tryAcquire(RULE, "held"));
+    }
+
+    private static RateLimitRule rule(int limit) {
+        return new RateLimitRule("POST /api/rewards", "X-Device-Id", "concurrent", "semaphore", limit,
+                Duration.ofSeconds(30), "closed");
+    }
+}
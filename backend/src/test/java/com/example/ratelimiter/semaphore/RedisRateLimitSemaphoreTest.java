@@ -0,0 +1,222 @@
+package com.example.ratelimiter.semaphore;
+
+import com.example.ratelimiter.algorithm.FixedWindowAlgorithm;
+import com.example.ratelimiter.algorithm.RateLimitAlgorithmRegistry;
+import com.example.ratelimiter.codec.RedisKeyCodec;
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.metrics.RateLimitMetrics;
+import com.example.ratelimiter.resilience.RedisCircuitBreaker;
+import com.example.ratelimiter.rule.RateLimitRule;
+import com.example.ratelimiter.shard.RedisShard;
+import com.example.ratelimiter.shard.RedisShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedisRateLimitSemaphoreTest {
+
+    private static final RateLimitRule RULE = new RateLimitRule("POST /api/rewards", null, "concurrent", "semaphore",
+            2, Duration.ofSeconds(30), "closed");
+
+    @Mock
+    private RedisTemplate<byte[], byte[]> redisTemplate;
+
+    private RateLimiterConfig config;
+    private RedisRateLimitSemaphore semaphore;
+
+    @BeforeEach
+    void setUp() {
+        config = new RateLimiterConfig();
+    }
+
+    @AfterEach
+    void tearDown() {
+        semaphore.releaseAll();
+    }
+
+    @Test
+    void whenPermitFree_shouldAcquireAndReleaseWithOneScriptCallEach() {
+        // Given
+        createSemaphore();
+        givenAcquireReturns(List.of(1L, 1L));
+
+        // When
+        SemaphorePermit permit = semaphore.tryAcquire(RULE, null);
+        int held = semaphore.heldPermits();
+        permit.release();
+
+        // Then
+        assertNotNull(permit);
+        assertEquals(1, held);
+        assertEquals(0, semaphore.heldPermits());
+        verify(redisTemplate).execute(eq(RedisRateLimitSemaphore.ACQUIRE_SCRIPT), anyList(), any(Object[].class));
+        verify(redisTemplate).execute(eq(RedisRateLimitSemaphore.RELEASE_SCRIPT), anyList(), any(Object[].class));
+    }
+
+    @Test
+    void whenSemaphoreFull_shouldRejectAtOnce() {
+        // Given
+        createSemaphore();
+        givenAcquireReturns(List.of(0L, 2L));
+
+        // When/Then
+        assertNull(semaphore.tryAcquire(RULE, null));
+        assertEquals(0, semaphore.waitingRequests());
+    }
+
+    @Test
+    void whenPermitReleasedWhileRequestWaits_shouldHandItOverWithoutRedis() throws Exception {
+        // Given
+        config.getSemaphore().setMaxWait(Duration.ofSeconds(5));
+        config.getSemaphore().setPollInterval(Duration.ofSeconds(10));
+        createSemaphore();
+        givenAcquireReturns(List.of(1L, 2L), List.of(0L, 2L));
+        SemaphorePermit first = semaphore.tryAcquire(RULE, null);
+
+        // When
+        CompletableFuture<SemaphorePermit> waiting = CompletableFuture.supplyAsync(
+                () -> semaphore.tryAcquire(RULE, null));
+        while (semaphore.waitingRequests() == 0) {
+            Thread.onSpinWait();
+        }
+        first.release();
+
+        // Then
+        SemaphorePermit second = waiting.get(5, TimeUnit.SECONDS);
+        assertNotNull(second);
+        assertEquals(1, semaphore.heldPermits());
+        verify(redisTemplate, never()).execute(eq(RedisRateLimitSemaphore.RELEASE_SCRIPT), anyList(),
+                any(Object[].class));
+    }
+
+    @Test
+    void whenRequestsWait_shouldGrantPermitsFreedElsewhereInOneCall() throws Exception {
+        // Given
+        config.getSemaphore().setMaxWait(Duration.ofSeconds(5));
+        createSemaphore();
+        givenAcquireReturns(List.of(0L, 2L), List.of(0L, 2L), List.of(2L, 2L));
+
+        // When
+        CompletableFuture<SemaphorePermit> first = CompletableFuture.supplyAsync(
+                () -> semaphore.tryAcquire(RULE, null));
+        CompletableFuture<SemaphorePermit> second = CompletableFuture.supplyAsync(
+                () -> semaphore.tryAcquire(RULE, null));
+
+        // Then
+        assertNotNull(first.get(5, TimeUnit.SECONDS));
+        assertNotNull(second.get(5, TimeUnit.SECONDS));
+        assertEquals(2, semaphore.heldPermits());
+    }
+
+    @Test
+    void whenRedisUnavailable_shouldFollowFailureMode() {
+        // Given
+        createSemaphore();
+        when(redisTemplate.execute(eq(RedisRateLimitSemaphore.ACQUIRE_SCRIPT), anyList(), any(Object[].class)))
+                .thenThrow(new QueryTimeoutException("timeout"));
+        RateLimitRule local = new RateLimitRule("POST /api/rewards", null, "concurrent", "semaphore", 1,
+                Duration.ofSeconds(30), "local");
+
+        // When/Then
+        assertNull(semaphore.tryAcquire(RULE, null));
+        SemaphorePermit permit = semaphore.tryAcquire(local, null);
+        assertNotNull(permit);
+        assertNull(semaphore.tryAcquire(local, null));
+        permit.release();
+        assertNotNull(semaphore.tryAcquire(local, null));
+    }
+
+    @Test
+    void whenLimitReloaded_shouldAcquireUnderNewLimit() {
+        // Given
+        createSemaphore();
+        givenAcquireReturns(List.of(1L, 1L));
+        RateLimitRule raised = new RateLimitRule(RULE.id(), null, "concurrent", "semaphore", 5,
+                Duration.ofSeconds(30), "closed");
+
+        // When
+        semaphore.tryAcquire(RULE, null);
+        semaphore.tryAcquire(raised, null);
+
+        // Then
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(redisTemplate, times(2)).execute(eq(RedisRateLimitSemaphore.ACQUIRE_SCRIPT), anyList(),
+                args.capture());
+        assertArrayEquals(RedisKeyCodec.ascii(2), (byte[]) args.getAllValues().get(0)[0]);
+        assertArrayEquals(RedisKeyCodec.ascii(5), (byte[]) args.getAllValues().get(1)[0]);
+    }
+
+    @Test
+    void whenIdleSemaphoreRenewedWhileAcquired_shouldKeepEveryPermitRenewed() throws Exception {
+        // Given
+        config.getSemaphore().setLease(Duration.ofMillis(1));
+        createSemaphore();
+        givenAcquireReturns(List.of(1L, 1L));
+        lenient().when(redisTemplate.execute(eq(RedisRateLimitSemaphore.RENEW_SCRIPT), anyList(),
+                any(Object[].class))).thenReturn(Long.MAX_VALUE);
+        AtomicBoolean done = new AtomicBoolean();
+        CompletableFuture<Void> renewing = CompletableFuture.runAsync(() -> {
+            while (!done.get()) {
+                semaphore.renewAll();
+            }
+        });
+
+        // When/Then
+        try {
+            for (int round = 0; round < 200; round++) {
+                // Let the semaphore go idle for longer than a lease, so renewal may drop it
+                Thread.sleep(2);
+                List<CompletableFuture<SemaphorePermit>> acquiring = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                    acquiring.add(CompletableFuture.supplyAsync(() -> semaphore.tryAcquire(RULE, null)));
+                }
+                for (CompletableFuture<SemaphorePermit> permit : acquiring) {
+                    assertNotNull(permit.get(5, TimeUnit.SECONDS));
+                }
+                assertEquals(4, semaphore.heldPermits(), "permits held outside any renewed semaphore");
+                for (CompletableFuture<SemaphorePermit> permit : acquiring) {
+                    permit.join().release();
+                }
+            }
+        } finally {
+            done.set(true);
+            renewing.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private void createSemaphore() {
+        RateLimitMetrics metrics = new RateLimitMetrics(new SimpleMeterRegistry(), config);
+        RedisShardRouter shards = RedisShardRouter.single(new RedisShard("redis", redisTemplate, null,
+                new RedisCircuitBreaker(config, metrics)), false);
+        RedisKeyCodec codec = new RedisKeyCodec(config,
+                new RateLimitAlgorithmRegistry(List.of(new FixedWindowAlgorithm())));
+        semaphore = new RedisRateLimitSemaphore(shards, codec, config, metrics);
+    }
+
+    @SafeVarargs
+    private void givenAcquireReturns(List<Long> first, List<Long>... next) {
+        when(redisTemplate.execute(eq(RedisRateLimitSemaphore.ACQUIRE_SCRIPT), anyList(), any(Object[].class)))
+                .thenReturn(first, next);
+    }
+}
@@ -1,32 +1,57 @@
 package com.example.ratelimiter.service;
 
+import com.example.ratelimiter.algorithm.FixedWindowAlgorithm;
+import com.example.ratelimiter.algorithm.GcraAlgorithm;
+import com.example.ratelimiter.algorithm.RateLimitAlgorithmRegistry;
+import com.example.ratelimiter.algorithm.SlidingWindowCounterAlgorithm;
+import com.example.ratelimiter.algorithm.TokenBucketAlgorithm;
+import com.example.ratelimiter.cache.DenyCache;
+import com.example.ratelimiter.codec.RedisKeyCodec;
 import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.events.DecisionEventLog;
+import com.example.ratelimiter.lease.QuotaLeaseManager;
+import com.example.ratelimiter.metrics.RateLimitMetrics;
+import com.example.ratelimiter.resilience.FallbackLimiter;
+import com.example.ratelimiter.resilience.RedisCircuitBreaker;
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.shard.RedisShard;
+import com.example.ratelimiter.shard.RedisShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class RateLimiterServiceTest {
 
     @Mock
-    private RedisTemplate<String, String> redisTemplate;
-
-    @Mock
-    private ValueOperations<String, String> valueOperations;
+    private ReactiveRedisTemplate<byte[], byte[]> redisTemplate;
 
     private RateLimiterService rateLimiterService;
     private RateLimiterConfig config;
+    private RateLimitAlgorithmRegistry algorithms;
+    private RedisKeyCodec codec;
+    private boolean clustered;
 
     @BeforeEach
     void setUp() {
@@ -35,64 +60,70 @@ class RateLimiterServiceTest {
         config.setMaxRequestsPerDay(10);
         config.setMaxRequestsPerWeek(5);
 
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        rateLimiterService = new RateLimiterService(redisTemplate, config);
+        algorithms = new RateLimitAlgorithmRegistry(List.of(new FixedWindowAlgorithm(),
+                new SlidingWindowCounterAlgorithm(), new TokenBucketAlgorithm(), new GcraAlgorithm()));
+        rateLimiterService = createService();
     }
 
     @Test
     void whenFirstRequest_shouldAllow() {
         // Given
         String key = "test-key";
+        givenScriptReturns(1L, 1L, 1000L);
 
         // When
         boolean result = rateLimiterService.isAllowed(key, "second", 0);
 
         // Then
         assertTrue(result);
-        verify(valueOperations).set(anyString(), eq("1"), any(Duration.class));
+        verify(redisTemplate).execute(eq(algorithms.getScript()), keys("test-key"),
+                args("fixed-window", "2", "1000", "second:fixed-window", "1"));
     }
 
     @Test
     void whenUnderLimit_shouldAllow() {
         // Given
         String key = "test-key";
-        when(valueOperations.get(anyString())).thenReturn("1");
-        when(valueOperations.increment(anyString())).thenReturn(2L);
+        givenScriptReturns(1L, 1L, 800L);
 
         // When
-        boolean result = rateLimiterService.isAllowed(key, "second", 3);
+        RateLimitDecision decision = rateLimiterService.tryAcquire(key, "second", 3, null);
 
         // Then
-        assertTrue(result);
-        verify(valueOperations).increment(anyString());
+        assertTrue(decision.allowed());
+        assertEquals(3, decision.limit());
+        assertEquals(1, decision.remaining());
+        assertEquals(800, decision.resetMillis());
     }
 
     @Test
     void whenAtLimit_shouldNotAllow() {
         // Given
         String key = "test-key";
-        when(valueOperations.get(anyString())).thenReturn("3");
+        givenScriptReturns(0L, 0L, 500L);
 
         // When
-        boolean result = rateLimiterService.isAllowed(key, "second", 3);
+        RateLimitDecision decision = rateLimiterService.tryAcquire(key, "second", 3, null);
 
         // Then
-        assertFalse(result);
-        verify(valueOperations, never()).increment(anyString());
+        assertFalse(decision.allowed());
+        assertEquals(0, decision.remaining());
+        assertEquals(500, decision.resetMillis());
     }
 
     @Test
     void whenCustomLimitProvided_shouldUseCustomLimit() {
         // Given
         String key = "test-key";
-        when(valueOperations.get(anyString())).thenReturn("4");
+        givenScriptReturns(1L, 0L, 300L);
 
         // When
-        boolean result = rateLimiterService.isAllowed(key, "second", 5);
+        boolean result = rateLimiterService.isAllowed(key, "day", 5);
 
         // Then
         assertTrue(result);
-        verify(valueOperations).increment(anyString());
+        verify(redisTemplate).execute(eq(algorithms.getScript()), keys("test-key"),
+                args("fixed-window", "5", "86400000", "day:fixed-window", "1"));
     }
 
     @Test
@@ -102,5 +133,409 @@ class RateLimiterServiceTest {
 
         // When/Then
         assertThrows(IllegalArgumentException.class, () -> rateLimiterService.isAllowed(key, "invalid", 0));
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void whenAlgorithmProvided_shouldEvaluateItsState() {
+        // Given
+        String key = "test-key";
+        givenScriptReturns(1L, 4L, 200L);
+
+        // When
+        boolean result = rateLimiterService.isAllowed(key, "second", 5, "gcra");
+
+        // Then
+        assertTrue(result);
+        verify(redisTemplate).execute(eq(algorithms.getScript()), keys("test-key"),
+                args("gcra", "5", "1000", "second:gcra", "1"));
+    }
+
+    @Test
+    void whenCallersAlternateLimits_shouldEvaluateEachLimit() {
+        // Given
+        givenScriptReturns(1L, 1L, 1000L);
+
+        // When
+        rateLimiterService.isAllowed("test-key", "second", 3);
+        rateLimiterService.isAllowed("test-key", "second", 5);
+        rateLimiterService.isAllowed("test-key", "second", 3);
+
+        // Then
+        verify(redisTemplate, times(2)).execute(eq(algorithms.getScript()), keys("test-key"),
+                args("fixed-window", "3", "1000", "second:fixed-window", "1"));
+        verify(redisTemplate).execute(eq(algorithms.getScript()), keys("test-key"),
+                args("fixed-window", "5", "1000", "second:fixed-window", "1"));
+    }
+
+    @Test
+    void whenDefaultAlgorithmConfigured_shouldUseIt() {
+        // Given
+        config.setDefaultAlgorithm("token-bucket");
+        givenScriptReturns(1L, 1L, 500L);
+
+        // When
+        rateLimiterService.isAllowed("test-key", "second", 0);
+
+        // Then
+        verify(redisTemplate).execute(eq(algorithms.getScript()), keys("test-key"),
+                args("token-bucket", "2", "1000", "second:token-bucket", "1"));
+    }
+
+    @Test
+    void whenInvalidAlgorithm_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> rateLimiterService.isAllowed("test-key", "second", 0, "leaky"));
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void whenStackedRules_shouldEvaluateAllInOneScriptCall() {
+        // Given
+        CompiledRule perUser = rateLimiterService.compileRule("per-user", "X-User-Id", "second", 5, null);
+        CompiledRule perIp = rateLimiterService.compileRule("per-ip", "X-IP-Address", "day", 1000, "gcra");
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList()))
+                .thenReturn(Flux.just(List.of(1L, 4L, 1000L, 0L, 0L, 60000L)));
+
+        // When
+        RateLimitDecision[] decisions = rateLimiterService.tryAcquireAll(new CompiledRule[]{perUser, perIp},
+                new String[]{"user123", "10.0.0.1"});
+
+        // Then
+        assertTrue(decisions[0].allowed());
+        assertFalse(decisions[1].allowed());
+        assertEquals(60000, decisions[1].resetMillis());
+        verify(redisTemplate).execute(eq(algorithms.getScript()), keys("user123", "10.0.0.1"),
+                args("fixed-window", "5", "1000", "second:fixed-window", "1",
+                        "gcra", "1000", "86400000", "day:gcra", "1"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void whenClusteredAndRulesLimitDifferentSubjects_shouldEvaluateEachSubjectSeparately() {
+        // Given
+        clustered = true;
+        rateLimiterService = createService();
+        CompiledRule perUser = rateLimiterService.compileRule("per-user", "X-User-Id", "second", 5, null);
+        CompiledRule perIp = rateLimiterService.compileRule("per-ip", "X-IP-Address", "day", 1000, "gcra");
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList()))
+                .thenReturn(Flux.just(List.of(1L, 4L, 1000L)), Flux.just(List.of(1L, 999L, 86400L)));
+
+        // When
+        RateLimitDecision[] decisions = rateLimiterService.tryAcquireAll(new CompiledRule[]{perUser, perIp},
+                new String[]{"user123", "10.0.0.1"});
+
+        // Then
+        assertTrue(decisions[0].allowed());
+        assertEquals(999, decisions[1].remaining());
+        verify(redisTemplate).execute(eq(algorithms.getScript()), keys("user123"),
+                args("fixed-window", "5", "1000", "second:fixed-window", "1"));
+        verify(redisTemplate).execute(eq(algorithms.getScript()), keys("10.0.0.1"),
+                args("gcra", "1000", "86400000", "day:gcra", "1"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void whenClusteredAndFirstSubjectDenied_shouldNotEvaluateTheOthers() {
+        // Given
+        clustered = true;
+        rateLimiterService = createService();
+        CompiledRule perUser = rateLimiterService.compileRule("per-user", "X-User-Id", "second", 5, null);
+        CompiledRule perIp = rateLimiterService.compileRule("per-ip", "X-IP-Address", "day", 1000, "gcra");
+        givenScriptReturns(0L, 0L, 400L);
+
+        // When
+        RateLimitDecision[] decisions = rateLimiterService.tryAcquireAll(new CompiledRule[]{perUser, perIp},
+                new String[]{"user123", "10.0.0.1"});
+
+        // Then
+        assertFalse(decisions[0].allowed());
+        assertTrue(decisions[1].allowed());
+        verify(redisTemplate, times(1)).execute(any(), anyList(), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void whenClusteredAndLaterSubjectDenied_shouldHandBackEarlierPermits() {
+        // Given
+        clustered = true;
+        rateLimiterService = createService();
+        CompiledRule perUser = rateLimiterService.compileRule("per-user", "X-User-Id", "second", 5, null);
+        CompiledRule perIp = rateLimiterService.compileRule("per-ip", "X-IP-Address", "day", 1000, "gcra");
+        when(redisTemplate.execute(eq(algorithms.getScript()), anyList(), anyList()))
+                .thenReturn(Flux.just(List.of(1L, 4L, 1000L)), Flux.just(List.of(0L, 0L, 86400L)));
+        when(redisTemplate.execute(eq(algorithms.getRefundScript()), anyList(), anyList())).thenReturn(Flux.empty());
+
+        // When
+        RateLimitDecision[] decisions = rateLimiterService.tryAcquireAll(new CompiledRule[]{perUser, perIp},
+                new String[]{"user123", "10.0.0.1"});
+
+        // Then
+        assertFalse(decisions[1].allowed());
+        verify(redisTemplate).execute(eq(algorithms.getRefundScript()), keys("user123"),
+                args("fixed-window", "5", "1000", "second:fixed-window", "1"));
+    }
+
+    @Test
+    void whenKeyAlreadyDenied_shouldDenyWithoutRedisUntilReset() {
+        // Given
+        givenScriptReturns(0L, 0L, 60000L);
+        rateLimiterService.tryAcquire("test-key", "day", 3, null);
+
+        // When
+        RateLimitDecision decision = rateLimiterService.tryAcquire("test-key", "day", 3, null);
+
+        // Then
+        assertFalse(decision.allowed());
+        assertTrue(decision.resetMillis() > 0 && decision.resetMillis() <= 60000);
+        verify(redisTemplate, times(1)).execute(any(), anyList(), anyList());
+    }
+
+    @Test
+    void whenRuleHasCost_shouldTakeAllItsPermitsInOneScriptCall() {
+        // Given
+        CompiledRule uploads = rateLimiterService.compileRule("uploads", "X-User-Id", "second", 10, null, null, "4");
+        givenScriptReturns(1L, 6L, 1000L);
+
+        // When
+        RateLimitDecision decision = rateLimiterService.tryAcquire(uploads, "user123", uploads.rule().cost().permits());
+
+        // Then
+        assertEquals(6, decision.remaining());
+        verify(redisTemplate).execute(eq(algorithms.getScript()), keys("user123"),
+                args("fixed-window", "10", "1000", "second:fixed-window", "4"));
+    }
+
+    @Test
+    void whenCostlyRequestDenied_shouldStillAskRedisForCheaperOne() {
+        // Given
+        CompiledRule uploads = rateLimiterService.compileRule("uploads", "X-User-Id", "second", 10, null);
+        givenScriptReturns(0L, 0L, 60000L);
+        rateLimiterService.tryAcquire(uploads, "user123", 8);
+
+        // When
+        rateLimiterService.tryAcquire(uploads, "user123", 8);
+        rateLimiterService.tryAcquire(uploads, "user123", 2);
+
+        // Then
+        verify(redisTemplate, times(2)).execute(any(), anyList(), anyList());
+    }
+
+    @Test
+    void whenLimitRaisedAfterDenial_shouldAskRedisAgain() {
+        // Given
+        givenScriptReturns(0L, 0L, 60000L);
+        rateLimiterService.tryAcquire("test-key", "day", 3, null);
+
+        // When
+        rateLimiterService.tryAcquire("test-key", "day", 10, null);
+
+        // Then
+        verify(redisTemplate, times(2)).execute(any(), anyList(), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void whenRedisTimesOut_shouldFallBackToPerNodeLimit() {
+        // Given
+        config.getResilience().setNodeCount(2);
+        rateLimiterService = createService();
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList()))
+                .thenReturn(Flux.error(new QueryTimeoutException("Redis command timed out")));
+
+        // When
+        RateLimitDecision first = rateLimiterService.tryAcquire("test-key", "day", 3, null);
+        RateLimitDecision second = rateLimiterService.tryAcquire("test-key", "day", 3, null);
+        RateLimitDecision third = rateLimiterService.tryAcquire("test-key", "day", 3, null);
+
+        // Then
+        assertTrue(first.allowed());
+        assertTrue(second.allowed());
+        assertFalse(third.allowed());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void whenRedisUnavailableAndRuleFailsClosed_shouldDeny() {
+        // Given
+        CompiledRule rule = rateLimiterService.compileRule("payments", "X-User-Id", "second", 5, null, "closed");
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList()))
+                .thenReturn(Flux.error(new RedisConnectionFailureException("Connection refused")));
+
+        // When
+        RateLimitDecision decision = rateLimiterService.tryAcquire(rule, "user123");
+
+        // Then
+        assertFalse(decision.allowed());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void whenBatchRequested_shouldDecideAllItemsInOneScriptCall() {
+        // Given
+        CompiledRule posts = rateLimiterService.compileRule("posts", "X-User-Id", "second", 5, null);
+        CompiledRule rewards = rateLimiterService.compileRule("rewards", "X-Device-Id", "week", 1, "gcra");
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList()))
+                .thenReturn(Flux.just(List.of(1L, 4L, 900L, 0L, 0L, 3000L)));
+
+        // When
+        List<RateLimitDecision> decisions = rateLimiterService.isAllowedBatch(List.of(
+                new DecisionRequest(posts, "user123"), new DecisionRequest(rewards, "device9")));
+
+        // Then
+        assertEquals(new RateLimitDecision(true, 5, 4, 900), decisions.get(0));
+        assertEquals(new RateLimitDecision(false, 1, 0, 3000), decisions.get(1));
+        verify(redisTemplate).execute(eq(algorithms.getBatchScript()), keys("user123", "device9"),
+                args("fixed-window", "5", "1000", "second:fixed-window", "1",
+                        "gcra", "1", "604800000", "week:gcra", "1"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void whenClusteredBatch_shouldSendOneScriptCallPerSubject() {
+        // Given
+        clustered = true;
+        rateLimiterService = createService();
+        CompiledRule posts = rateLimiterService.compileRule("posts", "X-User-Id", "second", 5, null);
+        when(redisTemplate.execute(eq(algorithms.getBatchScript()), anyList(), anyList()))
+                .thenReturn(Flux.just(List.of(1L, 4L, 900L, 1L, 3L, 900L)), Flux.just(List.of(1L, 4L, 800L)));
+
+        // When
+        List<RateLimitDecision> decisions = rateLimiterService.isAllowedBatch(List.of(
+                new DecisionRequest(posts, "user1"), new DecisionRequest(posts, "user2"),
+                new DecisionRequest(posts, "user1")));
+
+        // Then
+        assertEquals(4, decisions.get(0).remaining());
+        assertEquals(4, decisions.get(1).remaining());
+        assertEquals(3, decisions.get(2).remaining());
+        verify(redisTemplate).execute(eq(algorithms.getBatchScript()), keys("user1", "user1"), anyList());
+        verify(redisTemplate).execute(eq(algorithms.getBatchScript()), keys("user2"), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void whenClusteredBatchFails_shouldFallBack() {
+        // Given
+        clustered = true;
+        rateLimiterService = createService();
+        CompiledRule posts = rateLimiterService.compileRule("posts", "X-User-Id", "second", 5, null);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList()))
+                .thenReturn(Flux.error(new RedisConnectionFailureException("Connection refused")));
+
+        // When
+        List<RateLimitDecision> decisions = rateLimiterService.isAllowedBatch(List.of(
+                new DecisionRequest(posts, "user1"), new DecisionRequest(posts, "user2")));
+
+        // Then
+        assertTrue(decisions.get(0).allowed());
+        assertTrue(decisions.get(1).allowed());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void whenSubjectsTogetherOutlastDeadline_shouldFallBackForTheRest() {
+        // Given
+        clustered = true;
+        config.getResilience().setTimeout(Duration.ofMillis(300));
+        rateLimiterService = createService();
+        CompiledRule perUser = rateLimiterService.compileRule("per-user", "X-User-Id", "second", 5, null);
+        CompiledRule perIp = rateLimiterService.compileRule("per-ip", "X-IP-Address", "day", 1000, null);
+        when(redisTemplate.execute(eq(algorithms.getScript()), anyList(), anyList()))
+                .thenReturn(Mono.delay(Duration.ofMillis(200)).thenMany(Flux.just(List.of(1L, 4L, 1000L))),
+                        Mono.delay(Duration.ofMillis(200)).thenMany(Flux.just(List.of(1L, 500L, 86400L))));
+
+        // When
+        RateLimitDecision[] decisions = rateLimiterService.tryAcquireAll(new CompiledRule[]{perUser, perIp},
+                new String[]{"user123", "10.0.0.1"});
+
+        // Then
+        assertEquals(4, decisions[0].remaining());
+        assertTrue(decisions[1].allowed());
+        assertEquals(999, decisions[1].remaining());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void whenBatchSpansShards_shouldAskThemConcurrently() {
+        // Given
+        config.getResilience().setTimeout(Duration.ofMillis(300));
+        RateLimitMetrics metrics = new RateLimitMetrics(new SimpleMeterRegistry(), config);
+        RedisShardRouter shards = RedisShardRouter.ring(List.of(
+                new RedisShard("node-a", null, redisTemplate, new RedisCircuitBreaker(config, metrics, "node-a")),
+                new RedisShard("node-b", null, redisTemplate, new RedisCircuitBreaker(config, metrics, "node-b"))),
+                16, List.of());
+        rateLimiterService = createService(metrics, shards);
+        CompiledRule posts = rateLimiterService.compileRule("posts", "X-User-Id", "second", 5, null);
+        String first = "user0";
+        String second = IntStream.range(1, 100).mapToObj(i -> "user" + i)
+                .filter(user -> shardOf(shards, posts, user) != shardOf(shards, posts, first))
+                .findFirst().orElseThrow();
+        when(redisTemplate.execute(eq(algorithms.getBatchScript()), anyList(), anyList()))
+                .thenReturn(Mono.delay(Duration.ofMillis(200)).thenMany(Flux.just(List.of(1L, 2L, 900L))));
+
+        // When
+        List<RateLimitDecision> decisions = rateLimiterService.isAllowedBatch(List.of(
+                new DecisionRequest(posts, first), new DecisionRequest(posts, second)));
+
+        // Then both answered by Redis within one deadline; the fallback would leave 4
+        assertEquals(2, decisions.get(0).remaining());
+        assertEquals(2, decisions.get(1).remaining());
+    }
+
+    @Test
+    void whenBatchExceedsMaximum_shouldReject() {
+        // Given
+        config.setMaxBatchSize(1);
+        CompiledRule posts = rateLimiterService.compileRule("posts", "X-User-Id", "second", 5, null);
+
+        // When/Then
+        assertThrows(IllegalArgumentException.class, () -> rateLimiterService.isAllowedBatch(List.of(
+                new DecisionRequest(posts, "user1"), new DecisionRequest(posts, "user2"))));
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenScriptReturns(Long... result) {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList()))
+                .thenReturn(Flux.just(List.of(result)));
+    }
+
+    private List<byte[]> keys(String... subjects) {
+        CompiledRule anyRule = rateLimiterService.compileRule("any", "X-User-Id", "second", 1, null);
+        List<byte[]> expected = Arrays.stream(subjects)
+                .map(subject -> codec.redisKey(codec.stateKey(subject, anyRule.encoded())))
+                .toList();
+        return argThat(actual -> actual.size() == expected.size()
+                && IntStream.range(0, actual.size())
+                        .allMatch(i -> Arrays.equals(actual.get(i), expected.get(i))));
+    }
+
+    private static List<?> args(String... values) {
+        return argThat(actual -> actual.size() == values.length
+                && IntStream.range(0, values.length)
+                        .allMatch(i -> Arrays.equals((byte[]) actual.get(i), bytes(values[i]))));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private RedisShard shardOf(RedisShardRouter shards, CompiledRule rule, String key) {
+        return shards.shardFor(codec.stateKey(key, rule.encoded()).subject());
+    }
+
+    private RateLimiterService createService() {
+        RateLimitMetrics metrics = new RateLimitMetrics(new SimpleMeterRegistry(), config);
+        return createService(metrics, RedisShardRouter.single(new RedisShard("redis", null, redisTemplate,
+                new RedisCircuitBreaker(config, metrics)), clustered));
+    }
+
+    private RateLimiterService createService(RateLimitMetrics metrics, RedisShardRouter shards) {
+        codec = new RedisKeyCodec(config, algorithms);
+        return new RateLimiterService(config, new RedisRateLimitBackend(shards, codec, algorithms,
+                new QuotaLeaseManager(shards, codec, config), metrics, new DenyCache(config),
+                new FallbackLimiter(config, metrics)), metrics, DecisionEventLog.DISABLED, codec);
     }
-}
\ No newline at end of file
+}
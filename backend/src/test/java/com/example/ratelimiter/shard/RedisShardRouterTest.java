@@ -0,0 +1,94 @@
+package com.example.ratelimiter.shard;
+
+import com.example.ratelimiter.codec.RedisKeyCodec;
+import com.example.ratelimiter.codec.StateKey;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedisShardRouterTest {
+
+    @Test
+    void whenShardingOverNodes_shouldSpreadSubjectsEvenly() {
+        // Given
+        RedisShardRouter router = RedisShardRouter.ring(shards("a:6379", "b:6379", "c:6379"), 160, List.of());
+
+        // When
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 30_000; i++) {
+            counts.merge(router.shardFor(RedisKeyCodec.hash("user" + i)).name(), 1, Integer::sum);
+        }
+
+        // Then
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertTrue(count > 7_500 && count < 12_500, counts.toString()));
+    }
+
+    @Test
+    void whenNodeAdded_shouldOnlyMoveSubjectsToIt() {
+        // Given
+        RedisShardRouter before = RedisShardRouter.ring(shards("a:6379", "b:6379", "c:6379"), 160, List.of());
+        RedisShardRouter after = RedisShardRouter.ring(shards("a:6379", "b:6379", "c:6379", "d:6379"), 160,
+                List.of());
+
+        // When
+        int moved = 0;
+        for (int i = 0; i < 10_000; i++) {
+            long subject = RedisKeyCodec.hash("user" + i);
+            String owner = after.shardFor(subject).name();
+            if (!owner.equals(before.shardFor(subject).name())) {
+                assertEquals("d:6379", owner);
+                moved++;
+            }
+        }
+
+        // Then
+        assertTrue(moved > 1_500 && moved < 3_500, "moved " + moved);
+    }
+
+    @Test
+    void whenSingleNode_shouldEvaluateAllSubjectsInOneScript() {
+        // Given
+        RedisShardRouter router = RedisShardRouter.single(shard("redis"), false);
+
+        // When
+        int[][] groups = router.scriptGroups(states(1, 2, 1));
+
+        // Then
+        assertArrayEquals(new int[][]{{0, 1, 2}}, groups);
+    }
+
+    @Test
+    void whenClustered_shouldGroupStatesBySubjectInRuleOrder() {
+        // Given
+        RedisShardRouter router = RedisShardRouter.single(shard("redis"), true);
+
+        // When
+        int[][] groups = router.scriptGroups(states(2, 1, 2, 3));
+
+        // Then
+        assertArrayEquals(new int[][]{{0, 2}, {1}, {3}}, groups);
+        assertArrayEquals(new int[][]{{0, 1}}, router.scriptGroups(states(5, 5)));
+    }
+
+    private static StateKey[] states(long... subjects) {
+        StateKey[] states = new StateKey[subjects.length];
+        for (int i = 0; i < subjects.length; i++) {
+            states[i] = new StateKey(subjects[i], "second:fixed-window");
+        }
+        return states;
+    }
+
+    private static List<RedisShard> shards(String... names) {
+        return Arrays.stream(names).map(RedisShardRouterTest::shard).toList();
+    }
+
+    private static RedisShard shard(String name) {
+        return new RedisShard(name, null, null, null);
+    }
+}
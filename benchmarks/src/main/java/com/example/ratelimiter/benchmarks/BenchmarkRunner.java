@@ -0,0 +1,65 @@
+package com.example.ratelimiter.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the selected benchmarks once per thread count with the GC profiler attached. Accepts the usual
+ * JMH command line; {@code -t} pins a single thread count, otherwise {@code -Dthreads=1,4,16} is swept.
+ */
+public final class BenchmarkRunner {
+    private static final String DEFAULT_THREADS = "1,4,16";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+        if (commandLine.shouldListProfilers()) {
+            commandLine.listProfilers();
+            return;
+        }
+        if (commandLine.shouldListResultFormats()) {
+            commandLine.listResultFormats();
+            return;
+        }
+        if (commandLine.shouldList() || commandLine.shouldListWithParams()) {
+            Runner runner = new Runner(commandLine);
+            if (commandLine.shouldListWithParams()) {
+                runner.listWithParams(commandLine);
+            } else {
+                runner.list();
+            }
+            return;
+        }
+
+        List<Integer> threadCounts = commandLine.getThreads().hasValue()
+                ? List.of(commandLine.getThreads().get())
+                : Arrays.stream(System.getProperty("threads", DEFAULT_THREADS).split(","))
+                        .map(String::trim)
+                        .map(Integer::parseInt)
+                        .toList();
+
+        for (int threads : threadCounts) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class);
+            if (!commandLine.getResult().hasValue()) {
+                options.resultFormat(ResultFormatType.JSON).result("jmh-result-t" + threads + ".json");
+            }
+            new Runner(options.build()).run();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.ratelimiter.benchmarks;
+
+import com.example.ratelimiter.algorithm.FixedWindowAlgorithm;
+import com.example.ratelimiter.algorithm.RateLimitAlgorithmRegistry;
+import com.example.ratelimiter.annotation.RateLimit;
+import com.example.ratelimiter.aspect.RateLimitAspect;
+import com.example.ratelimiter.concurrency.ConcurrencyLimiterRegistry;
+import com.example.ratelimiter.codec.RedisKeyCodec;
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.events.DecisionEventLog;
+import com.example.ratelimiter.filter.RateLimitFilter;
+import com.example.ratelimiter.headers.RateLimitHeaders;
+import com.example.ratelimiter.metrics.RateLimitMetrics;
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.rule.RateLimitRuleRegistry;
+import com.example.ratelimiter.rule.RateLimitRuleSnapshot;
+import com.example.ratelimiter.rule.RateLimitRuleTable;
+import com.example.ratelimiter.semaphore.LocalRateLimitSemaphore;
+import com.example.ratelimiter.service.RateLimitBackend;
+import com.example.ratelimiter.service.RateLimitDecision;
+import com.example.ratelimiter.service.RateLimiterService;
+import com.example.ratelimiter.service.RedisCalls;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enforcement cost on top of the backend: the servlet filter and the AOP aspect run against a backend
+ * that admits everything without doing any work, next to a direct call of the same handler.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class EnforcementOverheadBenchmark {
+    private static final RateLimitDecision ALLOWED = new RateLimitDecision(true, 5, 4, 1000);
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> {
+    };
+
+    @Param({"1", "1000"})
+    int cardinality;
+
+    RateLimitFilter filter;
+    Handler handler;
+    Handler proxiedHandler;
+
+    @Setup
+    public void setUp() {
+        RateLimiterConfig config = new RateLimiterConfig();
+        RateLimitMetrics metrics = new RateLimitMetrics(new SimpleMeterRegistry(), config);
+        RedisKeyCodec codec = new RedisKeyCodec(config,
+                new RateLimitAlgorithmRegistry(List.of(new FixedWindowAlgorithm())));
+        RateLimiterService service = new RateLimiterService(config, new AllowAllBackend(), metrics,
+                DecisionEventLog.DISABLED, codec);
+        ConcurrencyLimiterRegistry concurrencyLimiters = new ConcurrencyLimiterRegistry(config, metrics,
+                new LocalRateLimitSemaphore(config), DecisionEventLog.DISABLED);
+
+        CompiledRule rule = service.compileRule("POST /api/posts", "X-User-Id", "second", 5, null);
+        RateLimitRuleTable table = RateLimitRuleTable.builder().add("POST", "/api/posts", rule).build();
+        RateLimitRuleSnapshot snapshot = new RateLimitRuleSnapshot(1, table, RateLimitRuleTable.EMPTY);
+        RateLimitRuleRegistry registry = new RateLimitRuleRegistry(null, null, service) {
+            @Override
+            public RateLimitRuleSnapshot snapshot() {
+                return snapshot;
+            }
+        };
+        RateLimitHeaders headers = new RateLimitHeaders(config);
+        filter = new RateLimitFilter(registry, service, concurrencyLimiters, new ObjectMapper(), headers);
+
+        handler = new Handler();
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(handler);
+        proxyFactory.setProxyTargetClass(true);
+        // The handler returns a plain value, so the aspect never takes its reactive path
+        proxyFactory.addAspect(new RateLimitAspect(service, null, concurrencyLimiters, headers, Runnable::run));
+        proxiedHandler = proxyFactory.getProxy();
+    }
+
+    // Servlet requests are not thread-safe, so every benchmark thread gets its own
+    @State(Scope.Thread)
+    public static class Requests {
+        MockHttpServletRequest[] requests;
+        ServletRequestAttributes[] attributes;
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        int next;
+
+        @Setup
+        public void setUp(EnforcementOverheadBenchmark benchmark) {
+            String[] keys = Keys.userIds(benchmark.cardinality);
+            requests = new MockHttpServletRequest[keys.length];
+            attributes = new ServletRequestAttributes[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                requests[i] = new MockHttpServletRequest("POST", "/api/posts");
+                requests[i].addHeader("X-User-Id", keys[i]);
+                attributes[i] = new ServletRequestAttributes(requests[i]);
+            }
+            next = Keys.startIndex(keys.length);
+        }
+
+        int advance() {
+            int current = next;
+            next = next + 1 == requests.length ? 0 : next + 1;
+            return current;
+        }
+    }
+
+    @Benchmark
+    public String direct(Requests requests) {
+        return handler.createPost(requests.requests[requests.advance()].getHeader("X-User-Id"));
+    }
+
+    @Benchmark
+    public MockHttpServletResponse filter(Requests requests) throws ServletException, IOException {
+        filter.doFilter(requests.requests[requests.advance()], requests.response, NO_OP_CHAIN);
+        return requests.response;
+    }
+
+    // DispatcherServlet binds the request to the thread the same way before invoking the handler
+    @Benchmark
+    public String aspect(Requests requests) {
+        int index = requests.advance();
+        RequestContextHolder.setRequestAttributes(requests.attributes[index]);
+        return proxiedHandler.createPost(requests.requests[index].getHeader("X-User-Id"));
+    }
+
+    public static class Handler {
+        @RateLimit(key = "X-User-Id", type = "second", limit = 5)
+        public String createPost(String userId) {
+            return userId;
+        }
+    }
+
+    private static final class AllowAllBackend implements RateLimitBackend {
+        @Override
+        public RateLimitDecision tryAcquire(CompiledRule rule, String key, int permits, RedisCalls calls) {
+            return ALLOWED;
+        }
+
+        @Override
+        public RateLimitDecision[] tryAcquireAll(CompiledRule[] rules, String[] keys, int[] permits,
+                RedisCalls calls) {
+            RateLimitDecision[] decisions = new RateLimitDecision[rules.length];
+            Arrays.fill(decisions, ALLOWED);
+            return decisions;
+        }
+
+        @Override
+        public boolean supports(String algorithm) {
+            return true;
+        }
+    }
+}
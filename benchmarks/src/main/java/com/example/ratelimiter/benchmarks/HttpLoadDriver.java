@@ -0,0 +1,109 @@
+package com.example.ratelimiter.benchmarks;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop HTTP load against a running instance: {@code concurrency} clients each send their next request
+ * as soon as the previous one completes, spread over {@code keys} distinct rate limit keys so that the
+ * admission path (a Redis round trip per request) dominates.
+ * <pre>
+ * java -Durl=http://localhost:8080/api/posts -Dconcurrency=1000 -Dduration=30s -cp benchmarks.jar \
+ *     com.example.ratelimiter.benchmarks.HttpLoadDriver
+ * </pre>
+ */
+public final class HttpLoadDriver {
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final URI uri = URI.create(System.getProperty("url", "http://localhost:8080/api/posts"));
+    private final String method = System.getProperty("method", "POST");
+    private final String header = System.getProperty("header", "X-User-Id");
+    private final String[] keys = Keys.userIds(Integer.getInteger("keys", 1_000_000));
+    private final AtomicLong nextKey = new AtomicLong();
+
+    private final Histogram latency = new ConcurrentHistogram(TimeUnit.SECONDS.toMicros(60), 3);
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile boolean recording;
+    private volatile long deadline;
+
+    private HttpLoadDriver() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int concurrency = Integer.getInteger("concurrency", 1000);
+        Duration warmup = DurationStyle.detectAndParse(System.getProperty("warmup", "10s"));
+        Duration duration = DurationStyle.detectAndParse(System.getProperty("duration", "30s"));
+        new HttpLoadDriver().run(concurrency, warmup, duration);
+    }
+
+    private void run(int concurrency, Duration warmup, Duration duration) throws InterruptedException {
+        deadline = System.nanoTime() + warmup.toNanos() + duration.toNanos();
+        CountDownLatch done = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            send(done);
+        }
+
+        Thread.sleep(warmup.toMillis());
+        latency.reset();
+        allowed.reset();
+        rejected.reset();
+        failed.reset();
+        recording = true;
+        long start = System.nanoTime();
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long total = allowed.sum() + rejected.sum() + failed.sum();
+        System.out.printf("concurrency=%d requests=%d throughput=%.0f/s allowed=%d rejected=%d failed=%d%n",
+                concurrency, total, total / seconds, allowed.sum(), rejected.sum(), failed.sum());
+        System.out.printf("latency ms: p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+                percentile(50), percentile(90), percentile(99), percentile(99.9), latency.getMaxValue() / 1000.0);
+    }
+
+    private void send(CountDownLatch done) {
+        if (System.nanoTime() >= deadline) {
+            done.countDown();
+            return;
+        }
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .header(header, keys[(int) (nextKey.getAndIncrement() % keys.length)])
+                .timeout(Duration.ofSeconds(30))
+                .build();
+        long start = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            if (recording) {
+                latency.recordValue(Math.min((System.nanoTime() - start) / 1000, latency.getHighestTrackableValue()));
+                if (error != null) {
+                    failed.increment();
+                } else if (response.statusCode() == 429) {
+                    rejected.increment();
+                } else if (response.statusCode() < 400) {
+                    allowed.increment();
+                } else {
+                    failed.increment();
+                }
+            }
+            send(done);
+        });
+    }
+
+    private double percentile(double percentile) {
+        return latency.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
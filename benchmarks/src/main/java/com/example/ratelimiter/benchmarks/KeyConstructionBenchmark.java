@@ -0,0 +1,84 @@
+package com.example.ratelimiter.benchmarks;
+
+import com.example.ratelimiter.algorithm.FixedWindowAlgorithm;
+import com.example.ratelimiter.algorithm.RateLimitAlgorithmRegistry;
+import com.example.ratelimiter.codec.EncodedRule;
+import com.example.ratelimiter.codec.RedisKeyCodec;
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.local.LocalRateLimitEngine;
+import com.example.ratelimiter.rule.RateLimitRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a header value into a backend key: the {@code String.format} key the Redis backend used
+ * to build, plain concatenation, the binary key it writes now, and the allocation-free hash used by the
+ * in-process engine.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class KeyConstructionBenchmark {
+
+    @State(Scope.Thread)
+    public static class Input {
+        @Param({"1", "1000", "1000000"})
+        int cardinality;
+
+        String[] keys;
+        int next;
+        RedisKeyCodec codec;
+        EncodedRule rule;
+
+        @Setup
+        public void setUp() {
+            keys = Keys.userIds(cardinality);
+            next = Keys.startIndex(cardinality);
+            codec = new RedisKeyCodec(new RateLimiterConfig(),
+                    new RateLimitAlgorithmRegistry(List.of(new FixedWindowAlgorithm())));
+            rule = codec.encode(new RateLimitRule("bench", "X-User-Id", "second", FixedWindowAlgorithm.NAME, 1000,
+                    Duration.ofSeconds(1), "open"));
+        }
+
+        String nextKey() {
+            String key = keys[next];
+            next = next + 1 == keys.length ? 0 : next + 1;
+            return key;
+        }
+    }
+
+    @Benchmark
+    public String format(Input input) {
+        return String.format("%s:%s:%s", input.nextKey(), "second", "fixed-window");
+    }
+
+    @Benchmark
+    public String concat(Input input) {
+        return input.nextKey() + ":" + "second" + ":" + "fixed-window";
+    }
+
+    @Benchmark
+    public byte[] binary(Input input) {
+        return input.codec.redisKey(input.codec.stateKey(input.nextKey(), input.rule));
+    }
+
+    @Benchmark
+    public long localHash(Input input) {
+        return LocalRateLimitEngine.hash(input.nextKey(), "second");
+    }
+}
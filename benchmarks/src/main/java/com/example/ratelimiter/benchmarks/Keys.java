@@ -0,0 +1,20 @@
+package com.example.ratelimiter.benchmarks;
+
+final class Keys {
+    private Keys() {
+    }
+
+    // Header values shaped like the X-User-Id values the API sees
+    static String[] userIds(int cardinality) {
+        String[] keys = new String[cardinality];
+        for (int i = 0; i < cardinality; i++) {
+            keys[i] = "user-" + i;
+        }
+        return keys;
+    }
+
+    // Spreads threads over the key space so they do not all start on the same key
+    static int startIndex(int cardinality) {
+        return (int) (Thread.currentThread().getId() * 7919 % cardinality);
+    }
+}
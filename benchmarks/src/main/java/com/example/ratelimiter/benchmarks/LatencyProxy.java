@@ -0,0 +1,86 @@
+package com.example.ratelimiter.benchmarks;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TCP proxy that delays every reply from the target, standing in for a Redis server across a network.
+ * Replies keep their order, so pipelined connections behave as they would against a remote server.
+ * <pre>
+ * java -Dlisten=6380 -Dtarget=localhost:6379 -Ddelay=5ms -cp benchmarks.jar \
+ *     com.example.ratelimiter.benchmarks.LatencyProxy
+ * </pre>
+ */
+public final class LatencyProxy {
+    private LatencyProxy() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int listenPort = Integer.getInteger("listen", 6380);
+        String[] target = System.getProperty("target", "localhost:6379").split(":");
+        long delayNanos = DurationStyle.detectAndParse(System.getProperty("delay", "5ms")).toNanos();
+
+        try (ServerSocket server = new ServerSocket(listenPort)) {
+            System.out.printf("Proxying :%d -> %s:%s with %d us added per reply%n", listenPort, target[0], target[1],
+                    delayNanos / 1000);
+            while (true) {
+                Socket client = server.accept();
+                Socket upstream = new Socket();
+                upstream.connect(new InetSocketAddress(target[0], Integer.parseInt(target[1])));
+                client.setTcpNoDelay(true);
+                upstream.setTcpNoDelay(true);
+                pump(client, upstream, 0);
+                pump(upstream, client, delayNanos);
+            }
+        }
+    }
+
+    // One scheduler thread per direction; equal delays make it deliver chunks in the order they were read
+    private static void pump(Socket from, Socket to, long delayNanos) {
+        ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor();
+        Thread reader = new Thread(() -> {
+            try (InputStream in = from.getInputStream()) {
+                OutputStream out = to.getOutputStream();
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    byte[] chunk = Arrays.copyOf(buffer, read);
+                    writer.schedule(() -> write(out, chunk), delayNanos, TimeUnit.NANOSECONDS);
+                }
+            } catch (IOException e) {
+                // Either side closed the connection
+            } finally {
+                writer.schedule(() -> close(to), delayNanos, TimeUnit.NANOSECONDS);
+                writer.shutdown();
+            }
+        });
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private static void write(OutputStream out, byte[] chunk) {
+        try {
+            out.write(chunk);
+        } catch (IOException e) {
+            // The reader on the other side notices the closed socket
+        }
+    }
+
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.ratelimiter.benchmarks;
+
+import com.example.ratelimiter.local.LocalRateLimitEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class LocalEngineBenchmark {
+    private static final long WINDOW_MILLIS = 1000;
+
+    @Param({"1", "1000", "1000000"})
+    int cardinality;
+
+    // Low limits make most decisions denials, high limits make them admissions
+    @Param({"10", "1000000000"})
+    long limit;
+
+    LocalRateLimitEngine engine;
+    long[] hashes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new LocalRateLimitEngine(2_000_000, 64, 100, System::currentTimeMillis);
+        engine.start();
+        String[] keys = Keys.userIds(cardinality);
+        hashes = new long[cardinality];
+        for (int i = 0; i < cardinality; i++) {
+            hashes[i] = LocalRateLimitEngine.hash(keys[i], "second");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        @Setup
+        public void setUp(LocalEngineBenchmark benchmark) {
+            next = Keys.startIndex(benchmark.cardinality);
+        }
+    }
+
+    @Benchmark
+    public long tryAcquire(Cursor cursor) {
+        long hash = hashes[cursor.next];
+        cursor.next = cursor.next + 1 == hashes.length ? 0 : cursor.next + 1;
+        return engine.tryAcquire(hash, limit, WINDOW_MILLIS);
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.ratelimiter.benchmarks;
+
+import com.example.ratelimiter.algorithm.FixedWindowAlgorithm;
+import com.example.ratelimiter.algorithm.GcraAlgorithm;
+import com.example.ratelimiter.algorithm.RateLimitAlgorithmRegistry;
+import com.example.ratelimiter.algorithm.SlidingWindowCounterAlgorithm;
+import com.example.ratelimiter.algorithm.TokenBucketAlgorithm;
+import com.example.ratelimiter.cache.DenyCache;
+import com.example.ratelimiter.codec.RedisKeyCodec;
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.events.DecisionEventLog;
+import com.example.ratelimiter.lease.QuotaLeaseManager;
+import com.example.ratelimiter.local.LocalRateLimitBackend;
+import com.example.ratelimiter.metrics.RateLimitMetrics;
+import com.example.ratelimiter.resilience.FallbackLimiter;
+import com.example.ratelimiter.resilience.RedisCircuitBreaker;
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.service.DecisionRequest;
+import com.example.ratelimiter.service.RateLimitBackend;
+import com.example.ratelimiter.service.RateLimitDecision;
+import com.example.ratelimiter.service.RateLimiterService;
+import com.example.ratelimiter.service.RedisRateLimitBackend;
+import com.example.ratelimiter.shard.RedisShard;
+import com.example.ratelimiter.shard.RedisShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end decision cost through {@link RateLimiterService} against the in-process backend and a
+ * Redis stand-in (see {@link RedisStandIn}). Limits are high enough that every request is admitted.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class RateLimiterServiceBenchmark {
+    private static final int LIMIT = 1_000_000_000;
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"local", "redis"})
+    String backend;
+
+    @Param({"1", "10000"})
+    int cardinality;
+
+    @Param({"true", "false"})
+    boolean metrics;
+
+    RateLimiterService service;
+    CompiledRule rule;
+    String[] keys;
+
+    private LocalRateLimitBackend localBackend;
+    private RedisStandIn redis;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        RateLimiterConfig config = new RateLimiterConfig();
+        config.setBackend(backend);
+        config.getMetrics().setEnabled(metrics);
+        RateLimitMetrics rateLimitMetrics = new RateLimitMetrics(new SimpleMeterRegistry(), config);
+
+        RateLimitAlgorithmRegistry algorithms = new RateLimitAlgorithmRegistry(List.of(new FixedWindowAlgorithm(),
+                new SlidingWindowCounterAlgorithm(), new TokenBucketAlgorithm(), new GcraAlgorithm()));
+        RedisKeyCodec codec = new RedisKeyCodec(config, algorithms);
+        RateLimitBackend rateLimitBackend;
+        if ("local".equals(backend)) {
+            localBackend = new LocalRateLimitBackend(config);
+            rateLimitBackend = localBackend;
+        } else {
+            redis = new RedisStandIn();
+            RedisShardRouter shards = RedisShardRouter.single(new RedisShard("redis", redis.template(),
+                    redis.reactiveTemplate(), new RedisCircuitBreaker(config, rateLimitMetrics)), false);
+            rateLimitBackend = new RedisRateLimitBackend(shards, codec, algorithms,
+                    new QuotaLeaseManager(shards, codec, config), rateLimitMetrics,
+                    new DenyCache(config), new FallbackLimiter(config, rateLimitMetrics));
+        }
+
+        service = new RateLimiterService(config, rateLimitBackend, rateLimitMetrics, DecisionEventLog.DISABLED, codec);
+        rule = service.compileRule("POST /api/posts", "X-User-Id", "second", LIMIT, null);
+        keys = Keys.userIds(cardinality);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (localBackend != null) {
+            localBackend.close();
+        }
+        if (redis != null) {
+            redis.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        final DecisionRequest[] batch = new DecisionRequest[BATCH_SIZE];
+        int next;
+
+        @Setup
+        public void setUp(RateLimiterServiceBenchmark benchmark) {
+            next = Keys.startIndex(benchmark.cardinality);
+        }
+
+        String nextKey(String[] keys) {
+            String key = keys[next];
+            next = next + 1 == keys.length ? 0 : next + 1;
+            return key;
+        }
+
+        List<DecisionRequest> nextBatch(CompiledRule rule, String[] keys) {
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = new DecisionRequest(rule, nextKey(keys));
+            }
+            return Arrays.asList(batch);
+        }
+    }
+
+    @Benchmark
+    public boolean isAllowed(Cursor cursor) {
+        return service.isAllowed(cursor.nextKey(keys), "second", LIMIT);
+    }
+
+    @Benchmark
+    public RateLimitDecision compiledRule(Cursor cursor) {
+        return service.tryAcquire(rule, cursor.nextKey(keys));
+    }
+
+    // One operation is BATCH_SIZE decisions; compare with one compiledRule operation
+    @Benchmark
+    public List<RateLimitDecision> batch(Cursor cursor) {
+        return service.isAllowedBatch(cursor.nextBatch(rule, keys));
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.ratelimiter.benchmarks;
+
+import com.example.ratelimiter.config.RateLimitRedisConfig;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+/**
+ * Redis for the Redis-backed benchmarks: the server given by {@code -Dredis.host}/{@code -Dredis.port},
+ * or an embedded redis-server started on a free port when no host is given.
+ */
+final class RedisStandIn implements AutoCloseable {
+    private final RedisServer server;
+    private final LettuceConnectionFactory connectionFactory;
+    private final RedisTemplate<byte[], byte[]> template;
+    private final ReactiveRedisTemplate<byte[], byte[]> reactiveTemplate;
+
+    RedisStandIn() throws IOException {
+        this(System.getProperty("redis.host"));
+    }
+
+    // An embedded redis-server when host is null
+    RedisStandIn(String host) throws IOException {
+        int port;
+        if (host == null) {
+            host = "localhost";
+            port = freePort();
+            server = new RedisServer(port);
+            server.start();
+        } else {
+            port = Integer.getInteger("redis.port", 6379);
+            server = null;
+        }
+
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        connectionFactory.afterPropertiesSet();
+        template = new RateLimitRedisConfig().rateLimitRedisTemplate(connectionFactory);
+        reactiveTemplate = new ReactiveRedisTemplate<>(connectionFactory, RedisSerializationContext.byteArray());
+        template.execute(connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        }, true);
+    }
+
+    RedisTemplate<byte[], byte[]> template() {
+        return template;
+    }
+
+    ReactiveRedisTemplate<byte[], byte[]> reactiveTemplate() {
+        return reactiveTemplate;
+    }
+
+    @Override
+    public void close() throws IOException {
+        connectionFactory.destroy();
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
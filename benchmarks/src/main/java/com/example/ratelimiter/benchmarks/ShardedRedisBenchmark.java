@@ -0,0 +1,123 @@
+package com.example.ratelimiter.benchmarks;
+
+import com.example.ratelimiter.algorithm.FixedWindowAlgorithm;
+import com.example.ratelimiter.algorithm.GcraAlgorithm;
+import com.example.ratelimiter.algorithm.RateLimitAlgorithmRegistry;
+import com.example.ratelimiter.algorithm.SlidingWindowCounterAlgorithm;
+import com.example.ratelimiter.algorithm.TokenBucketAlgorithm;
+import com.example.ratelimiter.cache.DenyCache;
+import com.example.ratelimiter.codec.RedisKeyCodec;
+import com.example.ratelimiter.config.RateLimiterConfig;
+import com.example.ratelimiter.events.DecisionEventLog;
+import com.example.ratelimiter.lease.QuotaLeaseManager;
+import com.example.ratelimiter.metrics.RateLimitMetrics;
+import com.example.ratelimiter.resilience.FallbackLimiter;
+import com.example.ratelimiter.resilience.RedisCircuitBreaker;
+import com.example.ratelimiter.rule.CompiledRule;
+import com.example.ratelimiter.service.RateLimitDecision;
+import com.example.ratelimiter.service.RateLimiterService;
+import com.example.ratelimiter.service.RedisRateLimitBackend;
+import com.example.ratelimiter.shard.RedisShard;
+import com.example.ratelimiter.shard.RedisShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregate decision throughput of the Redis backend with subjects spread over {@code shards} embedded
+ * redis-servers by {@link RedisShardRouter}. Only meaningful with several threads and enough cores for
+ * the servers to run in parallel.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class ShardedRedisBenchmark {
+    private static final int LIMIT = 1_000_000_000;
+
+    @Param({"1", "3"})
+    int shards;
+
+    @Param({"10000"})
+    int cardinality;
+
+    RateLimiterService service;
+    CompiledRule rule;
+    String[] keys;
+
+    private final List<RedisStandIn> servers = new ArrayList<>();
+    private RedisShardRouter router;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        RateLimiterConfig config = new RateLimiterConfig();
+        RateLimitMetrics rateLimitMetrics = new RateLimitMetrics(new SimpleMeterRegistry(), config);
+
+        List<RedisShard> redisShards = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            RedisStandIn redis = new RedisStandIn(null);
+            servers.add(redis);
+            redisShards.add(new RedisShard("redis-" + i, redis.template(), redis.reactiveTemplate(),
+                    new RedisCircuitBreaker(config, rateLimitMetrics, "redis-" + i)));
+        }
+        router = RedisShardRouter.ring(redisShards, config.getSharding().getVirtualNodes(), List.of());
+
+        RateLimitAlgorithmRegistry algorithms = new RateLimitAlgorithmRegistry(List.of(new FixedWindowAlgorithm(),
+                new SlidingWindowCounterAlgorithm(), new TokenBucketAlgorithm(), new GcraAlgorithm()));
+        RedisKeyCodec codec = new RedisKeyCodec(config, algorithms);
+        RedisRateLimitBackend backend = new RedisRateLimitBackend(router, codec, algorithms,
+                new QuotaLeaseManager(router, codec, config), rateLimitMetrics,
+                new DenyCache(config), new FallbackLimiter(config, rateLimitMetrics));
+
+        service = new RateLimiterService(config, backend, rateLimitMetrics, DecisionEventLog.DISABLED, codec);
+        rule = service.compileRule("POST /api/posts", "X-User-Id", "second", LIMIT, null);
+        keys = Keys.userIds(cardinality);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        router.destroy();
+        for (RedisStandIn redis : servers) {
+            redis.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        @Setup
+        public void setUp(ShardedRedisBenchmark benchmark) {
+            next = Keys.startIndex(benchmark.cardinality);
+        }
+
+        String nextKey(String[] keys) {
+            String key = keys[next];
+            next = next + 1 == keys.length ? 0 : next + 1;
+            return key;
+        }
+    }
+
+    @Benchmark
+    public RateLimitDecision compiledRule(Cursor cursor) {
+        return service.tryAcquire(rule, cursor.nextKey(keys));
+    }
+}
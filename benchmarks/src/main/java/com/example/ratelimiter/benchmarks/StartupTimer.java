@@ -0,0 +1,103 @@
+package com.example.ratelimiter.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Starts the command given as arguments {@code runs} times and reports, per run, the startup time Spring Boot logs
+ * and the time from launch until the first rate limit decision: the first request answered with 200 or 429.
+ * <pre>
+ * java -Druns=5 -cp benchmarks.jar com.example.ratelimiter.benchmarks.StartupTimer \
+ *     java -XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true -jar application.jar
+ * </pre>
+ */
+public final class StartupTimer {
+    private static final Pattern STARTED = Pattern.compile("Started \\S+ in ([0-9.]+) seconds");
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofMillis(100))
+            .build();
+    private final HttpRequest request = HttpRequest.newBuilder(
+                    URI.create(System.getProperty("url", "http://localhost:8080/api/posts")))
+            .header(System.getProperty("header", "X-User-Id"), "startup-timer")
+            .method(System.getProperty("method", "POST"), HttpRequest.BodyPublishers.noBody())
+            .build();
+
+    private StartupTimer() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Usage: StartupTimer <command to start the application>");
+        }
+        int runs = Integer.getInteger("runs", 5);
+        StartupTimer timer = new StartupTimer();
+        double[] started = new double[runs];
+        long[] firstDecision = new long[runs];
+        for (int run = 0; run < runs; run++) {
+            timer.time(List.of(args), started, firstDecision, run);
+            System.out.printf("run=%d started=%.3fs first-decision=%dms%n", run + 1, started[run], firstDecision[run]);
+        }
+        Arrays.sort(started);
+        Arrays.sort(firstDecision);
+        System.out.printf("median: started=%.3fs first-decision=%dms%n", started[runs / 2], firstDecision[runs / 2]);
+    }
+
+    private void time(List<String> command, double[] started, long[] firstDecision, int run) throws Exception {
+        long launch = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        CompletableFuture<Double> startedIn = CompletableFuture.supplyAsync(() -> startedIn(process));
+        try {
+            firstDecision[run] = Duration.ofNanos(awaitDecision(process) - launch).toMillis();
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+        started[run] = startedIn.get();
+    }
+
+    private long awaitDecision(Process process) throws InterruptedException {
+        while (process.isAlive()) {
+            try {
+                int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                if (status == 200 || status == 429) {
+                    return System.nanoTime();
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(5);
+        }
+        throw new IllegalStateException("Application exited with status " + process.exitValue());
+    }
+
+    // Keeps draining the output so the application never blocks on a full pipe
+    private static double startedIn(Process process) {
+        double seconds = Double.NaN;
+        try (BufferedReader output = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            for (String line = output.readLine(); line != null; line = output.readLine()) {
+                Matcher matcher = STARTED.matcher(line);
+                if (Double.isNaN(seconds) && matcher.find()) {
+                    seconds = Double.parseDouble(matcher.group(1));
+                }
+            }
+        } catch (IOException e) {
+            // The process was stopped
+        }
+        return seconds;
+    }
+}